@@ -3,21 +3,18 @@ package org.radarcns.management.aop.logging;
 import io.github.jhipster.config.JHipsterConstants;
 
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
-import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
-import java.util.Arrays;
-
 /**
- * Aspect for logging execution of service and repository Spring components.
+ * Aspect for logging exceptions thrown by service and repository Spring components.
  *
- * <p>By default, it only runs with the "dev" profile.</p>
+ * <p>By default, it only runs with the "dev" profile. Method latencies are recorded by the
+ * opt-in {@link org.radarcns.management.aop.timing.MethodTimingAspect} instead.</p>
  */
 @Aspect
 public class LoggingAspect {
@@ -61,35 +58,4 @@ public class LoggingAspect {
                     e.getCause() != null ? e.getCause() : "NULL");
         }
     }
-
-    /**
-     * Advice that logs when a method is entered and exited.
-     *
-     * @param joinPoint join point for advice
-     * @return result
-     * @throws Throwable throws IllegalArgumentException
-     */
-    @Around("loggingPointcut()")
-    public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (log.isDebugEnabled()) {
-            log.debug("Enter: {}.{}() with argument[s] = {}",
-                    joinPoint.getSignature().getDeclaringTypeName(),
-                    joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
-        }
-        try {
-            Object result = joinPoint.proceed();
-            if (log.isDebugEnabled()) {
-                log.debug("Exit: {}.{}() with result = {}",
-                        joinPoint.getSignature().getDeclaringTypeName(),
-                        joinPoint.getSignature().getName(), result);
-            }
-            return result;
-        } catch (IllegalArgumentException e) {
-            log.error("Illegal argument: {} in {}.{}()", Arrays.toString(joinPoint.getArgs()),
-                    joinPoint.getSignature().getDeclaringTypeName(),
-                    joinPoint.getSignature().getName());
-
-            throw e;
-        }
-    }
 }
@@ -0,0 +1,85 @@
+package org.radarcns.management.aop.timing;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+
+/**
+ * Aspect for recording the latency of service, repository and Web REST endpoint methods.
+ *
+ * <p>Only a fraction of the calls is timed, as set by the sample rate. The timings are recorded
+ * as Dropwizard timers named {@code methods.<class>.<method>} in the given registry. This aspect
+ * is only registered when {@code managementportal.metrics.methodTimingEnabled} is set, see
+ * {@link org.radarcns.management.config.MethodTimingConfiguration}.</p>
+ */
+@Aspect
+public class MethodTimingAspect {
+
+    private static final String METRIC_PREFIX = "methods";
+
+    private final MetricRegistry metricRegistry;
+
+    private final double sampleRate;
+
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new timing aspect.
+     *
+     * @param metricRegistry registry to record the timers in
+     * @param sampleRate fraction of method calls to time, between 0 and 1
+     */
+    public MethodTimingAspect(MetricRegistry metricRegistry, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Method timing sample rate " + sampleRate
+                    + " is not between 0 and 1");
+        }
+        this.metricRegistry = metricRegistry;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Pointcut that matches all repositories, services and Web REST endpoints.
+     */
+    @Pointcut("within(org.radarcns.management.repository..*) || "
+            + "within(org.radarcns.management.service..*) || "
+            + "within(org.radarcns.management.web.rest..*)")
+    public void timingPointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Advice that times a sample of the method calls.
+     *
+     * @param joinPoint join point for advice
+     * @return result of the method call
+     * @throws Throwable any exception thrown by the method call
+     */
+    @Around("timingPointcut()")
+    public Object timeSampled(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return joinPoint.proceed();
+        }
+        Timer.Context context = getTimer(joinPoint.getSignature()).time();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            context.stop();
+        }
+    }
+
+    private Timer getTimer(Signature signature) {
+        Method method = ((MethodSignature) signature).getMethod();
+        return timers.computeIfAbsent(method, m -> metricRegistry.timer(MetricRegistry.name(
+                METRIC_PREFIX, signature.getDeclaringTypeName(), signature.getName())));
+    }
+}
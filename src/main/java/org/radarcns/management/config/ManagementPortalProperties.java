@@ -16,6 +16,8 @@ public class ManagementPortalProperties {
 
     private final CatalogueServer catalogueServer = new CatalogueServer();
 
+    private final Metrics metrics = new Metrics();
+
     public ManagementPortalProperties.Frontend getFrontend() {
         return frontend;
     }
@@ -32,6 +34,10 @@ public class ManagementPortalProperties {
         return catalogueServer;
     }
 
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     public static class Mail {
 
         private String from = "";
@@ -127,6 +133,14 @@ public class ManagementPortalProperties {
 
         private String serverUrl;
 
+        private int connectTimeout = 5000;
+
+        private int readTimeout = 30000;
+
+        private boolean enableSync = false;
+
+        private String syncCron = "0 15 * * * ?";
+
         public String getServerUrl() {
             return serverUrl;
         }
@@ -142,6 +156,95 @@ public class ManagementPortalProperties {
         public void setEnableAutoImport(boolean enableAutoImport) {
             this.enableAutoImport = enableAutoImport;
         }
+
+        /** Timeout in milliseconds for connecting to the catalog server. */
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        /** Timeout in milliseconds for reading the source types of the catalog server. */
+        public int getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(int readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        /** Whether to import changes of the catalog periodically, if auto import is enabled. */
+        public boolean isEnableSync() {
+            return enableSync;
+        }
+
+        public void setEnableSync(boolean enableSync) {
+            this.enableSync = enableSync;
+        }
+
+        /** Cron expression of when to import changes of the catalog. */
+        public String getSyncCron() {
+            return syncCron;
+        }
+
+        public void setSyncCron(String syncCron) {
+            this.syncCron = syncCron;
+        }
+    }
+
+    public static class Metrics {
+
+        private boolean methodTimingEnabled = false;
+
+        private double methodTimingSampleRate = 0.01;
+
+        private int requestStatementWarnThreshold = 50;
+
+        private boolean mappingPhaseEnabled = false;
+
+        private boolean serverTimingEnabled = false;
+
+        public boolean isMethodTimingEnabled() {
+            return methodTimingEnabled;
+        }
+
+        public void setMethodTimingEnabled(boolean methodTimingEnabled) {
+            this.methodTimingEnabled = methodTimingEnabled;
+        }
+
+        public double getMethodTimingSampleRate() {
+            return methodTimingSampleRate;
+        }
+
+        public void setMethodTimingSampleRate(double methodTimingSampleRate) {
+            this.methodTimingSampleRate = methodTimingSampleRate;
+        }
+
+        public int getRequestStatementWarnThreshold() {
+            return requestStatementWarnThreshold;
+        }
+
+        public void setRequestStatementWarnThreshold(int requestStatementWarnThreshold) {
+            this.requestStatementWarnThreshold = requestStatementWarnThreshold;
+        }
+
+        public boolean isMappingPhaseEnabled() {
+            return mappingPhaseEnabled;
+        }
+
+        public void setMappingPhaseEnabled(boolean mappingPhaseEnabled) {
+            this.mappingPhaseEnabled = mappingPhaseEnabled;
+        }
+
+        public boolean isServerTimingEnabled() {
+            return serverTimingEnabled;
+        }
+
+        public void setServerTimingEnabled(boolean serverTimingEnabled) {
+            this.serverTimingEnabled = serverTimingEnabled;
+        }
     }
 
 }
@@ -0,0 +1,26 @@
+package org.radarcns.management.config;
+
+import com.codahale.metrics.MetricRegistry;
+import org.radarcns.management.aop.timing.MethodTimingAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+/**
+ * Registers the {@link MethodTimingAspect} when method timing is enabled. When it is disabled,
+ * no timing advice is applied to any bean.
+ */
+@Configuration
+@EnableAspectJAutoProxy
+@ConditionalOnProperty(prefix = "managementportal.metrics", name = "methodTimingEnabled",
+        havingValue = "true")
+public class MethodTimingConfiguration {
+
+    @Bean
+    public MethodTimingAspect methodTimingAspect(MetricRegistry metricRegistry,
+            ManagementPortalProperties managementPortalProperties) {
+        return new MethodTimingAspect(metricRegistry,
+                managementPortalProperties.getMetrics().getMethodTimingSampleRate());
+    }
+}
@@ -6,12 +6,15 @@ import java.security.KeyPair;
 import java.util.Arrays;
 import javax.sql.DataSource;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.filters.TokenKeyEtagFilter;
 import org.radarcns.management.security.ClaimsTokenEnhancer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpMethod;
@@ -84,6 +87,22 @@ public class OAuth2ServerConfiguration {
         return clientDetailsService;
     }
 
+    /**
+     * Register the ETag filter of the public key endpoint before Spring Security, so that its
+     * cache control header is kept.
+     *
+     * @return filter registration
+     */
+    @Bean
+    public FilterRegistrationBean tokenKeyEtagFilterRegistration() {
+        FilterRegistrationBean registration = new FilterRegistrationBean();
+        registration.setFilter(new TokenKeyEtagFilter());
+        registration.addUrlPatterns("/oauth/token_key");
+        registration.setName("tokenKeyEtagFilter");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
     @Configuration
     @EnableResourceServer
     protected static class ResourceServerConfiguration extends ResourceServerConfigurerAdapter {
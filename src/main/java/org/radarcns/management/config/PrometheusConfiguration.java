@@ -0,0 +1,90 @@
+package org.radarcns.management.config;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import io.github.jhipster.config.JHipsterProperties;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.exporter.MetricsServlet;
+import org.radarcns.management.metrics.HazelcastMapCollector;
+import org.radarcns.management.metrics.RouteLatencyFilter;
+import org.radarcns.management.metrics.TokenMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Exposes metrics in the Prometheus format at {@code jhipster.metrics.prometheus.endpoint}, when
+ * {@code jhipster.metrics.prometheus.enabled} is set. Besides all Dropwizard metrics, including
+ * the JVM and Hikari connection pool metrics, this exposes per-route request latency histograms,
+ * Hazelcast map statistics and token counters.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jhipster.metrics.prometheus", name = "enabled",
+        havingValue = "true")
+public class PrometheusConfiguration {
+
+    /** Maximum number of distinct route labels of the request latency histogram. */
+    private static final int MAX_ROUTES = 250;
+
+    @Autowired
+    private JHipsterProperties jHipsterProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    /**
+     * Registry of all metrics exposed to Prometheus. This is not the default registry, so that
+     * multiple application contexts in the same JVM do not share metrics.
+     *
+     * @return collector registry
+     */
+    @Bean
+    public CollectorRegistry prometheusCollectorRegistry() {
+        CollectorRegistry registry = new CollectorRegistry();
+        new DropwizardExports(metricRegistry).register(registry);
+        new HazelcastMapCollector(hazelcastInstance).register(registry);
+        TokenMetrics.register(registry);
+        return registry;
+    }
+
+    /**
+     * Serve the Prometheus metrics.
+     *
+     * @param registry collector registry
+     * @return servlet registration
+     */
+    @Bean
+    public ServletRegistrationBean prometheusServletRegistration(CollectorRegistry registry) {
+        ServletRegistrationBean registration = new ServletRegistrationBean(
+                new MetricsServlet(registry),
+                jHipsterProperties.getMetrics().getPrometheus().getEndpoint());
+        registration.setName("prometheusMetrics");
+        return registration;
+    }
+
+    /**
+     * Record request latency right after the request statistics filter, so that it includes the
+     * time spent on authentication.
+     *
+     * @param registry collector registry
+     * @return filter registration
+     */
+    @Bean
+    public FilterRegistrationBean routeLatencyFilterRegistration(CollectorRegistry registry) {
+        FilterRegistrationBean registration = new FilterRegistrationBean();
+        registration.setFilter(new RouteLatencyFilter(registry, MAX_ROUTES));
+        registration.addUrlPatterns("/api/*", "/oauth/*", "/management/*");
+        registration.setName("routeLatencyFilter");
+        registration.setAsyncSupported(true);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
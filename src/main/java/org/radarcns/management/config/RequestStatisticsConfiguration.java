@@ -0,0 +1,59 @@
+package org.radarcns.management.config;
+
+import com.codahale.metrics.MetricRegistry;
+import org.radarcns.management.metrics.MappingPhaseAspect;
+import org.radarcns.management.metrics.RequestStatisticsFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.core.Ordered;
+
+/**
+ * Collects per-request statistics: database statements and the time spent in the request phases.
+ */
+@Configuration
+@EnableAspectJAutoProxy
+public class RequestStatisticsConfiguration {
+
+    @Autowired
+    private ManagementPortalProperties managementPortalProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    /**
+     * Time the entity to DTO mappers as the mapping phase of requests, if enabled. Since this
+     * advises every mapper call, including the nested calls for each row of a page, it is
+     * disabled by default.
+     *
+     * @return mapping phase aspect
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "managementportal.metrics", name = "mappingPhaseEnabled",
+            havingValue = "true")
+    public MappingPhaseAspect mappingPhaseAspect() {
+        return new MappingPhaseAspect();
+    }
+
+    /**
+     * Register the request statistics filter before any other filter, so that it can include the
+     * time spent on authentication.
+     *
+     * @return filter registration
+     */
+    @Bean
+    public FilterRegistrationBean requestStatisticsFilterRegistration() {
+        ManagementPortalProperties.Metrics metrics = managementPortalProperties.getMetrics();
+        FilterRegistrationBean registration = new FilterRegistrationBean();
+        registration.setFilter(new RequestStatisticsFilter(metricRegistry,
+                metrics.getRequestStatementWarnThreshold(), metrics.isServerTimingEnabled()));
+        registration.addUrlPatterns("/api/*", "/oauth/*", "/management/*");
+        registration.setName("requestStatisticsFilter");
+        registration.setAsyncSupported(true);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -1,126 +1,247 @@
 package org.radarcns.management.config;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import com.hazelcast.core.IMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import org.radarcns.management.domain.SourceData;
-import org.radarcns.management.domain.SourceType;
-import org.radarcns.management.repository.SourceDataRepository;
-import org.radarcns.management.repository.SourceTypeRepository;
-import org.radarcns.management.service.catalog.CatalogSourceData;
+import org.radarcns.management.service.SourceTypeImportService;
+import org.radarcns.management.service.SourceTypeImportService.ImportResult;
 import org.radarcns.management.service.catalog.CatalogSourceType;
 import org.radarcns.management.service.catalog.SourceTypeResponse;
-import org.radarcns.management.service.mapper.CatalogSourceDataMapper;
-import org.radarcns.management.service.mapper.CatalogSourceTypeMapper;
-import org.radarcns.management.web.rest.util.HttpUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * Upon start of Spring application, this class automatically import the source-types provided by
  * Catalog server in Radar-Schemas. This will be executed when a valid URL of the catalog server is
- * provided and enableAutoImport is set to true.
+ * provided and enableAutoImport is set to true. If enableSync is set too, changes of the catalog
+ * are imported periodically.
+ *
+ * <p>The import runs in the background, so that the application does not wait for the catalog
+ * server to start. Only the source types that are new or that changed are written to the database;
+ * see {@link SourceTypeImportService}. The durations of requesting and importing the catalog are
+ * recorded in the {@code SourceTypeLoader.fetch} and {@code SourceTypeLoader.import} timers.</p>
+ *
+ * <p>The catalog is requested with the ETag and Last-Modified date of the last imported catalog,
+ * so that an unchanged catalog is not transferred or imported again. These are shared by the
+ * nodes of the cluster, and a cluster-wide lock ensures that only one node imports the catalog at
+ * a time.</p>
  */
 @Component
 public class SourceTypeLoader implements CommandLineRunner {
 
+    /** Name of the Hazelcast lock held while importing the catalog. */
+    public static final String LOCK_NAME = "source-type-import";
+
+    /** Name of the Hazelcast map with the state of the last import. */
+    public static final String STATE_MAP_NAME = "source-type-import";
+
+    /** Scheduled imports are skipped if another node imported the catalog this recently. */
+    public static final long MIN_SYNC_INTERVAL = 5 * 60 * 1000L;
+
+    private static final String ETAG = "etag";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private static final String LAST_SYNC = "lastSync";
+
     private final Logger log = LoggerFactory.getLogger(SourceTypeLoader.class);
 
     @Autowired
-    private SourceTypeRepository sourceTypeRepository;
+    private SourceTypeImportService sourceTypeImportService;
 
     @Autowired
-    private SourceDataRepository sourceDataRepository;
+    private ManagementPortalProperties managementPortalProperties;
 
     @Autowired
-    private ManagementPortalProperties managementPortalProperties;
+    private MetricRegistry metricRegistry;
 
     @Autowired
-    private CatalogSourceTypeMapper catalogSourceTypeMapper;
+    private HazelcastInstance hazelcastInstance;
 
     @Autowired
-    private CatalogSourceDataMapper catalogSourceDataMapper;
+    @Qualifier("taskExecutor")
+    private TaskExecutor taskExecutor;
 
     @Override
     public void run(String... args) {
+        if (managementPortalProperties.getCatalogueServer().isEnableAutoImport()) {
+            taskExecutor.execute(this::importCatalog);
+        } else {
+            log.info("Auto source-type import is disabled");
+        }
+    }
 
-        String catalogServerUrl = managementPortalProperties.getCatalogueServer().getServerUrl();
+    /**
+     * Import changes of the catalog, if periodic imports are enabled. This is scheduled to get
+     * fired every hour by default, on every node of the cluster, but the catalog is only
+     * requested by one of them.
+     */
+    @Scheduled(cron = "${managementportal.catalogueServer.syncCron:0 15 * * * ?}")
+    public void syncCatalog() {
+        ManagementPortalProperties.CatalogueServer catalogueServer =
+                managementPortalProperties.getCatalogueServer();
+        if (catalogueServer.isEnableAutoImport() && catalogueServer.isEnableSync()) {
+            importCatalog(MIN_SYNC_INTERVAL);
+        }
+    }
 
-        if (managementPortalProperties.getCatalogueServer().isEnableAutoImport()) {
+    /**
+     * Request the source types of the catalog server and import them, if they changed since the
+     * last import. If another node is importing the catalog, this returns immediately.
+     */
+    public void importCatalog() {
+        importCatalog(0L);
+    }
 
-            try {
-                if (HttpUtil.isReachable(new URL(catalogServerUrl))) {
-                    RestTemplate restTemplate = new RestTemplate();
-                    ResponseEntity<SourceTypeResponse> catalogues = null;
-                    log.debug("Requesting source-types from catalogue server...");
-                    catalogues = restTemplate
-                            .getForEntity(
-                                    managementPortalProperties.getCatalogueServer().getServerUrl(),
-                                    SourceTypeResponse.class);
-                    SourceTypeResponse catalogueDto = catalogues.getBody();
-                    List<CatalogSourceType> catalogSourceTypes = new ArrayList<>();
-                    if (Objects.nonNull(catalogueDto.getPassiveSources())) {
-                        catalogSourceTypes.addAll(catalogueDto.getPassiveSources());
-                    }
-                    if (Objects.nonNull(catalogueDto.getActiveSources())) {
-                        catalogSourceTypes.addAll(catalogueDto.getActiveSources());
-                    }
-                    if (Objects.nonNull(catalogueDto.getMonitorSources())) {
-                        catalogSourceTypes.addAll(catalogueDto.getMonitorSources());
-                    }
-
-                    for (CatalogSourceType catalogSourceType : catalogSourceTypes) {
-                        SourceType sourceType = catalogSourceTypeMapper
-                                .catalogSourceTypeToSourceType(catalogSourceType);
-                        // check whether a source-type is already available with given config
-                        if (!sourceTypeRepository
-                                .findOneWithEagerRelationshipsByProducerAndModelAndVersion(
-                                        sourceType.getProducer(), sourceType.getModel(),
-                                        sourceType.getCatalogVersion()).isPresent()) {
-                            // create new source-type
-                            sourceTypeRepository.save(sourceType);
-
-                            // create source-data for the new source-type
-                            for (CatalogSourceData catalogSourceData : catalogSourceType
-                                    .getData()) {
-                                SourceData sourceData = catalogSourceDataMapper
-                                        .catalogSourceDataToSourceData(catalogSourceData);
-                                // sourceDataName should be unique
-                                // generated by combining sourceDataType and source-type configs
-                                sourceData.sourceDataName(
-                                        sourceType.getProducer() + "_" + sourceType.getModel() + "_"
-                                                + sourceType
-                                                .getCatalogVersion() + "_" + sourceData
-                                                .getSourceDataType());
-                                sourceData.sourceType(sourceType);
-                                sourceDataRepository.save(sourceData);
-                            }
-                        } else {
-                            // skip for existing source-types
-                            log.info("Source-type {} is already available ",
-                                    sourceType.getProducer() + "_" + sourceType.getModel() + "_"
-                                            + sourceType.getCatalogVersion());
-                        }
-                    }
-
-                    log.info("Completed source-type import from catalog-server");
-                } else {
-                    log.warn("Catalog Service {} is unreachable: {}", catalogServerUrl);
-                }
-            } catch (MalformedURLException e) {
-                log.warn("Invalid Url provided for Catalog server url {} : {}", catalogServerUrl,
-                        e.getMessage());
+    private void importCatalog(long minInterval) {
+        ILock lock = hazelcastInstance.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            log.debug("Source-types are being imported by another node");
+            return;
+        }
+        try {
+            IMap<String, String> state = hazelcastInstance.getMap(STATE_MAP_NAME);
+            String lastSync = state.get(LAST_SYNC);
+            if (lastSync != null
+                    && System.currentTimeMillis() - Long.parseLong(lastSync) < minInterval) {
+                log.debug("Source-types were imported recently by another node");
+                return;
             }
-        } else {
-            log.info("Auto source-type import is disabled");
+            fetchAndImport(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fetchAndImport(IMap<String, String> state) {
+        ResponseEntity<SourceTypeResponse> response = fetch(state);
+        if (response == null) {
+            return;
         }
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            log.debug("Source-types of catalogue server did not change");
+            state.put(LAST_SYNC, String.valueOf(System.currentTimeMillis()));
+            return;
+        }
+        SourceTypeResponse catalogueDto = response.getBody();
+        if (catalogueDto == null) {
+            log.warn("Catalog Service {} returned no source-types",
+                    managementPortalProperties.getCatalogueServer().getServerUrl());
+            return;
+        }
+        if (importSourceTypes(collectSourceTypes(catalogueDto))) {
+            // only skip the catalog next time once it has been imported
+            saveState(state, response.getHeaders());
+        }
+    }
+
+    /**
+     * Request the catalog, unless it did not change since the last import.
+     *
+     * @return the response, or {@code null} if the catalog server could not be reached
+     */
+    private ResponseEntity<SourceTypeResponse> fetch(IMap<String, String> state) {
+        ManagementPortalProperties.CatalogueServer catalogueServer =
+                managementPortalProperties.getCatalogueServer();
+        String catalogServerUrl = catalogueServer.getServerUrl();
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(catalogueServer.getConnectTimeout());
+        requestFactory.setReadTimeout(catalogueServer.getReadTimeout());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        log.debug("Requesting source-types from catalogue server...");
+        try (Timer.Context ignored = metricRegistry.timer(
+                MetricRegistry.name(SourceTypeLoader.class, "fetch")).time()) {
+            return restTemplate.exchange(catalogServerUrl, HttpMethod.GET,
+                    new HttpEntity<>(conditionalHeaders(state)), SourceTypeResponse.class);
+        } catch (RestClientException | IllegalArgumentException ex) {
+            log.warn("Catalog Service {} is unreachable: {}", catalogServerUrl, ex.getMessage());
+            return null;
+        }
+    }
+
+    /** Request headers with the ETag and Last-Modified date of the last imported catalog. */
+    private static HttpHeaders conditionalHeaders(IMap<String, String> state) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        String etag = state.get(ETAG);
+        if (etag != null) {
+            requestHeaders.setIfNoneMatch(etag);
+        }
+        String lastModified = state.get(LAST_MODIFIED);
+        if (lastModified != null) {
+            requestHeaders.setIfModifiedSince(Long.parseLong(lastModified));
+        }
+        return requestHeaders;
+    }
 
+    /** Passive, active and monitor source types of the catalog. */
+    private static List<CatalogSourceType> collectSourceTypes(SourceTypeResponse catalogueDto) {
+        List<CatalogSourceType> catalogSourceTypes = new ArrayList<>();
+        if (Objects.nonNull(catalogueDto.getPassiveSources())) {
+            catalogSourceTypes.addAll(catalogueDto.getPassiveSources());
+        }
+        if (Objects.nonNull(catalogueDto.getActiveSources())) {
+            catalogSourceTypes.addAll(catalogueDto.getActiveSources());
+        }
+        if (Objects.nonNull(catalogueDto.getMonitorSources())) {
+            catalogSourceTypes.addAll(catalogueDto.getMonitorSources());
+        }
+        return catalogSourceTypes;
+    }
+
+    /**
+     * Import the source types of the catalog.
+     *
+     * @return whether the source types were imported
+     */
+    private boolean importSourceTypes(List<CatalogSourceType> catalogSourceTypes) {
+        try (Timer.Context ignored = metricRegistry.timer(
+                MetricRegistry.name(SourceTypeLoader.class, "import")).time()) {
+            ImportResult result = sourceTypeImportService.importSourceTypes(catalogSourceTypes);
+            log.info("Completed source-type import from catalog-server: {} created, "
+                    + "{} updated, {} unchanged", result.getCreated(), result.getUpdated(),
+                    result.getUnchanged());
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Failed to import source-types from catalog-server", ex);
+            return false;
+        }
+    }
+
+    /** Store the ETag and Last-Modified date of the imported catalog. */
+    private static void saveState(IMap<String, String> state, HttpHeaders responseHeaders) {
+        updateState(state, ETAG, responseHeaders.getETag());
+        long responseLastModified = responseHeaders.getLastModified();
+        updateState(state, LAST_MODIFIED,
+                responseLastModified != -1 ? String.valueOf(responseLastModified) : null);
+        state.put(LAST_SYNC, String.valueOf(System.currentTimeMillis()));
+    }
+
+    private static void updateState(IMap<String, String> state, String key, String value) {
+        if (value != null) {
+            state.put(key, value);
+        } else {
+            state.delete(key);
+        }
     }
 }
@@ -0,0 +1,136 @@
+package org.radarcns.management.domain;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Counters of the subjects and sources of a project, by status.
+ */
+@Entity
+@Table(name = "project_statistics")
+public class ProjectStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "activated_subjects", nullable = false)
+    private long activatedSubjects;
+
+    @Column(name = "deactivated_subjects", nullable = false)
+    private long deactivatedSubjects;
+
+    @Column(name = "discontinued_subjects", nullable = false)
+    private long discontinuedSubjects;
+
+    @Column(name = "assigned_sources", nullable = false)
+    private long assignedSources;
+
+    @Column(name = "unassigned_sources", nullable = false)
+    private long unassignedSources;
+
+    @Column(name = "reconciled_date")
+    private ZonedDateTime reconciledDate;
+
+    public ProjectStatistics() {
+        // default constructor for JPA
+    }
+
+    public ProjectStatistics(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getActivatedSubjects() {
+        return activatedSubjects;
+    }
+
+    public void setActivatedSubjects(long activatedSubjects) {
+        this.activatedSubjects = activatedSubjects;
+    }
+
+    public long getDeactivatedSubjects() {
+        return deactivatedSubjects;
+    }
+
+    public void setDeactivatedSubjects(long deactivatedSubjects) {
+        this.deactivatedSubjects = deactivatedSubjects;
+    }
+
+    public long getDiscontinuedSubjects() {
+        return discontinuedSubjects;
+    }
+
+    public void setDiscontinuedSubjects(long discontinuedSubjects) {
+        this.discontinuedSubjects = discontinuedSubjects;
+    }
+
+    public long getAssignedSources() {
+        return assignedSources;
+    }
+
+    public void setAssignedSources(long assignedSources) {
+        this.assignedSources = assignedSources;
+    }
+
+    public long getUnassignedSources() {
+        return unassignedSources;
+    }
+
+    public void setUnassignedSources(long unassignedSources) {
+        this.unassignedSources = unassignedSources;
+    }
+
+    /** Date at which the counters were last set to the actual counts. */
+    public ZonedDateTime getReconciledDate() {
+        return reconciledDate;
+    }
+
+    public void setReconciledDate(ZonedDateTime reconciledDate) {
+        this.reconciledDate = reconciledDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProjectStatistics statistics = (ProjectStatistics) o;
+        return projectId != null && Objects.equals(projectId, statistics.projectId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(projectId);
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectStatistics{"
+                + "projectId=" + projectId
+                + ", activatedSubjects=" + activatedSubjects
+                + ", deactivatedSubjects=" + deactivatedSubjects
+                + ", discontinuedSubjects=" + discontinuedSubjects
+                + ", assignedSources=" + assignedSources
+                + ", unassignedSources=" + unassignedSources
+                + ", reconciledDate=" + reconciledDate
+                + '}';
+    }
+}
@@ -10,7 +10,6 @@ import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -22,6 +21,8 @@ import javax.persistence.OneToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Cascade;
@@ -65,7 +66,8 @@ public class Subject extends AbstractAuditingEntity implements Serializable {
     @Cascade(CascadeType.SAVE_UPDATE)
     private Set<Source> sources = new HashSet<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @BatchSize(size = 20)
     @MapKeyColumn(name = "attribute_key")
     @Column(name = "attribute_value")
     @CollectionTable(name = "subject_metadata", joinColumns = @JoinColumn(name = "id"))
@@ -205,8 +207,13 @@ public class Subject extends AbstractAuditingEntity implements Serializable {
                 + ", externalId='" + externalId + '\''
                 + ", removed=" + removed
                 + ", user=" + user
-                + ", sources=" + sources
-                + ", attributes=" + attributes
+                + ", sources=" + loadedOrPlaceholder(sources)
+                + ", attributes=" + loadedOrPlaceholder(attributes)
                 + "}";
     }
+
+    /** Lazy collections are not loaded just to print them. */
+    private static Object loadedOrPlaceholder(Object collection) {
+        return Hibernate.isInitialized(collection) ? collection : "<not loaded>";
+    }
 }
@@ -0,0 +1,151 @@
+package org.radarcns.management.domain;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import org.radarcns.management.domain.enumeration.TombstoneType;
+
+/**
+ * Marks that a subject or source was deleted, so that clients that synchronize changes can
+ * remove it as well.
+ */
+@Entity
+@Table(name = "entity_tombstone")
+public class Tombstone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false)
+    private TombstoneType entityType;
+
+    @NotNull
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "entity_name")
+    private String entityName;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @NotNull
+    @Column(name = "removed_date", nullable = false)
+    private ZonedDateTime removedDate = ZonedDateTime.now();
+
+    public Tombstone() {
+        // default constructor for JPA
+    }
+
+    /**
+     * Tombstone of a deleted entity.
+     *
+     * @param entityType type of the entity
+     * @param entityId ID of the entity
+     * @param entityName login of a subject or name of a source
+     * @param projectId ID of the project the entity belonged to, if any
+     */
+    public Tombstone(TombstoneType entityType, Long entityId, String entityName,
+            Long projectId) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.entityName = entityName;
+        this.projectId = projectId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public TombstoneType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(TombstoneType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(String entityName) {
+        this.entityName = entityName;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public ZonedDateTime getRemovedDate() {
+        return removedDate;
+    }
+
+    public void setRemovedDate(ZonedDateTime removedDate) {
+        this.removedDate = removedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Tombstone tombstone = (Tombstone) o;
+        if (tombstone.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, tombstone.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Tombstone{"
+                + "id=" + id
+                + ", entityType=" + entityType
+                + ", entityId=" + entityId
+                + ", entityName='" + entityName + '\''
+                + ", projectId=" + projectId
+                + ", removedDate=" + removedDate
+                + '}';
+    }
+}
@@ -0,0 +1,8 @@
+package org.radarcns.management.domain.enumeration;
+
+/**
+ * The type of entity that a tombstone marks as deleted.
+ */
+public enum TombstoneType {
+    SUBJECT, SOURCE
+}
@@ -2,13 +2,21 @@ package org.radarcns.management.domain.support;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.persistence.PostPersist;
 import javax.persistence.PostRemove;
 import javax.persistence.PostUpdate;
 import org.radarcns.management.domain.AbstractAuditingEntity;
+import org.radarcns.management.domain.SourceData;
+import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.security.SpringSecurityAuditorAware;
+import org.radarcns.management.service.ChangeStreamService;
+import org.radarcns.management.service.SourceTypeCatalogService;
+import org.radarcns.management.service.dto.EntityChangeDTO.Action;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
@@ -19,8 +27,10 @@ import org.springframework.stereotype.Component;
 /**
  * EntityListener that publishes audit events to the ApplicationEventPublisher so we also have
  * separate audit logs for these events instead of only having the latest modified at and modified
- * by information. We can not autowire Spring beans into JPA classes, so we need to make use of an
- * AutowireHelper
+ * by information. Changes of subjects and sources are also streamed to subscribers by the
+ * {@link ChangeStreamService}, and changes of source types and source data renew the snapshot of
+ * the {@link SourceTypeCatalogService}. We can not autowire Spring beans into JPA classes, so we
+ * need to make use of an AutowireHelper
  * (source:
  * https://guylabs.ch/2014/02/22/autowiring-pring-beans-in-hibernate-jpa-entity-listeners/).
  */
@@ -34,11 +44,39 @@ public class EventPublisherEntityListener {
     @Autowired
     private AuditEventRepository auditEventRepository;
 
+    private static final ThreadLocal<List<AuditEvent>> DEFERRED_EVENTS = new ThreadLocal<>();
+
     private final DateTimeProvider dateTimeProvider = CurrentDateTimeProvider.INSTANCE;
 
     @Autowired
     private SpringSecurityAuditorAware springSecurityAuditorAware;
 
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private SourceTypeCatalogService sourceTypeCatalogService;
+
+    /**
+     * Collect the events of the current thread instead of adding them to the audit event
+     * repository one by one, until {@link #takeDeferredEvents()} is called. This allows bulk
+     * operations to add all their events at once.
+     */
+    public static void deferEvents() {
+        DEFERRED_EVENTS.set(new ArrayList<>());
+    }
+
+    /**
+     * Stop collecting the events of the current thread.
+     *
+     * @return the events collected since {@link #deferEvents()} was called
+     */
+    public static List<AuditEvent> takeDeferredEvents() {
+        List<AuditEvent> events = DEFERRED_EVENTS.get();
+        DEFERRED_EVENTS.remove();
+        return events != null ? events : Collections.emptyList();
+    }
+
     /**
      * Event listener to publish a persist event to the audit event repository.
      *
@@ -46,10 +84,12 @@ public class EventPublisherEntityListener {
      */
     @PostPersist
     public void publishPersistEvent(AbstractAuditingEntity entity) {
-        AutowireHelper.autowire(this, auditEventRepository);
+        AutowireHelper.autowire(this, auditEventRepository, changeStreamService,
+                sourceTypeCatalogService);
         AuditEvent event = new AuditEvent(entity.getCreatedBy(), ENTITY_CREATED,
                 createData(entity));
-        auditEventRepository.add(event);
+        publish(event);
+        publishChange(entity, Action.CREATED);
     }
 
     /**
@@ -59,10 +99,12 @@ public class EventPublisherEntityListener {
      */
     @PostUpdate
     public void publishUpdateEvent(AbstractAuditingEntity entity) {
-        AutowireHelper.autowire(this, auditEventRepository);
+        AutowireHelper.autowire(this, auditEventRepository, changeStreamService,
+                sourceTypeCatalogService);
         AuditEvent event = new AuditEvent(entity.getLastModifiedBy(), ENTITY_UPDATED,
                 createData(entity));
-        auditEventRepository.add(event);
+        publish(event);
+        publishChange(entity, Action.UPDATED);
     }
 
     /**
@@ -72,11 +114,30 @@ public class EventPublisherEntityListener {
      */
     @PostRemove
     public void publishRemoveEvent(AbstractAuditingEntity entity) {
-        AutowireHelper.autowire(this, auditEventRepository);
+        AutowireHelper.autowire(this, auditEventRepository, changeStreamService,
+                sourceTypeCatalogService);
         AutowireHelper.autowire(this.springSecurityAuditorAware);
         AuditEvent event = new AuditEvent(springSecurityAuditorAware.getCurrentAuditor(),
                 ENTITY_REMOVED, createData(entity));
-        auditEventRepository.add(event);
+        publish(event);
+        publishChange(entity, Action.REMOVED);
+    }
+
+    private void publishChange(AbstractAuditingEntity entity, Action action) {
+        if (entity instanceof SourceType || entity instanceof SourceData) {
+            sourceTypeCatalogService.catalogChanged();
+        } else {
+            changeStreamService.publish(entity, action);
+        }
+    }
+
+    private void publish(AuditEvent event) {
+        List<AuditEvent> deferred = DEFERRED_EVENTS.get();
+        if (deferred != null) {
+            deferred.add(event);
+        } else {
+            auditEventRepository.add(event);
+        }
     }
 
     /**
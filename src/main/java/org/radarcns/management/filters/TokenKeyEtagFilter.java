@@ -0,0 +1,28 @@
+package org.radarcns.management.filters;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * Filter for the public key endpoint of the authorization server. The response gets a strong
+ * ETag of its content, and requests with a matching {@code If-None-Match} header get a 304
+ * response without a body. Clients are told to revalidate the key instead of not storing it at
+ * all, which is the default for authenticated endpoints.
+ */
+public class TokenKeyEtagFilter extends ShallowEtagHeaderFilter {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        super.doFilterInternal(request, response, filterChain);
+    }
+}
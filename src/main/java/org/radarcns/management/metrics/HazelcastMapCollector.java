@@ -0,0 +1,56 @@
+package org.radarcns.management.metrics;
+
+import com.hazelcast.core.DistributedObject;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.monitor.LocalMapStats;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prometheus collector of the statistics of the Hazelcast maps owned by this member. These maps
+ * back both the Spring caches and the Hibernate second level cache. The hit ratio is the number
+ * of hits relative to the number of get operations.
+ */
+public class HazelcastMapCollector extends Collector {
+
+    private static final List<String> LABEL_NAMES = Collections.singletonList("map");
+
+    private final HazelcastInstance hazelcastInstance;
+
+    public HazelcastMapCollector(HazelcastInstance hazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        GaugeMetricFamily entries = new GaugeMetricFamily("hazelcast_map_entries",
+                "Number of entries owned by this member.", LABEL_NAMES);
+        CounterMetricFamily gets = new CounterMetricFamily("hazelcast_map_gets_total",
+                "Number of get operations on this member.", LABEL_NAMES);
+        CounterMetricFamily hits = new CounterMetricFamily("hazelcast_map_hits_total",
+                "Number of hits of entries owned by this member.", LABEL_NAMES);
+        GaugeMetricFamily hitRatio = new GaugeMetricFamily("hazelcast_map_hit_ratio",
+                "Ratio of hits to get operations on this member.", LABEL_NAMES);
+
+        for (DistributedObject object : hazelcastInstance.getDistributedObjects()) {
+            if (!(object instanceof IMap)) {
+                continue;
+            }
+            List<String> labels = Collections.singletonList(object.getName());
+            LocalMapStats stats = ((IMap<?, ?>) object).getLocalMapStats();
+            entries.addMetric(labels, stats.getOwnedEntryCount());
+            gets.addMetric(labels, stats.getGetOperationCount());
+            hits.addMetric(labels, stats.getHits());
+            if (stats.getGetOperationCount() > 0) {
+                hitRatio.addMetric(labels,
+                        (double) stats.getHits() / stats.getGetOperationCount());
+            }
+        }
+        return Arrays.asList(entries, gets, hits, hitRatio);
+    }
+}
@@ -0,0 +1,44 @@
+package org.radarcns.management.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.radarcns.management.metrics.RequestStatistics.Phase;
+
+/**
+ * Aspect that records the time spent in entity to DTO mappers as the mapping phase of the
+ * current request. Mapper calls outside of a request are not timed.
+ */
+@Aspect
+public class MappingPhaseAspect {
+
+    /**
+     * Pointcut that matches all MapStruct mappers and their decorators.
+     */
+    @Pointcut("within(org.radarcns.management.service.mapper..*)")
+    public void mapperPointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Advice that records the time spent in the outermost mapper call.
+     *
+     * @param joinPoint join point for advice
+     * @return result of the mapper call
+     * @throws Throwable any exception thrown by the mapper
+     */
+    @Around("mapperPointcut()")
+    public Object timeMapping(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics == null) {
+            return joinPoint.proceed();
+        }
+        long start = statistics.enterPhase(Phase.MAPPING);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            statistics.exitPhase(Phase.MAPPING, start);
+        }
+    }
+}
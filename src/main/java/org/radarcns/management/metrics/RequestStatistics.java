@@ -0,0 +1,173 @@
+package org.radarcns.management.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the work done while handling a single HTTP request. The statistics of the request
+ * currently handled by a thread are available through {@link #current()}.
+ */
+public final class RequestStatistics {
+
+    /** Request attribute under which the statistics of a request are stored. */
+    public static final String REQUEST_ATTRIBUTE = RequestStatistics.class.getName();
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    /** Phases of handling a request. Time spent in the database may overlap other phases. */
+    public enum Phase {
+        AUTH("auth"),
+        DB("db"),
+        MAPPING("mapping"),
+        SERIALIZATION("serialization");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /** Name of the phase in metrics and Server-Timing headers. */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private final long startTime = System.nanoTime();
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private final int[] phaseCounts = new int[Phase.values().length];
+
+    private final int[] phaseDepths = new int[Phase.values().length];
+
+    private int statementCount;
+
+    private RequestStatistics() {
+        // only created by start()
+    }
+
+    /**
+     * Start collecting statistics for the request handled by the current thread.
+     *
+     * @return the statistics of the new request
+     */
+    public static RequestStatistics start() {
+        RequestStatistics statistics = new RequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /** Stop collecting statistics in the current thread. */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Statistics of the request handled by the current thread.
+     *
+     * @return statistics or {@code null} if the current thread is not handling a request.
+     */
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Record time spent in a phase of the request handled by the current thread, if any.
+     *
+     * @param phase phase of the request
+     * @param startNanos {@link System#nanoTime()} at the start of the phase
+     */
+    public static void recordCurrent(Phase phase, long startNanos) {
+        RequestStatistics statistics = current();
+        if (statistics != null) {
+            statistics.record(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record time spent in a phase.
+     *
+     * @param phase phase of the request
+     * @param nanos time spent, in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        phaseCounts[phase.ordinal()]++;
+    }
+
+    /**
+     * Enter a phase that may be nested in itself, for example mappers calling other mappers.
+     * Every call must be followed by {@link #exitPhase(Phase, long)}.
+     *
+     * @param phase phase of the request
+     * @return start time to pass to {@link #exitPhase(Phase, long)}
+     */
+    public long enterPhase(Phase phase) {
+        phaseDepths[phase.ordinal()]++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Exit a phase entered with {@link #enterPhase(Phase)}. Only the time of the outermost call
+     * is recorded.
+     *
+     * @param phase phase of the request
+     * @param startNanos start time returned by {@link #enterPhase(Phase)}
+     */
+    public void exitPhase(Phase phase, long startNanos) {
+        if (--phaseDepths[phase.ordinal()] == 0) {
+            record(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record the execution of a JDBC statement or batch.
+     *
+     * @param nanos time spent executing the statement, in nanoseconds
+     */
+    public void recordStatement(long nanos) {
+        statementCount++;
+        record(Phase.DB, nanos);
+    }
+
+    /** Number of JDBC statements and batches executed during the request. */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /** Whether any time was recorded for given phase. */
+    public boolean hasPhase(Phase phase) {
+        return phaseCounts[phase.ordinal()] > 0;
+    }
+
+    /**
+     * Time spent in a phase of the request.
+     *
+     * @param phase phase of the request
+     * @param unit unit of the returned time
+     * @return time spent, truncated to the given unit
+     */
+    public long getPhaseTime(Phase phase, TimeUnit unit) {
+        return unit.convert(phaseNanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time spent in the database during the request.
+     *
+     * @param unit unit of the returned time
+     * @return database time, truncated to the given unit
+     */
+    public long getDatabaseTime(TimeUnit unit) {
+        return getPhaseTime(Phase.DB, unit);
+    }
+
+    /**
+     * Time since the statistics collection started.
+     *
+     * @param unit unit of the returned time
+     * @return elapsed time, truncated to the given unit
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+}
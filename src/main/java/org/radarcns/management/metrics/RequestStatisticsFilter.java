@@ -0,0 +1,318 @@
+package org.radarcns.management.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.auth.token.RadarToken;
+import org.radarcns.management.metrics.RequestStatistics.Phase;
+import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Filter that collects {@link RequestStatistics} for each request. The number of JDBC statements
+ * and the time spent in each request phase are recorded in the metric registry. Requests that
+ * execute more statements than the warning threshold, which usually indicates an N+1 query
+ * pattern, are logged and counted.
+ *
+ * <p>By default, only the database time and statement count are added to the response as a
+ * {@code Server-Timing} header. A breakdown of all phases is added if server timing is enabled
+ * in the configuration, or if a {@code SYS_ADMIN} sends the {@value #SERVER_TIMING_REQUEST_HEADER}
+ * request header. Since serialization is only done once the response body has been written, that
+ * breakdown requires the response body to be buffered. Asynchronous and streamed responses, like
+ * server-sent events and newline-delimited JSON, are never buffered and only get the database
+ * timing.</p>
+ */
+public class RequestStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    public static final String SERVER_TIMING_REQUEST_HEADER = "X-Server-Timing";
+
+    /** Media types of responses that are written while they are produced. */
+    private static final Set<String> STREAMING_MEDIA_TYPES = new HashSet<>(Arrays.asList(
+            MediaType.TEXT_EVENT_STREAM_VALUE, "application/x-ndjson", "text/csv"));
+
+    private static final Logger log = LoggerFactory.getLogger(RequestStatisticsFilter.class);
+
+    private final Histogram statementHistogram;
+
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+
+    private final Meter excessiveStatementMeter;
+
+    private final int statementWarnThreshold;
+
+    private final boolean serverTimingEnabled;
+
+    /**
+     * Create a new filter.
+     *
+     * @param metricRegistry registry to record the request statistics in
+     * @param statementWarnThreshold number of statements in a single request above which the
+     *                               request is logged
+     * @param serverTimingEnabled whether to add the timing of all phases to every response
+     */
+    public RequestStatisticsFilter(MetricRegistry metricRegistry, int statementWarnThreshold,
+            boolean serverTimingEnabled) {
+        this.statementHistogram = metricRegistry.histogram("http.requests.db.statements");
+        this.excessiveStatementMeter = metricRegistry.meter("http.requests.db.excessive");
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, metricRegistry.timer(
+                    MetricRegistry.name("http.requests.phase", phase.getMetricName())));
+        }
+        this.statementWarnThreshold = statementWarnThreshold;
+        this.serverTimingEnabled = serverTimingEnabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        RequestStatistics statistics = RequestStatistics.start();
+        request.setAttribute(RequestStatistics.REQUEST_ATTRIBUTE, statistics);
+        boolean detailed = serverTimingEnabled
+                || request.getHeader(SERVER_TIMING_REQUEST_HEADER) != null;
+        ServerTimingResponseWrapper responseWrapper =
+                new ServerTimingResponseWrapper(request, response, statistics, detailed);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+        } finally {
+            RequestStatistics.stop();
+            try {
+                responseWrapper.finish();
+            } finally {
+                record(request, statistics);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestStatistics statistics) {
+        int statementCount = statistics.getStatementCount();
+        statementHistogram.update(statementCount);
+        for (Map.Entry<Phase, Timer> entry : phaseTimers.entrySet()) {
+            if (statistics.hasPhase(entry.getKey())) {
+                entry.getValue().update(statistics.getPhaseTime(entry.getKey(),
+                        TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (statementCount > statementWarnThreshold) {
+            excessiveStatementMeter.mark();
+            log.warn("{} {} executed {} database statements in {} ms", request.getMethod(),
+                    request.getRequestURI(), statementCount,
+                    statistics.getDatabaseTime(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Whether the timing of all phases may be added to the response. Only then is it useful to
+     * buffer the response.
+     */
+    private boolean isDetailAllowed(HttpServletRequest request) {
+        return serverTimingEnabled || isSysAdmin(request);
+    }
+
+    private static boolean isSysAdmin(HttpServletRequest request) {
+        Object token = request.getAttribute(JwtAuthenticationFilter.TOKEN_ATTRIBUTE);
+        return token instanceof RadarToken && ((RadarToken) token).getAuthorities()
+                .contains(AuthoritiesConstants.SYS_ADMIN);
+    }
+
+    /**
+     * Format the database statistics as a Server-Timing header value.
+     *
+     * @param statistics request statistics
+     * @return header value
+     */
+    private static String databaseServerTiming(RequestStatistics statistics) {
+        return String.format(Locale.US, "db;dur=%s;desc=\"%d statements\"",
+                milliseconds(statistics.getDatabaseTime(TimeUnit.MICROSECONDS)),
+                statistics.getStatementCount());
+    }
+
+    /**
+     * Format the timing of all phases as a Server-Timing header value.
+     *
+     * @param statistics request statistics
+     * @return header value
+     */
+    private static String detailedServerTiming(RequestStatistics statistics) {
+        StringBuilder builder = new StringBuilder(160);
+        for (Phase phase : Phase.values()) {
+            if (phase == Phase.DB) {
+                builder.append(databaseServerTiming(statistics)).append(", ");
+            } else if (statistics.hasPhase(phase)) {
+                builder.append(phase.getMetricName()).append(";dur=")
+                        .append(milliseconds(statistics.getPhaseTime(phase,
+                                TimeUnit.MICROSECONDS)))
+                        .append(", ");
+            }
+        }
+        return builder.append("total;dur=")
+                .append(milliseconds(statistics.getElapsedTime(TimeUnit.MICROSECONDS)))
+                .toString();
+    }
+
+    private static String milliseconds(long micros) {
+        return String.format(Locale.US, "%.3f", micros / 1000.0);
+    }
+
+    /**
+     * Whether the response is streamed to the client while it is produced, so it must not be
+     * buffered.
+     */
+    private static boolean isStreaming(HttpServletRequest request, HttpServletResponse response) {
+        if (request.isAsyncStarted()) {
+            return true;
+        }
+        String contentType = response.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.US);
+        return STREAMING_MEDIA_TYPES.contains(mediaType);
+    }
+
+    /**
+     * Records the serialization phase, from the moment the response body is first requested. At
+     * that moment, the request has been authenticated, so it is decided whether the timing of all
+     * phases is added. If so, the response body is buffered so that the header can be added after
+     * serialization, unless the response is asynchronous or streamed. Otherwise, only the database
+     * Server-Timing header is added, just before the response is committed, since headers cannot
+     * be added afterwards.
+     */
+    private class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+
+        private final RequestStatistics statistics;
+
+        private final boolean detailRequested;
+
+        private boolean addHeader = true;
+
+        private ContentCachingResponseWrapper bufferedResponse;
+
+        private long serializationStart;
+
+        private boolean serializing;
+
+        private ServerTimingResponseWrapper(HttpServletRequest request,
+                HttpServletResponse response, RequestStatistics statistics,
+                boolean detailRequested) {
+            super(response);
+            this.request = request;
+            this.statistics = statistics;
+            this.detailRequested = detailRequested;
+        }
+
+        private void addServerTiming() {
+            if (addHeader && !isCommitted()) {
+                addHeader = false;
+                addHeader(SERVER_TIMING_HEADER, databaseServerTiming(statistics));
+            }
+        }
+
+        private void startSerialization() {
+            if (!serializing) {
+                serializing = true;
+                serializationStart = System.nanoTime();
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                if (detailRequested && isDetailAllowed(request)
+                        && !isStreaming(request, response)) {
+                    bufferedResponse = new ContentCachingResponseWrapper(response);
+                    setResponse(bufferedResponse);
+                    return;
+                }
+            }
+            if (bufferedResponse == null) {
+                addServerTiming();
+            }
+        }
+
+        /** Record the serialization and add the Server-Timing header, if not done yet. */
+        private void finish() throws IOException {
+            if (serializing) {
+                statistics.record(Phase.SERIALIZATION, System.nanoTime() - serializationStart);
+            }
+            if (bufferedResponse != null) {
+                HttpServletResponse response = (HttpServletResponse) bufferedResponse
+                        .getResponse();
+                if (!response.isCommitted()) {
+                    response.addHeader(SERVER_TIMING_HEADER, detailedServerTiming(statistics));
+                }
+                bufferedResponse.copyBodyToResponse();
+            } else if (addHeader && !serializing && detailRequested && isDetailAllowed(request)
+                    && !isCommitted()) {
+                // no response body, so the response was not committed before completion
+                addHeader = false;
+                addHeader(SERVER_TIMING_HEADER, detailedServerTiming(statistics));
+            } else {
+                addServerTiming();
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            startSerialization();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            startSerialization();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (bufferedResponse == null) {
+                addServerTiming();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (bufferedResponse == null) {
+                addServerTiming();
+            }
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (bufferedResponse == null) {
+                addServerTiming();
+            }
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            if (bufferedResponse == null) {
+                addServerTiming();
+            }
+            super.sendRedirect(location);
+        }
+    }
+}
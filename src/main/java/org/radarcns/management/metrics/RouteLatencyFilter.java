@@ -0,0 +1,100 @@
+package org.radarcns.management.metrics;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Filter that records the latency of each request in a Prometheus histogram, labelled by HTTP
+ * method, route and response status.
+ *
+ * <p>The route is the request mapping pattern that handled the request, for example
+ * {@code /api/subjects/{login}}, rather than the request path, so that path variables do not
+ * create new label values. Requests that are not handled by a request mapping, such as rejected
+ * or static resource requests, are labelled {@value #UNMATCHED_ROUTE}. As a safeguard, routes
+ * beyond the maximum number of distinct routes are labelled {@value #OTHER_ROUTE}.</p>
+ */
+public class RouteLatencyFilter extends OncePerRequestFilter {
+
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    public static final String OTHER_ROUTE = "OTHER";
+
+    private static final String OTHER_METHOD = "OTHER";
+
+    private static final Set<String> METHODS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")));
+
+    private final Histogram latency;
+
+    private final Set<String> routes = ConcurrentHashMap.newKeySet();
+
+    private final int maxRoutes;
+
+    /**
+     * Create a new filter.
+     *
+     * @param registry registry to register the latency histogram in
+     * @param maxRoutes maximum number of distinct route label values
+     */
+    public RouteLatencyFilter(CollectorRegistry registry, int maxRoutes) {
+        this.latency = Histogram.build()
+                .name("http_server_requests_seconds")
+                .help("Latency of HTTP requests, by method, route and response status.")
+                .labelNames("method", "route", "status")
+                .buckets(0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10)
+                .register(registry);
+        this.maxRoutes = maxRoutes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            int status = response.getStatus();
+            if (failed && status < HttpServletResponse.SC_BAD_REQUEST) {
+                // the exception will be turned into an error response by the container
+                status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            }
+            latency.labels(method(request), route(request), Integer.toString(status))
+                    .observe((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static String method(HttpServletRequest request) {
+        String method = request.getMethod();
+        return METHODS.contains(method) ? method : OTHER_METHOD;
+    }
+
+    private String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return UNMATCHED_ROUTE;
+        }
+        String route = pattern.toString();
+        if (routes.contains(route)) {
+            return route;
+        }
+        if (routes.size() >= maxRoutes) {
+            return OTHER_ROUTE;
+        }
+        routes.add(route);
+        return route;
+    }
+}
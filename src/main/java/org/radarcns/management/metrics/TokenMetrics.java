@@ -0,0 +1,69 @@
+package org.radarcns.management.metrics;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Prometheus counters of OAuth tokens issued and validated. The counters are always updated, but
+ * they are only exposed if they are registered in a collector registry with
+ * {@link #register(CollectorRegistry)}.
+ */
+public final class TokenMetrics {
+
+    /** Label value of grant types that are not known OAuth 2.0 grant types. */
+    public static final String OTHER_GRANT_TYPE = "other";
+
+    private static final Set<String> GRANT_TYPES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("authorization_code", "client_credentials", "implicit", "password",
+                    "refresh_token")));
+
+    private static final Counter ISSUED = Counter.build()
+            .name("oauth_tokens_issued_total")
+            .help("Number of access tokens issued, by grant type.")
+            .labelNames("grant_type")
+            .create();
+
+    private static final Counter VALIDATED = Counter.build()
+            .name("oauth_token_validations_total")
+            .help("Number of access token validations, by result.")
+            .labelNames("result")
+            .create();
+
+    private TokenMetrics() {
+        // utility class
+    }
+
+    /**
+     * Count an issued token. Unknown grant types are counted as {@value #OTHER_GRANT_TYPE}, to
+     * keep the number of label values bounded.
+     *
+     * @param grantType grant type of the token
+     */
+    public static void tokenIssued(String grantType) {
+        ISSUED.labels(grantType != null && GRANT_TYPES.contains(grantType)
+                ? grantType : OTHER_GRANT_TYPE).inc();
+    }
+
+    /**
+     * Count a token validation.
+     *
+     * @param valid whether the token was valid
+     */
+    public static void tokenValidated(boolean valid) {
+        VALIDATED.labels(valid ? "valid" : "invalid").inc();
+    }
+
+    /**
+     * Expose the token counters in given registry.
+     *
+     * @param registry Prometheus collector registry
+     */
+    public static void register(CollectorRegistry registry) {
+        ISSUED.register(registry);
+        VALIDATED.register(registry);
+    }
+}
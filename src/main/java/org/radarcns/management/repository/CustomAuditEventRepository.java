@@ -5,12 +5,16 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.management.config.audit.AuditEventConverter;
 import org.radarcns.management.domain.PersistentAuditEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +27,10 @@ public class CustomAuditEventRepository implements AuditEventRepository {
 
     private static final String AUTHORIZATION_FAILURE = "AUTHORIZATION_FAILURE";
 
+    /** Maximum number of events returned by a single actuator lookup, most recent first. */
+    private static final Pageable MAX_EVENTS = new PageRequest(0, 1000,
+            Direction.DESC, "auditEventDate");
+
     @Autowired
     private PersistenceAuditEventRepository persistenceAuditEventRepository;
 
@@ -33,7 +41,7 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     public List<AuditEvent> find(Date after) {
         Iterable<PersistentAuditEvent> persistentAuditEvents =
                 persistenceAuditEventRepository
-                        .findByAuditEventDateAfter(LocalDateTime.from(after.toInstant()));
+                        .findByAuditEventDateAfter(toLocalDateTime(after), MAX_EVENTS);
         return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
     }
 
@@ -41,13 +49,14 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     public List<AuditEvent> find(String principal, Date after) {
         Iterable<PersistentAuditEvent> persistentAuditEvents;
         if (principal == null && after == null) {
-            persistentAuditEvents = persistenceAuditEventRepository.findAll();
+            persistentAuditEvents = persistenceAuditEventRepository.findAll(MAX_EVENTS);
         } else if (after == null) {
-            persistentAuditEvents = persistenceAuditEventRepository.findByPrincipal(principal);
+            persistentAuditEvents = persistenceAuditEventRepository.findByPrincipal(principal,
+                    MAX_EVENTS);
         } else {
             persistentAuditEvents =
                     persistenceAuditEventRepository.findByPrincipalAndAuditEventDateAfter(principal,
-                            LocalDateTime.from(after.toInstant()));
+                            toLocalDateTime(after), MAX_EVENTS);
         }
         return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
     }
@@ -56,25 +65,51 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     public List<AuditEvent> find(String principal, Date after, String type) {
         Iterable<PersistentAuditEvent> persistentAuditEvents =
                 persistenceAuditEventRepository
-                        .findByPrincipalAndAuditEventDateAfterAndAuditEventType(principal,
-                                LocalDateTime.from(after.toInstant()), type);
+                        .findByPrincipalAndAuditEventTypeAndAuditEventDateAfter(principal, type,
+                                toLocalDateTime(after), MAX_EVENTS);
         return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void add(AuditEvent event) {
-        if (!AUTHORIZATION_FAILURE.equals(event.getType())
-                && !Constants.ANONYMOUS_USER.equals(event.getPrincipal())) {
-
-            PersistentAuditEvent persistentAuditEvent = new PersistentAuditEvent();
-            persistentAuditEvent.setPrincipal(event.getPrincipal());
-            persistentAuditEvent.setAuditEventType(event.getType());
-            Instant instant = Instant.ofEpochMilli(event.getTimestamp().getTime());
-            persistentAuditEvent
-                    .setAuditEventDate(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
-            persistentAuditEvent.setData(auditEventConverter.convertDataToStrings(event.getData()));
-            persistenceAuditEventRepository.save(persistentAuditEvent);
+        if (isPersisted(event)) {
+            persistenceAuditEventRepository.save(toPersistentAuditEvent(event));
         }
     }
+
+    /**
+     * Add multiple events in a single transaction, so that they can be inserted in batches.
+     * Unlike {@link #add(AuditEvent)}, this joins the current transaction, so the events are
+     * only saved if the changes that they record are committed.
+     *
+     * @param events the events to add
+     */
+    @Transactional
+    public void addAll(List<AuditEvent> events) {
+        persistenceAuditEventRepository.save(events.stream()
+                .filter(CustomAuditEventRepository::isPersisted)
+                .map(this::toPersistentAuditEvent)
+                .collect(Collectors.toList()));
+    }
+
+    private static boolean isPersisted(AuditEvent event) {
+        return !AUTHORIZATION_FAILURE.equals(event.getType())
+                && !Constants.ANONYMOUS_USER.equals(event.getPrincipal());
+    }
+
+    private PersistentAuditEvent toPersistentAuditEvent(AuditEvent event) {
+        PersistentAuditEvent persistentAuditEvent = new PersistentAuditEvent();
+        persistentAuditEvent.setPrincipal(event.getPrincipal());
+        persistentAuditEvent.setAuditEventType(event.getType());
+        Instant instant = Instant.ofEpochMilli(event.getTimestamp().getTime());
+        persistentAuditEvent
+                .setAuditEventDate(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+        persistentAuditEvent.setData(auditEventConverter.convertDataToStrings(event.getData()));
+        return persistentAuditEvent;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
 }
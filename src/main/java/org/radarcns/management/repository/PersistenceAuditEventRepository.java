@@ -9,19 +9,33 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 /**
  * Spring Data JPA repository for the PersistentAuditEvent entity.
+ *
+ * <p>Every query is bounded by a {@link Pageable}. The filter combinations below each match a
+ * composite index on {@code jhi_persistent_audit_event}, so keep the column order of any new
+ * query aligned with the indexes in the Liquibase changelogs.</p>
  */
 public interface PersistenceAuditEventRepository extends JpaRepository<PersistentAuditEvent, Long> {
 
-    List<PersistentAuditEvent> findByPrincipal(String principal);
+    List<PersistentAuditEvent> findByPrincipal(String principal, Pageable pageable);
 
-    List<PersistentAuditEvent> findByAuditEventDateAfter(LocalDateTime after);
+    List<PersistentAuditEvent> findByAuditEventDateAfter(LocalDateTime after, Pageable pageable);
 
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfter(String principal,
-            LocalDateTime after);
+            LocalDateTime after, Pageable pageable);
 
-    List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(
-            String principle, LocalDateTime after, String type);
+    List<PersistentAuditEvent> findByPrincipalAndAuditEventTypeAndAuditEventDateAfter(
+            String principal, String type, LocalDateTime after, Pageable pageable);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(LocalDateTime fromDate,
             LocalDateTime toDate, Pageable pageable);
+
+    Page<PersistentAuditEvent> findAllByPrincipalAndAuditEventDateBetween(String principal,
+            LocalDateTime fromDate, LocalDateTime toDate, Pageable pageable);
+
+    Page<PersistentAuditEvent> findAllByAuditEventTypeAndAuditEventDateBetween(String type,
+            LocalDateTime fromDate, LocalDateTime toDate, Pageable pageable);
+
+    Page<PersistentAuditEvent> findAllByPrincipalAndAuditEventTypeAndAuditEventDateBetween(
+            String principal, String type, LocalDateTime fromDate, LocalDateTime toDate,
+            Pageable pageable);
 }
@@ -33,6 +33,10 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("select project.sourceTypes from Project project WHERE project.id = :id")
     List<SourceType> findSourceTypesByProjectId(@Param("id") Long id);
 
+    @Query("select sourceType.id from Project project join project.sourceTypes sourceType "
+            + "where project.id = :id")
+    List<Long> findSourceTypeIdsByProjectId(@Param("id") Long id);
+
     @Query("select distinct sourceType from Project project "
             + "left join project.sourceTypes sourceType "
             + "where project.id =:id "
@@ -0,0 +1,33 @@
+package org.radarcns.management.repository;
+
+import org.radarcns.management.domain.ProjectStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Spring Data JPA repository for the ProjectStatistics entity.
+ *
+ * <p>Counters are incremented in the database, so that concurrent transactions do not overwrite
+ * each other's changes.</p>
+ */
+public interface ProjectStatisticsRepository extends JpaRepository<ProjectStatistics, Long> {
+
+    @Modifying
+    @Query("update ProjectStatistics statistics "
+            + "set statistics.activatedSubjects = statistics.activatedSubjects + :activated, "
+            + "statistics.deactivatedSubjects = statistics.deactivatedSubjects + :deactivated, "
+            + "statistics.discontinuedSubjects = statistics.discontinuedSubjects + :discontinued "
+            + "where statistics.projectId = :projectId")
+    int addSubjects(@Param("projectId") Long projectId, @Param("activated") long activated,
+            @Param("deactivated") long deactivated, @Param("discontinued") long discontinued);
+
+    @Modifying
+    @Query("update ProjectStatistics statistics "
+            + "set statistics.assignedSources = statistics.assignedSources + :assigned, "
+            + "statistics.unassignedSources = statistics.unassignedSources + :unassigned "
+            + "where statistics.projectId = :projectId")
+    int addSources(@Param("projectId") Long projectId, @Param("assigned") long assigned,
+            @Param("unassigned") long unassigned);
+}
@@ -1,12 +1,15 @@
 package org.radarcns.management.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.radarcns.management.domain.Source;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 /**
@@ -15,14 +18,36 @@ import org.springframework.data.repository.query.Param;
 @SuppressWarnings("unused")
 public interface SourceRepository extends JpaRepository<Source, Long> {
 
-    List<Source> findAllSourcesByAssigned(@Param("assigned") Boolean assigned);
+    /**
+     * Page of sources, with their source types and projects fetched in the same query.
+     */
+    @EntityGraph(attributePaths = {"sourceType", "project"})
+    @Query(value = "select source from Source source",
+            countQuery = "select count(source) from Source source")
+    Page<Source> findAllWithEagerRelationships(Pageable pageable);
 
+    @EntityGraph(attributePaths = {"sourceType", "project"})
     Page<Source> findAllSourcesByProjectId(Pageable pageable, @Param("projectId") Long projectId);
 
-    List<Source> findAllSourcesByProjectIdAndAssigned(@Param("projectId") Long projectId,
-            @Param("assigned") Boolean assigned);
+    @EntityGraph(attributePaths = {"sourceType", "project"})
+    Page<Source> findAllSourcesByProjectIdAndAssigned(Pageable pageable,
+            @Param("projectId") Long projectId, @Param("assigned") Boolean assigned);
 
     Optional<Source> findOneBySourceId(UUID sourceId);
 
     Optional<Source> findOneBySourceName(String sourceName);
+
+    @Query("select source.sourceName from Source source where source.sourceName in :names")
+    List<String> findSourceNamesIn(@Param("names") Collection<String> names);
+
+    /**
+     * Source that was dynamically registered for a subject with a source type. Its link with
+     * the subject is unique per subject and registered source type.
+     */
+    @Query(value = "select source.* from radar_source source "
+            + "join subject_sources registration on registration.sources_id = source.id "
+            + "where registration.subjects_id = :subjectId "
+            + "and registration.registered_source_type_id = :sourceTypeId", nativeQuery = true)
+    Optional<Source> findOneRegisteredBySubjectIdAndSourceTypeId(
+            @Param("subjectId") Long subjectId, @Param("sourceTypeId") Long sourceTypeId);
 }
@@ -1,5 +1,6 @@
 package org.radarcns.management.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -7,6 +8,7 @@ import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.Subject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,32 +19,36 @@ import org.springframework.data.repository.query.Param;
 @SuppressWarnings("unused")
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
 
-    @Query(value = "select distinct subject from Subject subject left join fetch subject.sources",
-            countQuery = "select distinct count(subject) from Subject subject")
-    Page<Subject> findAllWithEagerRelationships(Pageable pageable);
+    /**
+     * Page of subject IDs. Queries that join collections cannot be paged in the database, so the
+     * subjects themselves should be fetched separately by ID.
+     */
+    @Query(value = "select subject.id from Subject subject",
+            countQuery = "select count(subject) from Subject subject")
+    Page<Long> findAllIds(Pageable pageable);
 
-    @Query(value = "select distinct subject from Subject subject left join fetch subject.sources "
-            + "left join fetch subject.user user "
-            + "join user.roles roles where roles.project.projectName = :projectName",
-            countQuery = "select distinct count(subject) from Subject subject "
-                    + "left join subject.user user left join user.roles roles "
-                    + "where roles.project.projectName = :projectName")
-    Page<Subject> findAllByProjectName(Pageable pageable, @Param("projectName") String projectName);
-
-    @Query(value = "select distinct subject from Subject subject left join fetch subject.sources "
-            + "left join fetch subject.user user "
-            + "join user.roles roles where roles.project.projectName = :projectName and roles"
-            + ".authority.name in :authorities",
-            countQuery = "select distinct count(subject) from Subject subject "
-                    + "left join subject.user user left join user.roles roles "
-                    + "where roles.project.projectName = :projectName and roles"
-                    + ".authority.name in :authorities")
-    Page<Subject> findAllByProjectNameAndAuthoritiesIn(Pageable pageable,
+    /**
+     * Page of IDs of subjects with any of given roles in a project. The subjects themselves
+     * should be fetched separately by ID.
+     */
+    @Query(value = "select subject.id from Subject subject "
+            + "where subject.user.id in (select user.id from User user join user.roles roles "
+            + "where roles.project.projectName = :projectName "
+            + "and roles.authority.name in :authorities)",
+            countQuery = "select count(subject) from Subject subject "
+                    + "where subject.user.id in (select user.id from User user "
+                    + "join user.roles roles where roles.project.projectName = :projectName "
+                    + "and roles.authority.name in :authorities)")
+    Page<Long> findIdsByProjectNameAndAuthoritiesIn(Pageable pageable,
             @Param("projectName") String projectName,
             @Param("authorities") List<String> authorities);
 
-    @Query("select subject from Subject subject left join fetch subject.sources "
-            + "WHERE subject.user.login = :login")
+    /**
+     * Subject with its sources and the roles of its user. Its attributes and the details of its
+     * projects are fetched in batches when they are first accessed.
+     */
+    @EntityGraph(attributePaths = {"sources", "user.roles"})
+    @Query("select subject from Subject subject WHERE subject.user.login = :login")
     Optional<Subject> findOneWithEagerBySubjectLogin(@Param("login") String login);
 
     @Query("select subject.sources from Subject subject WHERE subject.id = :id")
@@ -58,6 +64,13 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
     Optional<Subject> findOneByProjectNameAndExternalId(@Param("projectName") String projectName,
             @Param("externalId") String externalId);
 
+    @Query("select subject.externalId from Subject subject "
+            + "where subject.externalId in :externalIds "
+            + "and subject.user.id in (select user.id from User user join user.roles roles "
+            + "where roles.project.projectName = :projectName)")
+    List<String> findExternalIdsInProject(@Param("projectName") String projectName,
+            @Param("externalIds") Collection<String> externalIds);
+
     @Query("select distinct subject from Subject subject left join fetch subject.sources "
             + "left join fetch subject.user user "
             + "join user.roles roles where roles.project.projectName = :projectName "
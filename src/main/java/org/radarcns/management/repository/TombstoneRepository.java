@@ -0,0 +1,10 @@
+package org.radarcns.management.repository;
+
+import org.radarcns.management.domain.Tombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Spring Data JPA repository for the Tombstone entity.
+ */
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+}
@@ -1,6 +1,7 @@
 package org.radarcns.management.repository;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.radarcns.management.domain.User;
@@ -26,6 +27,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneByLogin(String login);
 
+    @Query("select user.login from User user where user.login in :logins")
+    List<String> findLoginsIn(@Param("logins") Collection<String> logins);
+
     @EntityGraph(attributePaths = "roles")
     Optional<User> findOneWithRolesByLogin(String login);
 
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 import org.radarcns.auth.token.JwtRadarToken;
 import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.User;
+import org.radarcns.management.metrics.TokenMetrics;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.repository.UserRepository;
 import org.slf4j.Logger;
@@ -56,7 +57,7 @@ public class ClaimsTokenEnhancer implements TokenEnhancer, InitializingBean {
             // add the 'sub' claim in accordance with JWT spec
             additionalInfo.put("sub", userName);
 
-            Optional<User> optUser = userRepository.findOneByLogin(userName);
+            Optional<User> optUser = userRepository.findOneWithRolesByLogin(userName);
             if (optUser.isPresent()) {
                 List<String> roles = optUser.get().getRoles().stream()
                         .filter(role -> Objects.nonNull(role.getProject()))
@@ -90,6 +91,7 @@ public class ClaimsTokenEnhancer implements TokenEnhancer, InitializingBean {
         auditEventRepository.add(new AuditEvent(userName, GRANT_TOKEN_EVENT,
                 auditData));
         logger.info("[{}] for {}: {}", GRANT_TOKEN_EVENT, userName, auditData.toString());
+        TokenMetrics.tokenIssued(authentication.getOAuth2Request().getGrantType());
 
         return accessToken;
     }
@@ -2,7 +2,11 @@ package org.radarcns.management.security;
 
 import org.radarcns.auth.authentication.TokenValidator;
 import org.radarcns.auth.exception.TokenValidationException;
+import org.radarcns.auth.token.RadarToken;
 import org.radarcns.management.config.LocalKeystoreConfig;
+import org.radarcns.management.metrics.RequestStatistics;
+import org.radarcns.management.metrics.RequestStatistics.Phase;
+import org.radarcns.management.metrics.TokenMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -35,14 +39,20 @@ public class JwtAuthenticationFilter extends GenericFilterBean {
             chain.doFilter(request, response);
             return;
         }
+        RadarToken token;
         try {
-            request.setAttribute(TOKEN_ATTRIBUTE,
-                    validator.validateAccessToken(getToken(request, response)));
-            log.debug("Request authenticated successfully");
-            chain.doFilter(request, response);
+            long start = System.nanoTime();
+            token = validator.validateAccessToken(getToken(request, response));
+            RequestStatistics.recordCurrent(Phase.AUTH, start);
         } catch (TokenValidationException ex) {
+            TokenMetrics.tokenValidated(false);
             log.error(ex.getMessage());
+            return;
         }
+        TokenMetrics.tokenValidated(true);
+        request.setAttribute(TOKEN_ATTRIBUTE, token);
+        log.debug("Request authenticated successfully");
+        chain.doFilter(request, response);
     }
 
     private String getToken(ServletRequest request, ServletResponse response) {
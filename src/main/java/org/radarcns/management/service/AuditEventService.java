@@ -3,6 +3,7 @@ package org.radarcns.management.service;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import org.radarcns.management.config.audit.AuditEventConverter;
+import org.radarcns.management.domain.PersistentAuditEvent;
 import org.radarcns.management.repository.PersistenceAuditEventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
@@ -45,6 +46,39 @@ public class AuditEventService {
                 .map(auditEventConverter::convertToAuditEvent);
     }
 
+    /**
+     * Search audit events by any combination of principal and event type within a date range.
+     * Each combination is served by a matching composite index on the audit event table.
+     *
+     * @param principal principal to filter on, or {@code null} for any principal
+     * @param type event type to filter on, or {@code null} for any type
+     * @param fromDate start of the date range
+     * @param toDate end of the date range
+     * @param pageable the pageable
+     * @return a page of audit events
+     */
+    public Page<AuditEvent> search(String principal, String type, LocalDateTime fromDate,
+            LocalDateTime toDate, Pageable pageable) {
+        Page<PersistentAuditEvent> page;
+        if (principal != null && type != null) {
+            page = persistenceAuditEventRepository
+                    .findAllByPrincipalAndAuditEventTypeAndAuditEventDateBetween(principal, type,
+                            fromDate, toDate, pageable);
+        } else if (principal != null) {
+            page = persistenceAuditEventRepository
+                    .findAllByPrincipalAndAuditEventDateBetween(principal, fromDate, toDate,
+                            pageable);
+        } else if (type != null) {
+            page = persistenceAuditEventRepository
+                    .findAllByAuditEventTypeAndAuditEventDateBetween(type, fromDate, toDate,
+                            pageable);
+        } else {
+            page = persistenceAuditEventRepository
+                    .findAllByAuditEventDateBetween(fromDate, toDate, pageable);
+        }
+        return page.map(auditEventConverter::convertToAuditEvent);
+    }
+
     public Optional<AuditEvent> find(Long id) {
         return Optional.ofNullable(persistenceAuditEventRepository.findOne(id))
                 .map(auditEventConverter::convertToAuditEvent);
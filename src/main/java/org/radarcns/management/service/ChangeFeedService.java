@@ -0,0 +1,271 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import org.radarcns.management.domain.enumeration.TombstoneType;
+import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectChangesDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.TombstoneDTO;
+import org.radarcns.management.service.dto.TombstoneDTO.RemovalReason;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for the changes of the subjects and sources of a project since a given date.
+ *
+ * <p>Changes are read in pages, in order of last modified date and ID, using indexes on the
+ * subject, source and tombstone tables. The position after the last change of each of the three
+ * tables is returned as a continuation cursor. A change is only visible once its transaction
+ * commits, which may be after a client requested the changes since an earlier date. Therefore,
+ * the cursor never moves past the last returned change, nor to less than
+ * {@link #CURSOR_OVERLAP} before the current time, unless a page is full and would otherwise not
+ * make progress. Consecutive requests may then return a change twice, but do not miss it, as
+ * long as transactions commit within {@link #CURSOR_OVERLAP} after they set the last modified
+ * date, and the clocks of all application nodes are synchronized within that margin.</p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class ChangeFeedService {
+
+    /** Time that consecutive change requests overlap. */
+    public static final Duration CURSOR_OVERLAP = Duration.ofSeconds(5);
+
+    /** Default number of changes per table in a single response. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    /** Maximum number of changes per table in a single response. */
+    public static final int MAX_PAGE_SIZE = 2000;
+
+    private static final String SUBJECT_QUERY = "select subject.id, user.login, subject.removed, "
+            + "subject.lastModifiedDate, authority.name "
+            + "from Subject subject join subject.user user join user.roles role "
+            + "join role.authority authority "
+            + "where role.project.id = :projectId and authority.name in :authorities "
+            + "and (subject.lastModifiedDate > :date "
+            + "or (subject.lastModifiedDate = :date and subject.id > :id)) "
+            + "order by subject.lastModifiedDate, subject.id";
+
+    private static final String SOURCE_QUERY = "select "
+            + SourceProjectionService.SOURCE_FIELDS + ", source.lastModifiedDate "
+            + "from Source source left join source.sourceType sourceType "
+            + "where source.project.id = :projectId "
+            + "and (source.lastModifiedDate > :date "
+            + "or (source.lastModifiedDate = :date and source.id > :id)) "
+            + "order by source.lastModifiedDate, source.id";
+
+    private static final String TOMBSTONE_QUERY = "select tombstone.id, tombstone.entityType, "
+            + "tombstone.entityId, tombstone.entityName, tombstone.removedDate "
+            + "from Tombstone tombstone where tombstone.projectId = :projectId "
+            + "and (tombstone.removedDate > :date "
+            + "or (tombstone.removedDate = :date and tombstone.id > :id)) "
+            + "order by tombstone.removedDate, tombstone.id";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SubjectProjectionService subjectProjectionService;
+
+    @Autowired
+    private SourceProjectionService sourceProjectionService;
+
+    /**
+     * Get the subjects and sources of a project that were created, updated, deleted,
+     * discontinued or moved to another project after given date or cursor, in order of
+     * modification.
+     *
+     * @param project the project
+     * @param since the date after which the changes were made, if no cursor is given
+     * @param cursor the cursor of the previous changes, or {@code null} to use the date
+     * @param size maximum number of changes to return from each of the subjects, sources and
+     *             removed entities
+     * @return the changes
+     * @throws CustomParameterizedException if the cursor is invalid
+     */
+    public ProjectChangesDTO findChanges(ProjectDTO project, ZonedDateTime since, String cursor,
+            int size) {
+        Position[] start = cursor != null ? parseCursor(cursor)
+                : new Position[] {new Position(since, 0L), new Position(since, 0L),
+                        new Position(since, 0L)};
+        ZonedDateTime horizon = ZonedDateTime.now().minus(CURSOR_OVERLAP);
+        ProjectChangesDTO changes = new ProjectChangesDTO();
+
+        List<Object[]> subjects = page(entityManager.createQuery(SUBJECT_QUERY, Object[].class)
+                .setParameter("authorities", Arrays.asList(PARTICIPANT, INACTIVE_PARTICIPANT)),
+                project, start[0], size);
+        boolean hasMore = subjects.size() > size;
+        subjects = subjects.subList(0, Math.min(size, subjects.size()));
+        final Position subjectsNext = next(start[0], subjects, 0, 3, hasMore, horizon);
+        addSubjects(changes, subjects);
+
+        List<Object[]> sources = page(entityManager.createQuery(SOURCE_QUERY, Object[].class),
+                project, start[1], size);
+        boolean hasMoreSources = sources.size() > size;
+        sources = sources.subList(0, Math.min(size, sources.size()));
+        final Position sourcesNext = next(start[1], sources, 0, 9, hasMoreSources, horizon);
+        Map<Long, MinimalSourceDetailsDTO> sourceDetails = new LinkedHashMap<>();
+        for (Object[] row : sources) {
+            MinimalSourceDetailsDTO source = SourceProjectionService.toSource(row);
+            sourceDetails.put(source.getId(), source);
+        }
+        sourceProjectionService.addAttributes(sourceDetails);
+        changes.setSources(new ArrayList<>(sourceDetails.values()));
+
+        List<Object[]> tombstones = page(entityManager.createQuery(TOMBSTONE_QUERY,
+                Object[].class), project, start[2], size);
+        boolean hasMoreTombstones = tombstones.size() > size;
+        tombstones = tombstones.subList(0, Math.min(size, tombstones.size()));
+        Position tombstonesNext = next(start[2], tombstones, 0, 4, hasMoreTombstones, horizon);
+        for (Object[] row : tombstones) {
+            changes.getRemoved().add(toTombstone((TombstoneType) row[1], (Long) row[2],
+                    (String) row[3], RemovalReason.DELETED, (ZonedDateTime) row[4]));
+        }
+
+        changes.setHasMore(hasMore || hasMoreSources || hasMoreTombstones);
+        changes.setCursor(formatCursor(subjectsNext, sourcesNext, tombstonesNext));
+        return changes;
+    }
+
+    private List<Object[]> page(javax.persistence.TypedQuery<Object[]> query,
+            ProjectDTO project, Position start, int size) {
+        return query.setParameter("projectId", project.getId())
+                .setParameter("date", start.date)
+                .setParameter("id", start.id)
+                .setMaxResults(size + 1)
+                .getResultList();
+    }
+
+    /**
+     * Add the subjects of a page as changed subjects, or as removed if they were discontinued or
+     * if they no longer participate in the project.
+     */
+    private void addSubjects(ProjectChangesDTO changes, List<Object[]> rows) {
+        // a subject has at most one participant role per project, but prefer an active one
+        Map<Long, Object[]> subjects = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            subjects.merge((Long) row[0], row, (first, second) ->
+                    PARTICIPANT.equals(first[4]) ? first : second);
+        }
+        List<Long> modifiedSubjects = new ArrayList<>();
+        for (Object[] row : subjects.values()) {
+            if ((Boolean) row[2]) {
+                changes.getRemoved().add(toTombstone(TombstoneType.SUBJECT, (Long) row[0],
+                        (String) row[1], RemovalReason.DISCONTINUED, (ZonedDateTime) row[3]));
+            } else if (INACTIVE_PARTICIPANT.equals(row[4])) {
+                changes.getRemoved().add(toTombstone(TombstoneType.SUBJECT, (Long) row[0],
+                        (String) row[1], RemovalReason.MOVED, (ZonedDateTime) row[3]));
+            } else {
+                modifiedSubjects.add((Long) row[0]);
+            }
+        }
+        changes.setSubjects(subjectProjectionService.findAllByIdIn(modifiedSubjects));
+    }
+
+    /**
+     * Position to continue a table from in the next request.
+     *
+     * @param previous position that the page started after
+     * @param rows rows of the page
+     * @param idIndex index of the ID in a row
+     * @param dateIndex index of the last modified date in a row
+     * @param hasMore whether the table has more rows than the page
+     * @param horizon date before which all changes are assumed to be committed
+     * @return the next position
+     */
+    private static Position next(Position previous, List<Object[]> rows, int idIndex,
+            int dateIndex, boolean hasMore, ZonedDateTime horizon) {
+        if (rows.isEmpty()) {
+            return previous;
+        }
+        Object[] lastRow = rows.get(rows.size() - 1);
+        Position last = new Position((ZonedDateTime) lastRow[dateIndex], (Long) lastRow[idIndex]);
+        Position next = last.date.isBefore(horizon) ? last : new Position(horizon, 0L);
+        if (!next.isAfter(previous)) {
+            // a full page must make progress, even if it may skip uncommitted changes
+            next = hasMore ? last : previous;
+        }
+        return next;
+    }
+
+    private static String formatCursor(Position... positions) {
+        StringBuilder builder = new StringBuilder();
+        for (Position position : positions) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            Instant instant = position.date.toInstant();
+            builder.append(instant.getEpochSecond()).append('.').append(instant.getNano())
+                    .append(':').append(position.id);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position[] parseCursor(String cursor) {
+        try {
+            String[] values = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split(",");
+            if (values.length != 3) {
+                throw new IllegalArgumentException("Cursor must have three positions");
+            }
+            Position[] positions = new Position[values.length];
+            for (int i = 0; i < values.length; i++) {
+                String[] position = values[i].split("[.:]");
+                if (position.length != 3) {
+                    throw new IllegalArgumentException("Invalid cursor position");
+                }
+                Instant instant = Instant.ofEpochSecond(Long.parseLong(position[0]),
+                        Long.parseLong(position[1]));
+                positions[i] = new Position(ZonedDateTime.ofInstant(instant, ZoneOffset.UTC),
+                        Long.parseLong(position[2]));
+            }
+            return positions;
+        } catch (IllegalArgumentException ex) {
+            throw new CustomParameterizedException("error.invalidCursor", cursor);
+        }
+    }
+
+    private static TombstoneDTO toTombstone(TombstoneType type, Long id, String name,
+            RemovalReason reason, ZonedDateTime date) {
+        TombstoneDTO tombstone = new TombstoneDTO();
+        tombstone.setType(type);
+        tombstone.setId(id);
+        tombstone.setName(name);
+        tombstone.setReason(reason);
+        tombstone.setDate(date);
+        return tombstone;
+    }
+
+    /** Position in a table, after a last modified date and ID. */
+    private static final class Position {
+
+        private final ZonedDateTime date;
+
+        private final long id;
+
+        private Position(ZonedDateTime date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        private boolean isAfter(Position other) {
+            return date.isAfter(other.date) || date.isEqual(other.date) && id > other.id;
+        }
+    }
+}
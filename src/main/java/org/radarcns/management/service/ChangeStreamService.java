@@ -0,0 +1,343 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.ITopic;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import org.radarcns.management.domain.AbstractAuditingEntity;
+import org.radarcns.management.domain.Role;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.Subject;
+import org.radarcns.management.domain.User;
+import org.radarcns.management.service.dto.EntityChangeDTO;
+import org.radarcns.management.service.dto.EntityChangeDTO.Action;
+import org.radarcns.management.service.dto.EntityChangeDTO.EntityType;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Service that streams changes of subjects and sources to subscribers as server-sent events.
+ *
+ * <p>Changes are published on a Hazelcast topic once their transaction commits, so subscribers on
+ * any node of the cluster receive them. Each node passes the changes of a project to its own
+ * subscribers of that project. Every subscriber has a bounded buffer of changes that are sent on
+ * a separate thread pool. A subscriber that does not keep up and fills its buffer is
+ * disconnected; it should then catch up with the change feed and subscribe again.</p>
+ *
+ * <p>The project of a subject is the project it participates in, or else the project it last
+ * participated in. Changes of the user of a subject, such as its activation, are published as
+ * changes of the subject. Since a user does not reference its subject, that subject is read
+ * after the transaction commits.</p>
+ */
+@Service
+public class ChangeStreamService {
+
+    /** Name of the Hazelcast topic that changes are published on. */
+    public static final String TOPIC_NAME = "entity-changes";
+
+    /** Maximum number of changes buffered per subscriber. */
+    public static final int BUFFER_SIZE = 256;
+
+    /** Name of the server-sent events of changes. */
+    public static final String EVENT_NAME = "change";
+
+    private static final List<String> PARTICIPANT_AUTHORITIES = Arrays.asList(PARTICIPANT,
+            INACTIVE_PARTICIPANT);
+
+    private static final String USER_SUBJECT_QUERY = "select subject.id, subject.removed, "
+            + "authority.name, project.projectName from Subject subject join subject.user user "
+            + "join user.roles role join role.authority authority join role.project project "
+            + "where user.id = :userId and authority.name in :authorities order by role.id";
+
+    private final Logger log = LoggerFactory.getLogger(ChangeStreamService.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService sendExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new CustomizableThreadFactory("change-stream-"));
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ITopic<EntityChangeDTO> topic;
+
+    private String listenerId;
+
+    @PostConstruct
+    public void init() {
+        topic = hazelcastInstance.getTopic(TOPIC_NAME);
+        listenerId = topic.addMessageListener(message -> dispatch(message.getMessageObject()));
+    }
+
+    /**
+     * Stop listening to the cluster and disconnect all subscribers.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            topic.removeMessageListener(listenerId);
+        } catch (HazelcastInstanceNotActiveException ex) {
+            log.debug("Hazelcast was already shut down");
+        }
+        sendExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Subscribe to the changes of a project.
+     *
+     * @param projectName the project to receive the changes of
+     * @param subjects whether to receive the changes of subjects
+     * @param sources whether to receive the changes of sources
+     * @param timeout time in milliseconds after which the subscription ends
+     * @return the emitter of the changes
+     */
+    public SseEmitter subscribe(String projectName, boolean subjects, boolean sources,
+            long timeout) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(projectName, subjects, sources, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Publish the change of an entity to all nodes, once the current transaction commits.
+     * Changes of users are published as changes of their subjects. Changes of other entities than
+     * subjects and sources are ignored.
+     *
+     * @param entity the entity that changed
+     * @param action how the entity changed
+     */
+    public void publish(AbstractAuditingEntity entity, Action action) {
+        if (entity instanceof User) {
+            // a removed user is published as the removal of its subject
+            if (action == Action.UPDATED) {
+                User user = (User) entity;
+                afterCommit(() -> publishSubjectOf(user.getId(), user.getLogin(),
+                        user.getActivated(), user.getLastModifiedDate()));
+            }
+            return;
+        }
+        EntityChangeDTO change = toChange(entity, action);
+        if (change != null) {
+            publish(change);
+        }
+    }
+
+    /**
+     * Publish a change to all nodes, once the current transaction commits. This is used for
+     * changes that are made without entity callbacks, such as bulk updates.
+     *
+     * @param change the change
+     */
+    public void publish(EntityChangeDTO change) {
+        if (change.getProjectName() != null) {
+            afterCommit(() -> topic.publish(change));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            action.run();
+                        }
+                    });
+        } else {
+            action.run();
+        }
+    }
+
+    /** Publish the update of the subject of a user, if the user is a participant. */
+    private void publishSubjectOf(Long userId, String login, boolean activated,
+            ZonedDateTime date) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        List<Object[]> rows = transactionTemplate.execute(status -> entityManager
+                .createQuery(USER_SUBJECT_QUERY, Object[].class)
+                .setParameter("userId", userId)
+                .setParameter("authorities", PARTICIPANT_AUTHORITIES)
+                .getResultList());
+        // rows are ordered by role, so take the first active one or else the first inactive one
+        rows.stream()
+                .min(Comparator.comparingInt(row -> PARTICIPANT_AUTHORITIES.indexOf(row[2])))
+                .ifPresent(row -> {
+                    EntityChangeDTO change = new EntityChangeDTO();
+                    change.setEntityType(EntityType.SUBJECT);
+                    change.setAction(Action.UPDATED);
+                    change.setId((Long) row[0]);
+                    change.setName(login);
+                    change.setStatus(SubjectStatus.of(activated, (Boolean) row[1]));
+                    change.setProjectName((String) row[3]);
+                    change.setDate(date);
+                    topic.publish(change);
+                });
+    }
+
+    private void dispatch(EntityChangeDTO change) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(change)) {
+                subscriber.offer(change);
+            }
+        }
+    }
+
+    private static EntityChangeDTO toChange(AbstractAuditingEntity entity, Action action) {
+        EntityChangeDTO change = new EntityChangeDTO();
+        if (entity instanceof Subject) {
+            Subject subject = (Subject) entity;
+            change.setEntityType(EntityType.SUBJECT);
+            change.setId(subject.getId());
+            change.setName(subject.getUser().getLogin());
+            change.setStatus(SubjectStatus.of(subject.getUser().getActivated(),
+                    subject.isRemoved()));
+            participantRole(subject.getUser().getRoles())
+                    .ifPresent(role -> change.setProjectName(role.getProject().getProjectName()));
+        } else if (entity instanceof Source) {
+            Source source = (Source) entity;
+            change.setEntityType(EntityType.SOURCE);
+            change.setId(source.getId());
+            change.setName(source.getSourceName());
+            change.setAssigned(source.isAssigned());
+            if (source.getProject() != null) {
+                change.setProjectName(source.getProject().getProjectName());
+            }
+        } else {
+            return null;
+        }
+        change.setAction(action);
+        change.setDate(action == Action.REMOVED ? ZonedDateTime.now()
+                : entity.getLastModifiedDate());
+        return change;
+    }
+
+    /** Participant role with the lowest ID, or else inactive participant role. */
+    private static Optional<Role> participantRole(Set<Role> roles) {
+        return roles.stream()
+                .filter(role -> PARTICIPANT_AUTHORITIES.contains(role.getAuthority().getName()))
+                .min(Comparator.comparing((Role role) -> PARTICIPANT_AUTHORITIES.indexOf(
+                        role.getAuthority().getName()))
+                        .thenComparing(Role::getId, Comparator.nullsLast(
+                                Comparator.naturalOrder())));
+    }
+
+    /** Subscriber with a bounded buffer of changes to send. */
+    private class Subscriber {
+
+        private final String projectName;
+
+        private final boolean subjects;
+
+        private final boolean sources;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<EntityChangeDTO> buffer =
+                new ArrayBlockingQueue<>(BUFFER_SIZE);
+
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        private Subscriber(String projectName, boolean subjects, boolean sources,
+                SseEmitter emitter) {
+            this.projectName = projectName;
+            this.subjects = subjects;
+            this.sources = sources;
+            this.emitter = emitter;
+        }
+
+        private boolean accepts(EntityChangeDTO change) {
+            return projectName.equals(change.getProjectName())
+                    && (change.getEntityType() == EntityType.SUBJECT ? subjects : sources);
+        }
+
+        private void offer(EntityChangeDTO change) {
+            if (!buffer.offer(change)) {
+                log.warn("Disconnecting subscriber of project {}: more than {} changes buffered",
+                        projectName, BUFFER_SIZE);
+                disconnect();
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::send);
+                } catch (RejectedExecutionException ex) {
+                    disconnect();
+                }
+            }
+        }
+
+        /** Send all buffered changes, until the buffer is empty. */
+        private void send() {
+            while (true) {
+                EntityChangeDTO change = buffer.poll();
+                if (change == null) {
+                    sending.set(false);
+                    // a change may have been buffered after polling but before resetting the flag
+                    if (buffer.isEmpty() || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    emitter.send(SseEmitter.event()
+                            .name(EVENT_NAME)
+                            .data(change, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException ex) {
+                    log.debug("Subscriber of project {} disconnected: {}", projectName,
+                            ex.toString());
+                    disconnect();
+                    return;
+                }
+            }
+        }
+
+        private void disconnect() {
+            subscribers.remove(this);
+            buffer.clear();
+            emitter.complete();
+        }
+    }
+}
@@ -2,12 +2,10 @@ package org.radarcns.management.service;
 
 
 import org.radarcns.management.domain.Project;
-import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.mapper.ProjectMapper;
-import org.radarcns.management.service.mapper.SourceTypeMapper;
 import org.radarcns.management.web.rest.errors.CustomNotFoundException;
 import org.radarcns.management.web.rest.errors.ErrorConstants;
 import org.slf4j.Logger;
@@ -37,7 +35,10 @@ public class ProjectService {
     private ProjectMapper projectMapper;
 
     @Autowired
-    private SourceTypeMapper sourceTypeMapper;
+    private SourceTypeCatalogService sourceTypeCatalogService;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
 
 
     /**
@@ -50,6 +51,9 @@ public class ProjectService {
         log.debug("Request to save Project : {}", projectDto);
         Project project = projectMapper.projectDTOToProject(projectDto);
         project = projectRepository.save(project);
+        if (projectDto.getId() == null) {
+            projectStatisticsService.reconcile(project.getId());
+        }
         ProjectDTO result = projectMapper.projectToProjectDTO(project);
         return result;
     }
@@ -112,8 +116,8 @@ public class ProjectService {
     @Transactional(readOnly = true)
     public List<SourceTypeDTO> findSourceTypesById(Long id) {
         log.debug("Request to get Project.sourceTypes of project: {}", id);
-        List<SourceType> sourceTypes = projectRepository.findSourceTypesByProjectId(id);
-        return sourceTypeMapper.sourceTypesToSourceTypeDTOs(sourceTypes);
+        return sourceTypeCatalogService.getCatalog()
+                .findAll(projectRepository.findSourceTypeIdsByProjectId(id));
     }
 
     /**
@@ -123,6 +127,7 @@ public class ProjectService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Project : {}", id);
+        projectStatisticsService.delete(id);
         projectRepository.delete(id);
     }
 }
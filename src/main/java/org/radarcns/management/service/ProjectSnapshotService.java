@@ -0,0 +1,156 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.radarcns.management.service.dto.MinimalSourceTypeDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.ProjectSnapshotDTO;
+import org.radarcns.management.service.dto.SourceTypeDTO;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.radarcns.management.service.dto.SubjectSnapshotDTO;
+import org.radarcns.management.service.dto.SubjectSnapshotDTO.SnapshotSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Service for snapshots of the subjects of a project, with their status and assigned sources, for
+ * services that authorize data locally. The subjects of a project are its participants; subjects
+ * that moved to another project are not included.
+ *
+ * <p>The version of a snapshot is derived from the number and the last modified dates of the
+ * subjects, subject users, sources and tombstones of the project, which takes a few aggregate
+ * queries on indexed columns. Clients can therefore check whether their snapshot is still
+ * current without a snapshot being generated. A snapshot itself is read with a single
+ * forward-only database cursor, ordered by subject ID, without loading any entities.</p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProjectSnapshotService {
+
+    /** Number of rows to fetch from the database at a time. */
+    public static final int FETCH_SIZE = 500;
+
+    private static final String PROJECT_SUBJECTS = "user.id in (select roleUser.id from User "
+            + "roleUser join roleUser.roles roles where roles.project.projectName = :projectName "
+            + "and roles.authority.name = '" + PARTICIPANT + "')";
+
+    private static final String SUBJECT_VERSION_QUERY = "select count(subject.id), "
+            + "max(subject.lastModifiedDate), max(user.lastModifiedDate) from Subject subject "
+            + "join subject.user user where " + PROJECT_SUBJECTS;
+
+    private static final String SOURCE_VERSION_QUERY = "select count(source.id), "
+            + "max(source.lastModifiedDate) from Source source "
+            + "where source.project.id = :projectId";
+
+    private static final String TOMBSTONE_VERSION_QUERY = "select count(tombstone.id), "
+            + "max(tombstone.removedDate) from Tombstone tombstone "
+            + "where tombstone.projectId = :projectId";
+
+    private static final String SNAPSHOT_QUERY = "select subject.id, user.login, "
+            + "user.activated, subject.removed, source.sourceId, source.sourceType.id "
+            + "from Subject subject join subject.user user left join subject.sources source "
+            + "where " + PROJECT_SUBJECTS + " order by subject.id";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Get the header of a snapshot of a project, with the current version of the project.
+     *
+     * @param project the project
+     * @return the snapshot header
+     */
+    public ProjectSnapshotDTO getHeader(ProjectDTO project) {
+        ProjectSnapshotDTO header = new ProjectSnapshotDTO();
+        header.setProjectName(project.getProjectName());
+        header.setSourceTypes(project.getSourceTypes().stream()
+                .sorted(Comparator.comparing(SourceTypeDTO::getId))
+                .map(ProjectSnapshotService::toMinimalSourceType)
+                .collect(Collectors.toList()));
+
+        Object[] subjects = entityManager.createQuery(SUBJECT_VERSION_QUERY, Object[].class)
+                .setParameter("projectName", project.getProjectName())
+                .getSingleResult();
+        Object[] sources = entityManager.createQuery(SOURCE_VERSION_QUERY, Object[].class)
+                .setParameter("projectId", project.getId())
+                .getSingleResult();
+        Object[] tombstones = entityManager.createQuery(TOMBSTONE_VERSION_QUERY, Object[].class)
+                .setParameter("projectId", project.getId())
+                .getSingleResult();
+
+        StringBuilder version = new StringBuilder()
+                .append(ProjectSnapshotDTO.FORMAT_VERSION);
+        header.getSourceTypes().forEach(type -> version.append(',').append(type.getId()));
+        for (Object[] aggregate : new Object[][] {subjects, sources, tombstones}) {
+            for (Object value : aggregate) {
+                version.append(';').append(value instanceof ZonedDateTime
+                        ? ((ZonedDateTime) value).toInstant() : value);
+            }
+        }
+        header.setVersion(DigestUtils.md5DigestAsHex(
+                version.toString().getBytes(StandardCharsets.UTF_8)));
+        return header;
+    }
+
+    /**
+     * Read the subjects of a project with their status and assigned sources, ordered by subject
+     * ID.
+     *
+     * @param projectName the project
+     * @param consumer consumer of each subject, in order of ID
+     */
+    public void export(String projectName, Consumer<SubjectSnapshotDTO> consumer) {
+        ScrollableResults results = entityManager.unwrap(Session.class)
+                .createQuery(SNAPSHOT_QUERY)
+                .setParameter("projectName", projectName)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            Long subjectId = null;
+            SubjectSnapshotDTO subject = null;
+            while (results.next()) {
+                Object[] row = results.get();
+                if (!row[0].equals(subjectId)) {
+                    if (subject != null) {
+                        consumer.accept(subject);
+                    }
+                    subjectId = (Long) row[0];
+                    subject = new SubjectSnapshotDTO();
+                    subject.setLogin((String) row[1]);
+                    subject.setStatus(SubjectStatus.of((Boolean) row[2], (Boolean) row[3]));
+                }
+                if (row[4] != null) {
+                    subject.getSources().add(new SnapshotSource((UUID) row[4],
+                            (Long) row[5]));
+                }
+            }
+            if (subject != null) {
+                consumer.accept(subject);
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private static MinimalSourceTypeDTO toMinimalSourceType(SourceTypeDTO sourceType) {
+        MinimalSourceTypeDTO result = new MinimalSourceTypeDTO();
+        result.setId(sourceType.getId());
+        result.setProducer(sourceType.getProducer());
+        result.setModel(sourceType.getModel());
+        result.setCatalogVersion(sourceType.getCatalogVersion());
+        return result;
+    }
+}
@@ -0,0 +1,280 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import org.radarcns.management.domain.ProjectStatistics;
+import org.radarcns.management.repository.ProjectStatisticsRepository;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.ProjectStatisticsDTO;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for the number of subjects and sources of each project, by status.
+ *
+ * <p>The counters of a project are updated in the transaction that changes its subjects or
+ * sources. Callers count the affected subjects or sources negatively before changing them and
+ * positively after changing them, so that any change of status or project is accounted for. The
+ * counters are reconciled with the actual counts every hour, to correct changes that were made
+ * elsewhere. A reconciliation locks the counters of a project, so concurrent changes are either
+ * included in the counts or added to the counters afterwards. Counters of several projects are
+ * always updated in order of project ID, and callers that move subjects between projects lock
+ * the counters of all projects involved first, so concurrent transactions cannot deadlock.</p>
+ */
+@Service
+@Transactional
+public class ProjectStatisticsService {
+
+    private static final String SUBJECT_COUNT_QUERY = "select role.project.id, user.activated, "
+            + "subject.removed, count(subject.id) from Subject subject join subject.user user "
+            + "join user.roles role where role.authority.name = '" + PARTICIPANT + "' and %s "
+            + "group by role.project.id, user.activated, subject.removed";
+
+    private static final String SOURCE_COUNT_QUERY = "select source.project.id, source.assigned, "
+            + "count(source.id) from Source source where %s "
+            + "group by source.project.id, source.assigned";
+
+    private static final String PROJECT_ID_QUERY = "select project.id from Project project";
+
+    private final Logger log = LoggerFactory.getLogger(ProjectStatisticsService.class);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProjectStatisticsRepository projectStatisticsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Add subjects to the counters of their projects, or remove them with a negative delta. The
+     * project of a subject is the project of its participant role. The subjects are counted in
+     * their state in the current transaction.
+     *
+     * @param subjectIds IDs of the subjects to count
+     * @param delta 1 to add the subjects, -1 to remove them
+     */
+    public void countSubjects(Collection<Long> subjectIds, int delta) {
+        if (subjectIds.isEmpty()) {
+            return;
+        }
+        countSubjectsWhere("subject.id in :ids", "ids", subjectIds).forEach((projectId, count) -> {
+            if (projectStatisticsRepository.addSubjects(projectId, delta * count[0],
+                    delta * count[1], delta * count[2]) == 0) {
+                log.debug("No statistics of project {} to count subjects in", projectId);
+            }
+        });
+    }
+
+    /**
+     * Add the subjects of users to the counters of their projects, or remove them with a negative
+     * delta. This is used when users are activated or deactivated.
+     *
+     * @param userIds IDs of the users whose subjects to count
+     * @param delta 1 to add the subjects, -1 to remove them
+     */
+    public void countSubjectsOfUsers(Collection<Long> userIds, int delta) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        countSubjectsWhere("user.id in :ids", "ids", userIds).forEach((projectId, count) -> {
+            if (projectStatisticsRepository.addSubjects(projectId, delta * count[0],
+                    delta * count[1], delta * count[2]) == 0) {
+                log.debug("No statistics of project {} to count subjects in", projectId);
+            }
+        });
+    }
+
+    /**
+     * Lock the counters of projects in order of project ID. Callers that move subjects or
+     * sources from one project to another call this before counting them.
+     *
+     * @param projectIds IDs of the projects
+     */
+    public void lock(Collection<Long> projectIds) {
+        projectIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .forEach(projectId -> entityManager.find(ProjectStatistics.class, projectId,
+                        LockModeType.PESSIMISTIC_WRITE));
+    }
+
+    /**
+     * Add sources to the counters of their projects, or remove them with a negative delta. The
+     * sources are counted in their state in the current transaction.
+     *
+     * @param sourceIds IDs of the sources to count
+     * @param delta 1 to add the sources, -1 to remove them
+     */
+    public void countSources(Collection<Long> sourceIds, int delta) {
+        if (sourceIds.isEmpty()) {
+            return;
+        }
+        countSourcesWhere("source.id in :ids", "ids", sourceIds).forEach((projectId, count) -> {
+            if (projectStatisticsRepository.addSources(projectId, delta * count[0],
+                    delta * count[1]) == 0) {
+                log.debug("No statistics of project {} to count sources in", projectId);
+            }
+        });
+    }
+
+    /**
+     * Get the number of subjects and sources of a project. If the project has no counters yet,
+     * they are initialized from the actual counts.
+     *
+     * @param project the project
+     * @return the statistics of the project
+     */
+    public ProjectStatisticsDTO getStatistics(ProjectDTO project) {
+        ProjectStatistics statistics = projectStatisticsRepository.findOne(project.getId());
+        if (statistics == null) {
+            statistics = reconcile(project.getId());
+        }
+        ProjectStatisticsDTO result = new ProjectStatisticsDTO();
+        result.setProjectName(project.getProjectName());
+        result.setActivatedSubjects(statistics.getActivatedSubjects());
+        result.setDeactivatedSubjects(statistics.getDeactivatedSubjects());
+        result.setDiscontinuedSubjects(statistics.getDiscontinuedSubjects());
+        result.setAssignedSources(statistics.getAssignedSources());
+        result.setUnassignedSources(statistics.getUnassignedSources());
+        result.setReconciledDate(statistics.getReconciledDate());
+        return result;
+    }
+
+    /**
+     * Set the counters of a project to the actual number of subjects and sources, creating them
+     * if needed.
+     *
+     * @param projectId ID of the project
+     * @return the reconciled counters
+     */
+    public ProjectStatistics reconcile(Long projectId) {
+        ProjectStatistics statistics = entityManager.find(ProjectStatistics.class, projectId,
+                LockModeType.PESSIMISTIC_WRITE);
+        if (statistics == null) {
+            statistics = new ProjectStatistics(projectId);
+            entityManager.persist(statistics);
+        }
+
+        long[] subjects = countSubjectsWhere("role.project.id = :projectId", "projectId",
+                projectId).getOrDefault(projectId, new long[3]);
+        long[] sources = countSourcesWhere("source.project.id = :projectId", "projectId",
+                projectId).getOrDefault(projectId, new long[2]);
+
+        if (statistics.getReconciledDate() != null
+                && (statistics.getActivatedSubjects() != subjects[0]
+                || statistics.getDeactivatedSubjects() != subjects[1]
+                || statistics.getDiscontinuedSubjects() != subjects[2]
+                || statistics.getAssignedSources() != sources[0]
+                || statistics.getUnassignedSources() != sources[1])) {
+            log.info("Correcting statistics of project {}, which were {}", projectId, statistics);
+        }
+        statistics.setActivatedSubjects(subjects[0]);
+        statistics.setDeactivatedSubjects(subjects[1]);
+        statistics.setDiscontinuedSubjects(subjects[2]);
+        statistics.setAssignedSources(sources[0]);
+        statistics.setUnassignedSources(sources[1]);
+        statistics.setReconciledDate(ZonedDateTime.now());
+        return statistics;
+    }
+
+    /**
+     * Delete the counters of a project.
+     *
+     * @param projectId ID of the project
+     */
+    public void delete(Long projectId) {
+        if (projectStatisticsRepository.exists(projectId)) {
+            projectStatisticsRepository.delete(projectId);
+        }
+    }
+
+    /**
+     * Reconcile the counters of all projects, each in its own transaction. <p> This is scheduled
+     * to get fired every hour. </p>
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconcileAll() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> projectIds = transactionTemplate.execute(status -> entityManager
+                .createQuery(PROJECT_ID_QUERY, Long.class)
+                .getResultList());
+        for (Long projectId : projectIds) {
+            transactionTemplate.execute(status -> reconcile(projectId));
+        }
+        log.debug("Reconciled statistics of {} projects", projectIds.size());
+    }
+
+    /**
+     * Count subjects per project, as the number of activated, deactivated and discontinued
+     * subjects, in order of project ID.
+     */
+    private Map<Long, long[]> countSubjectsWhere(String condition, String parameter,
+            Object value) {
+        Map<Long, long[]> counts = new TreeMap<>();
+        List<Object[]> rows = entityManager.createQuery(
+                String.format(SUBJECT_COUNT_QUERY, condition), Object[].class)
+                .setParameter(parameter, value)
+                .getResultList();
+        for (Object[] row : rows) {
+            SubjectStatus status = SubjectStatus.of((Boolean) row[1], (Boolean) row[2]);
+            if (status != SubjectStatus.INVALID) {
+                counts.computeIfAbsent((Long) row[0], id -> new long[3])[statusIndex(status)] +=
+                        (Long) row[3];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Count sources per project, as the number of assigned and unassigned sources, in order of
+     * project ID.
+     */
+    private Map<Long, long[]> countSourcesWhere(String condition, String parameter,
+            Object value) {
+        Map<Long, long[]> counts = new TreeMap<>();
+        List<Object[]> rows = entityManager.createQuery(
+                String.format(SOURCE_COUNT_QUERY, condition), Object[].class)
+                .setParameter(parameter, value)
+                .getResultList();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                counts.computeIfAbsent((Long) row[0], id -> new long[2])[(Boolean) row[1] ? 0 : 1]
+                        += (Long) row[2];
+            }
+        }
+        return counts;
+    }
+
+    private static int statusIndex(SubjectStatus status) {
+        switch (status) {
+            case ACTIVATED:
+                return 0;
+            case DEACTIVATED:
+                return 1;
+            case DISCONTINUED:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Subject status " + status + " is not counted");
+        }
+    }
+}
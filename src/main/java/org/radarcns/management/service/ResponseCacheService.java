@@ -0,0 +1,212 @@
+package org.radarcns.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Service that caches serialized responses of endpoints that read data that rarely changes.
+ *
+ * <p>Responses are cached per region, as JSON bytes with a strong ETag computed from those
+ * bytes and from the paging headers. Clients that send a matching {@code If-None-Match} header
+ * get a 304 response without a body. A region is cleared with {@link #invalidate(String)} when
+ * its data changes. A response that was read while its region was invalidated is served, but not
+ * cached, so that the cache never holds data older than the last invalidation. Within a
+ * transaction, the cache is not used at all, since the transaction may have written data that is
+ * not committed yet.</p>
+ */
+@Service
+public class ResponseCacheService {
+
+    /** Region of the pages of all source types. */
+    public static final String SOURCE_TYPES = "source-types";
+
+    /** Region of the pages of all source data. */
+    public static final String SOURCE_DATA = "source-data";
+
+    /** Region of responses that do not change while the application is running. */
+    public static final String STATIC = "static";
+
+    /** Maximum number of responses cached per region. */
+    public static final int MAX_REGION_SIZE = 100;
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    /** Headers that are part of the ETag of a response, besides its body. */
+    private static final List<String> ETAG_HEADERS = Arrays.asList("X-Total-Count",
+            HttpHeaders.LINK);
+
+    private final Logger log = LoggerFactory.getLogger(ResponseCacheService.class);
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Get a cached response, or load and cache it if it is not cached yet. The status, body and
+     * headers of the loaded response are cached; the body is serialized as JSON.
+     *
+     * @param region the region of the response
+     * @param key the key of the response within its region, e.g. the requested page
+     * @param loader function that loads the response
+     * @return the cached response
+     */
+    public CachedResponse get(String region, String key, Supplier<ResponseEntity<?>> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // the transaction may have written data of the region
+            return load(loader, -1L);
+        }
+        Region cache = regions.computeIfAbsent(region, name -> new Region());
+        long generation = cache.generation.get();
+        CachedResponse cached = cache.responses.get(key);
+        if (cached != null && cached.generation == generation) {
+            return cached;
+        }
+        CachedResponse loaded = load(loader, generation);
+        if (cache.generation.get() != generation) {
+            log.debug("Not caching response {} of invalidated region {}", key, region);
+        } else if (cache.responses.size() >= MAX_REGION_SIZE
+                && !cache.responses.containsKey(key)) {
+            log.debug("Not caching response {} of full region {}", key, region);
+        } else {
+            cache.responses.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    private CachedResponse load(Supplier<ResponseEntity<?>> loader, long generation) {
+        ResponseEntity<?> response = loader.get();
+        try {
+            return new CachedResponse(response.getStatusCode(), response.getHeaders(),
+                    objectMapper.writeValueAsBytes(response.getBody()), generation);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Key of a cached page.
+     *
+     * @param pageable the requested page
+     * @return the key of the page
+     */
+    public static String pageKey(Pageable pageable) {
+        return pageable.getPageNumber() + "/" + pageable.getPageSize() + "/"
+                + pageable.getSort();
+    }
+
+    /**
+     * Remove all cached responses of a region.
+     *
+     * @param region the region to clear
+     */
+    public void invalidate(String region) {
+        Region cache = regions.computeIfAbsent(region, name -> new Region());
+        cache.generation.incrementAndGet();
+        cache.responses.clear();
+        log.debug("Invalidated response cache region {}", region);
+    }
+
+    /** Cached responses of a region, with the number of times the region was invalidated. */
+    private static class Region {
+
+        private final AtomicLong generation = new AtomicLong();
+
+        private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+    }
+
+    /** Serialized response with its ETag. */
+    public static class CachedResponse {
+
+        private final HttpStatus status;
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private final long generation;
+
+        private CachedResponse(HttpStatus status, HttpHeaders headers, byte[] body,
+                long generation) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag(headers, body);
+            this.generation = generation;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(headers);
+            this.headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+            this.headers.setETag(etag);
+            this.headers.setCacheControl(CACHE_CONTROL.getHeaderValue());
+        }
+
+        /**
+         * Strong ETag of the body and of the headers that describe the page, which may change
+         * without changing the body, e.g. when the total number of items changes.
+         */
+        private static String etag(HttpHeaders headers, byte[] body) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream(body.length + 256);
+            for (String name : ETAG_HEADERS) {
+                List<String> values = headers.get(name);
+                if (values != null) {
+                    for (String value : values) {
+                        byte[] line = (name + ": " + value + "\n")
+                                .getBytes(StandardCharsets.UTF_8);
+                        content.write(line, 0, line.length);
+                    }
+                }
+            }
+            content.write('\n');
+            content.write(body, 0, body.length);
+            return "\"" + DigestUtils.md5DigestAsHex(content.toByteArray()) + "\"";
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Response to a request. If the request has a matching ETag, the response has status
+         * 304 and no body.
+         *
+         * @param request the request to respond to
+         * @return the response
+         */
+        public ResponseEntity<byte[]> toResponseEntity(WebRequest request) {
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CACHE_CONTROL)
+                        .build();
+            }
+            return new ResponseEntity<>(body, headers, status);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for updating single attributes of a source, such as the firmware version that an app
+ * reports for a device.
+ *
+ * <p>Saving a source rewrites all its attributes, by deleting them and inserting them again.
+ * Instead, this reads the current values of the patched keys only, and upserts or deletes only
+ * the attributes that change. Since concurrent requests may set the same new attribute, new and
+ * changed attributes are written with a single upsert statement rather than an insert. If
+ * nothing changes, nothing is written. Otherwise, the last modified date of the source is
+ * updated, which also publishes the change of the source to the audit log and the change
+ * stream.</p>
+ */
+@Service
+@Transactional
+public class SourceMetadataService {
+
+    private static final String SUBJECT_QUERY = "select authority.name, project.projectName "
+            + "from Subject subject join subject.user user left join user.roles role "
+            + "left join role.authority authority left join role.project project "
+            + "where user.login = :login order by role.id";
+
+    private static final String SUBJECT_SOURCE_QUERY = "select source from Source source "
+            + "left join fetch source.project join source.subjects subject "
+            + "where subject.user.login = :login and source.sourceName = :sourceName";
+
+    private static final String ATTRIBUTE_QUERY = "select key(attributes), value(attributes) "
+            + "from Source source join source.attributes attributes "
+            + "where source.id = :id and key(attributes) in :keys";
+
+    private static final String MERGE_ATTRIBUTE = "merge into source_metadata "
+            + "(id, attribute_key, attribute_value) key (id, attribute_key) "
+            + "values (:id, :key, :value)";
+
+    private static final String UPSERT_ATTRIBUTE = "insert into source_metadata "
+            + "(id, attribute_key, attribute_value) values (:id, :key, :value) "
+            + "on conflict (id, attribute_key) do update "
+            + "set attribute_value = excluded.attribute_value";
+
+    private static final String DELETE_ATTRIBUTES = "delete from source_metadata "
+            + "where id = :id and attribute_key in (:keys)";
+
+    private final Logger log = LoggerFactory.getLogger(SourceMetadataService.class);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private volatile String upsertAttribute;
+
+    /**
+     * Get a subject with only its login and project set, to check the permissions on the subject
+     * with a single query. As in the subject mapper, the project of the first participant role is
+     * used, or of the first inactive participant role if the subject has no participant role.
+     *
+     * @param login login of the subject
+     * @return the subject, or an empty optional if the subject does not exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<SubjectDTO> findSubject(String login) {
+        List<Object[]> roles = entityManager.createQuery(SUBJECT_QUERY, Object[].class)
+                .setParameter("login", login)
+                .getResultList();
+        if (roles.isEmpty()) {
+            return Optional.empty();
+        }
+        SubjectDTO subject = new SubjectDTO();
+        subject.setLogin(login);
+        Optional<Object[]> role = roles.stream()
+                .filter(r -> PARTICIPANT.equals(r[0]))
+                .findFirst();
+        if (!role.isPresent()) {
+            role = roles.stream()
+                    .filter(r -> INACTIVE_PARTICIPANT.equals(r[0]))
+                    .findFirst();
+        }
+        ProjectDTO project = new ProjectDTO();
+        role.ifPresent(r -> project.setProjectName((String) r[1]));
+        subject.setProject(project);
+        return Optional.of(subject);
+    }
+
+    /**
+     * Get a source that is assigned to a subject, with its project.
+     *
+     * @param login login of the subject
+     * @param sourceName name of the source
+     * @return the source, or an empty optional if the subject has no such source
+     */
+    @Transactional(readOnly = true)
+    public Optional<Source> findSubjectSource(String login, String sourceName) {
+        return entityManager.createQuery(SUBJECT_SOURCE_QUERY, Source.class)
+                .setParameter("login", login)
+                .setParameter("sourceName", sourceName)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Set or remove attributes of a source. Attributes that are not given are not changed.
+     *
+     * @param sourceId ID of the source
+     * @param attributes the attributes to set, with a {@code null} value for attributes to remove
+     * @return whether any attribute changed
+     */
+    public boolean patchAttributes(Long sourceId, Map<String, String> attributes) {
+        log.debug("Request to patch attributes {} of Source : {}", attributes.keySet(), sourceId);
+        if (attributes.isEmpty()) {
+            return false;
+        }
+        if (attributes.keySet().stream().anyMatch(key -> key == null || key.trim().isEmpty())) {
+            throw new CustomParameterizedException("error.invalidAttributeKey",
+                    Collections.singletonMap("message", "Attribute keys must not be empty."));
+        }
+
+        Map<String, String> current = new HashMap<>();
+        entityManager.createQuery(ATTRIBUTE_QUERY, Object[].class)
+                .setParameter("id", sourceId)
+                .setParameter("keys", attributes.keySet())
+                .getResultList()
+                .forEach(row -> current.put((String) row[0], (String) row[1]));
+
+        List<String> removed = new ArrayList<>();
+        int changes = 0;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            String key = attribute.getKey();
+            String value = attribute.getValue();
+            if (value == null) {
+                if (current.containsKey(key)) {
+                    removed.add(key);
+                }
+            } else if (!current.containsKey(key) || !Objects.equals(current.get(key), value)) {
+                // a concurrent request may have inserted the attribute after it was read
+                upsert(sourceId, key, value);
+                changes++;
+            }
+        }
+        if (!removed.isEmpty()) {
+            entityManager.createNativeQuery(DELETE_ATTRIBUTES)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("source_metadata")
+                    .setParameter("id", sourceId)
+                    .setParameterList("keys", removed)
+                    .executeUpdate();
+            changes += removed.size();
+        }
+        if (changes == 0) {
+            return false;
+        }
+
+        Source source = entityManager.find(Source.class, sourceId);
+        // the source is only updated by its entity listeners if one of its fields changed
+        source.setLastModifiedDate(ZonedDateTime.now());
+        // attributes that were loaded before are outdated, so they are read again when needed
+        entityManager.flush();
+        entityManager.detach(source);
+        return true;
+    }
+
+    private void upsert(Long sourceId, String key, String value) {
+        entityManager.createNativeQuery(upsertAttribute())
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("source_metadata")
+                .setParameter("id", sourceId)
+                .setParameter("key", key)
+                .setParameter("value", value)
+                .executeUpdate();
+    }
+
+    /**
+     * Statement that inserts an attribute or updates its value if it already exists. H2 does
+     * not support the PostgreSQL {@code on conflict} clause, so it uses a merge instead.
+     */
+    private String upsertAttribute() {
+        String statement = upsertAttribute;
+        if (statement == null) {
+            Dialect dialect = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            statement = dialect instanceof H2Dialect ? MERGE_ATTRIBUTE : UPSERT_ATTRIBUTE;
+            upsertAttribute = statement;
+        }
+        return statement;
+    }
+}
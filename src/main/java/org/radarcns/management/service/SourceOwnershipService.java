@@ -0,0 +1,310 @@
+package org.radarcns.management.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.ITopic;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.radarcns.management.service.dto.EntityChangeDTO;
+import org.radarcns.management.service.dto.EntityChangeDTO.Action;
+import org.radarcns.management.service.dto.EntityChangeDTO.EntityType;
+import org.radarcns.management.service.dto.SourceOwnershipDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for looking up the subject and project that a source belongs to, by source ID.
+ *
+ * <p>Ownerships are kept in memory. The index is filled when the application starts and is kept
+ * up to date with the subject and source changes that {@link ChangeStreamService} publishes on
+ * the cluster once their transaction commits: the ownership of a changed source, or of the
+ * sources of a changed subject, is read again from the database. On a subject change, the
+ * sources indexed for that subject are removed first, so sources that it no longer has are
+ * looked up again when they are needed. A source that is not in the index is looked up in the
+ * database, so sources that were created since are found too.</p>
+ *
+ * <p>A lookup may read a source before a change of it or of its subject commits, and index it
+ * after the change was applied. Therefore, every update has a generation, which is stored for
+ * the updated source or subject. A lookup only indexes a source if neither the source nor the
+ * subject that it read was updated after the lookup started.</p>
+ */
+@Service
+public class SourceOwnershipService {
+
+    private static final String OWNERSHIP_QUERY = "select source.id, source.sourceId, "
+            + "source.sourceName, user.login, project.projectName, source.assigned "
+            + "from Source source left join source.project project "
+            + "left join source.subjects subject left join subject.user user";
+
+    private final Logger log = LoggerFactory.getLogger(SourceOwnershipService.class);
+
+    /** Ownership by source ID. */
+    private final Map<UUID, SourceOwnershipDTO> index = new ConcurrentHashMap<>();
+
+    /** Source ID by entity ID, to update the index when a source changes. */
+    private final Map<Long, UUID> sourceIds = new HashMap<>();
+
+    /** Entity IDs of the indexed sources of each subject, by login. */
+    private final Map<String, Set<Long>> subjectSources = new HashMap<>();
+
+    /** Generation of the last update of each source, by entity ID. */
+    private final Map<Long, Long> sourceGenerations = new HashMap<>();
+
+    /** Generation of the last update of each subject, by login. */
+    private final Map<String, Long> subjectGenerations = new HashMap<>();
+
+    /** Number of updates, to tell whether a lookup may have read outdated rows. */
+    private long generation;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ITopic<EntityChangeDTO> topic;
+
+    private String listenerId;
+
+    /**
+     * Listen to changes before filling the index, so that no change is missed.
+     */
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        topic = hazelcastInstance.getTopic(ChangeStreamService.TOPIC_NAME);
+        listenerId = topic.addMessageListener(message -> update(message.getMessageObject()));
+    }
+
+    /**
+     * Stop listening to changes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            topic.removeMessageListener(listenerId);
+        } catch (HazelcastInstanceNotActiveException ex) {
+            log.debug("Hazelcast was already shut down");
+        }
+    }
+
+    /**
+     * Fill the index with the ownership of all sources.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void warmUp() {
+        long readGeneration = currentGeneration();
+        putAll(query("", null, null), readGeneration);
+        log.info("Indexed the ownership of {} sources", index.size());
+    }
+
+    /**
+     * Get the ownership of a source.
+     *
+     * @param sourceId source ID of the source
+     * @return the ownership, or an empty optional if there is no source with given source ID
+     */
+    public Optional<SourceOwnershipDTO> findOne(UUID sourceId) {
+        SourceOwnershipDTO ownership = index.get(sourceId);
+        if (ownership != null) {
+            return Optional.of(ownership);
+        }
+        long readGeneration = currentGeneration();
+        return putAll(query(" where source.sourceId = :sourceId", "sourceId", sourceId),
+                readGeneration)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Get the ownership of many sources. Sources that are not in the index are looked up in the
+     * database together.
+     *
+     * @param sourceIds source IDs of the sources
+     * @return the ownership of the sources that exist, in the order of the given source IDs
+     */
+    public List<SourceOwnershipDTO> findAll(Collection<UUID> sourceIds) {
+        Map<UUID, SourceOwnershipDTO> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID sourceId : sourceIds) {
+            SourceOwnershipDTO ownership = index.get(sourceId);
+            if (ownership != null) {
+                found.put(sourceId, ownership);
+            } else if (!found.containsKey(sourceId)) {
+                found.put(sourceId, null);
+                missing.add(sourceId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long readGeneration = currentGeneration();
+            putAll(query(" where source.sourceId in :sourceIds", "sourceIds", missing),
+                    readGeneration)
+                    .forEach(ownership -> found.put(ownership.getSourceId(), ownership));
+        }
+        return sourceIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Update the index with a subject or source change. The ownership of the changed source, or
+     * of the sources of the changed subject, is removed first, and lookups that read it before
+     * this update will not index it again.
+     *
+     * @param change the change
+     */
+    public void update(EntityChangeDTO change) {
+        boolean isSource = change.getEntityType() == EntityType.SOURCE;
+        long updateGeneration = isSource ? invalidateSource(change.getId())
+                : invalidateSubject(change.getName());
+        try {
+            if (!isSource) {
+                // sources that the subject no longer has are not found through the subject
+                putUpdated(query(" where subject.id = :id", "id", change.getId()),
+                        updateGeneration);
+            } else if (change.getAction() != Action.REMOVED) {
+                putUpdated(query(" where source.id = :id", "id", change.getId()),
+                        updateGeneration);
+            }
+        } catch (RuntimeException ex) {
+            // drop the ownership, so that it is looked up again when it is needed
+            log.warn("Failed to update source ownership with change {}: {}", change,
+                    ex.toString());
+            if (isSource) {
+                invalidateSource(change.getId());
+            } else {
+                invalidateSubject(change.getName());
+            }
+        }
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /** Start an update of a source, by removing its ownership. */
+    private synchronized long invalidateSource(Long id) {
+        generation++;
+        sourceGenerations.put(id, generation);
+        remove(id);
+        return generation;
+    }
+
+    /** Start an update of a subject, by removing the ownership of all its indexed sources. */
+    private synchronized long invalidateSubject(String login) {
+        generation++;
+        if (login != null) {
+            subjectGenerations.put(login, generation);
+            Set<Long> ids = subjectSources.remove(login);
+            if (ids != null) {
+                ids.forEach(this::remove);
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Index the ownership of sources that were read after given generation, unless the sources
+     * or the subjects that they belonged to were updated since, in which case the rows may have
+     * been read before the update was committed.
+     *
+     * @return the ownership of all rows, also if they were not indexed
+     */
+    private synchronized List<SourceOwnershipDTO> putAll(List<Object[]> rows,
+            long readGeneration) {
+        List<SourceOwnershipDTO> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            SourceOwnershipDTO ownership = toOwnership(row);
+            String login = ownership.getSubjectLogin();
+            if (sourceGenerations.getOrDefault(id, 0L) <= readGeneration
+                    && (login == null
+                    || subjectGenerations.getOrDefault(login, 0L) <= readGeneration)) {
+                put(id, ownership);
+            }
+            result.add(ownership);
+        }
+        return result;
+    }
+
+    /** Index the ownership of sources that were read by an update. */
+    private synchronized void putUpdated(List<Object[]> rows, long updateGeneration) {
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            sourceGenerations.put(id, updateGeneration);
+            put(id, toOwnership(row));
+        }
+    }
+
+    private List<Object[]> query(String where, String parameter, Object value) {
+        return transactionTemplate.execute(status -> {
+            TypedQuery<Object[]> query = entityManager.createQuery(
+                    OWNERSHIP_QUERY + where, Object[].class);
+            if (parameter != null) {
+                query.setParameter(parameter, value);
+            }
+            return query.getResultList();
+        });
+    }
+
+    private static SourceOwnershipDTO toOwnership(Object[] row) {
+        return new SourceOwnershipDTO((UUID) row[1], (String) row[2], (String) row[3],
+                (String) row[4], Boolean.TRUE.equals(row[5]));
+    }
+
+    /** Index the ownership of a source. Must be called while holding the lock. */
+    private void put(Long id, SourceOwnershipDTO ownership) {
+        remove(id);
+        sourceIds.put(id, ownership.getSourceId());
+        index.put(ownership.getSourceId(), ownership);
+        if (ownership.getSubjectLogin() != null) {
+            subjectSources.computeIfAbsent(ownership.getSubjectLogin(), login -> new HashSet<>())
+                    .add(id);
+        }
+    }
+
+    /** Remove the ownership of a source. Must be called while holding the lock. */
+    private void remove(Long id) {
+        UUID sourceId = sourceIds.remove(id);
+        if (sourceId == null) {
+            return;
+        }
+        SourceOwnershipDTO ownership = index.remove(sourceId);
+        if (ownership != null && ownership.getSubjectLogin() != null) {
+            Set<Long> ids = subjectSources.get(ownership.getSubjectLogin());
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    subjectSources.remove(ownership.getSubjectLogin());
+                }
+            }
+        }
+    }
+}
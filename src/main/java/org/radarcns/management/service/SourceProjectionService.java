@@ -0,0 +1,172 @@
+package org.radarcns.management.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for reading pages of minimal source details directly from scalar queries, without
+ * loading any entities.
+ *
+ * <p>The sources of a page are read together with the identifying fields of their source type in
+ * a single projection, and their attributes are read with one more query. The source types and
+ * projects of the sources are never loaded.</p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class SourceProjectionService {
+
+    /**
+     * Fields of a source and its source type that make up its minimal details, to select from
+     * {@code Source source left join source.sourceType sourceType}.
+     */
+    public static final String SOURCE_FIELDS = "source.id, source.sourceId, source.sourceName, "
+            + "source.expectedSourceName, source.assigned, sourceType.id, sourceType.producer, "
+            + "sourceType.model, sourceType.catalogVersion";
+
+    private static final String SOURCE_QUERY = "select " + SOURCE_FIELDS + " "
+            + "from Source source left join source.sourceType sourceType "
+            + "where source.project.id = :projectId";
+
+    private static final String COUNT_QUERY = "select count(source.id) from Source source "
+            + "where source.project.id = :projectId";
+
+    private static final String ASSIGNED_CONDITION = " and source.assigned = :assigned";
+
+    /** Properties of a source that pages may be sorted by, with their selected expressions. */
+    private static final Map<String, String> SORT_PROPERTIES = new HashMap<>();
+
+    static {
+        SORT_PROPERTIES.put("id", "source.id");
+        SORT_PROPERTIES.put("sourceId", "source.sourceId");
+        SORT_PROPERTIES.put("sourceName", "source.sourceName");
+        SORT_PROPERTIES.put("expectedSourceName", "source.expectedSourceName");
+        SORT_PROPERTIES.put("assigned", "source.assigned");
+        SORT_PROPERTIES.put("sourceType.id", "sourceType.id");
+        SORT_PROPERTIES.put("sourceType.producer", "sourceType.producer");
+        SORT_PROPERTIES.put("sourceType.model", "sourceType.model");
+        SORT_PROPERTIES.put("sourceType.catalogVersion", "sourceType.catalogVersion");
+    }
+
+    private static final String ATTRIBUTE_QUERY = "select source.id, key(attributes), "
+            + "value(attributes) from Source source join source.attributes attributes "
+            + "where source.id in :ids";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Get a page of the sources of a project, in the requested order. Sources are ordered by ID
+     * after the requested properties, so that pages do not overlap.
+     *
+     * @param projectId the project to get the sources of
+     * @param assigned whether the sources should be assigned, or {@code null} to get all sources
+     * @param pageable the page to get
+     * @return the requested page of sources, with their attributes
+     * @throws CustomParameterizedException if the sources cannot be sorted by a requested
+     *     property
+     */
+    public Page<MinimalSourceDetailsDTO> findAllByProjectId(Long projectId, Boolean assigned,
+            Pageable pageable) {
+        String condition = assigned != null ? ASSIGNED_CONDITION : "";
+        List<Object[]> rows = setParameters(entityManager.createQuery(
+                SOURCE_QUERY + condition + orderBy(pageable.getSort()), Object[].class),
+                projectId, assigned)
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        Map<Long, MinimalSourceDetailsDTO> sources = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            MinimalSourceDetailsDTO source = toSource(row);
+            sources.put(source.getId(), source);
+        }
+        addAttributes(sources);
+
+        long total;
+        if (pageable.getOffset() == 0 && rows.size() < pageable.getPageSize()) {
+            // the first page is not full, so there are no more results to count
+            total = rows.size();
+        } else {
+            total = setParameters(entityManager.createQuery(COUNT_QUERY + condition, Long.class),
+                    projectId, assigned)
+                    .getSingleResult();
+        }
+        return new PageImpl<>(new ArrayList<>(sources.values()), pageable, total);
+    }
+
+    /**
+     * Read the attributes of sources with one query.
+     *
+     * @param sources the sources to add the attributes to, by ID
+     */
+    public void addAttributes(Map<Long, MinimalSourceDetailsDTO> sources) {
+        if (!sources.isEmpty()) {
+            entityManager.createQuery(ATTRIBUTE_QUERY, Object[].class)
+                    .setParameter("ids", sources.keySet())
+                    .getResultList()
+                    .forEach(row -> sources.get((Long) row[0]).getAttributes()
+                            .put((String) row[1], (String) row[2]));
+        }
+    }
+
+    private static String orderBy(Sort sort) {
+        StringBuilder orderBy = new StringBuilder(" order by ");
+        if (sort != null) {
+            for (Sort.Order order : sort) {
+                String expression = SORT_PROPERTIES.get(order.getProperty());
+                if (expression == null) {
+                    throw new CustomParameterizedException("error.invalidSort",
+                            order.getProperty());
+                }
+                orderBy.append(expression)
+                        .append(order.isAscending() ? " asc" : " desc")
+                        .append(", ");
+            }
+        }
+        return orderBy.append("source.id").toString();
+    }
+
+    private static <T> TypedQuery<T> setParameters(TypedQuery<T> query, Long projectId,
+            Boolean assigned) {
+        query.setParameter("projectId", projectId);
+        if (assigned != null) {
+            query.setParameter("assigned", assigned);
+        }
+        return query;
+    }
+
+    /**
+     * Minimal source details from a row that starts with the {@link #SOURCE_FIELDS}.
+     *
+     * @param row the selected row
+     * @return the source, without attributes
+     */
+    public static MinimalSourceDetailsDTO toSource(Object[] row) {
+        MinimalSourceDetailsDTO source = new MinimalSourceDetailsDTO();
+        source.setId((Long) row[0]);
+        source.setSourceId((UUID) row[1]);
+        source.setSourceName((String) row[2]);
+        source.setExpectedSourceName((String) row[3]);
+        source.setAssigned((Boolean) row[4]);
+        source.setSourceTypeId((Long) row[5]);
+        source.setSourceTypeProducer((String) row[6]);
+        source.setSourceTypeModel((String) row[7]);
+        source.setSourceTypeCatalogVersion((String) row[8]);
+        return source;
+    }
+}
@@ -0,0 +1,229 @@
+package org.radarcns.management.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.radarcns.auth.config.Constants;
+import org.radarcns.management.domain.Project;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.domain.support.EventPublisherEntityListener;
+import org.radarcns.management.repository.CustomAuditEventRepository;
+import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SourceDTO;
+import org.radarcns.management.service.dto.SourceProvisioningResultDTO;
+import org.radarcns.management.service.util.SourceRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for provisioning many sources of one source type in a project at once.
+ *
+ * <p>Sources are provisioned in chunks. For each chunk, the source names, including the names
+ * that are generated for sources without one, are checked for uniqueness in one query and the
+ * sources are saved in a single transaction, in JDBC batches. Their audit events are saved
+ * together, in the same transaction. The persistence context is cleared after each chunk, so
+ * memory use does not grow with the number of sources.</p>
+ */
+@Service
+public class SourceProvisioningService {
+
+    /** Number of sources saved per transaction. */
+    public static final int CHUNK_SIZE = 500;
+
+    private static final Pattern SOURCE_NAME_PATTERN = Pattern.compile(
+            Constants.ENTITY_ID_REGEX);
+
+    private final Logger log = LoggerFactory.getLogger(SourceProvisioningService.class);
+
+    @Autowired
+    private SourceRepository sourceRepository;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private CustomAuditEventRepository auditEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Provision all sources read from the reader in a project, as unassigned sources of given
+     * source type. A row fails if it is malformed, if the source has an ID or a source ID, or if
+     * its name is invalid or already taken. Sources without a name get a generated one. If a
+     * chunk cannot be saved, all rows of that chunk fail.
+     *
+     * @param project the project to provision the sources in
+     * @param sourceTypeId ID of the source type of the sources, which must be a source type of
+     *                     the project
+     * @param reader the sources to provision
+     * @param results consumer of the result of each row, called in row order once the row's chunk
+     *                has been saved
+     * @throws IOException if the sources cannot be read
+     */
+    public void provision(ProjectDTO project, Long sourceTypeId, SourceRowReader reader,
+            Consumer<SourceProvisioningResultDTO> results) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SourceType sourceType = transactionTemplate.execute(status ->
+                entityManager.find(SourceType.class, sourceTypeId));
+
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (true) {
+            Row row;
+            try {
+                SourceDTO source = reader.next();
+                if (source == null) {
+                    break;
+                }
+                row = new Row(reader.getRowNumber(), source);
+            } catch (IllegalArgumentException ex) {
+                row = new Row(reader.getRowNumber(), null);
+                row.error = ex.getMessage();
+            }
+            chunk.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                provisionChunk(transactionTemplate, project, sourceType, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            provisionChunk(transactionTemplate, project, sourceType, chunk, results);
+        }
+    }
+
+    private void provisionChunk(TransactionTemplate transactionTemplate, ProjectDTO project,
+            SourceType sourceType, List<Row> chunk,
+            Consumer<SourceProvisioningResultDTO> results) {
+        List<Row> valid = validate(sourceType, chunk);
+
+        try {
+            transactionTemplate.execute(status -> {
+                // add the audit events of all sources at once, after they have been saved
+                EventPublisherEntityListener.deferEvents();
+                Project projectReference = entityManager.getReference(Project.class,
+                        project.getId());
+                for (Row row : valid) {
+                    row.entity.setProject(projectReference);
+                    entityManager.persist(row.entity);
+                }
+                entityManager.flush();
+                projectStatisticsService.countSources(valid.stream()
+                        .map(row -> row.entity.getId())
+                        .collect(Collectors.toList()), 1);
+                // save the audit events in the same transaction, so they are only rolled back
+                // together with the sources
+                auditEventRepository.addAll(EventPublisherEntityListener.takeDeferredEvents());
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            EventPublisherEntityListener.takeDeferredEvents();
+            log.warn("Failed to provision sources in project {}: {}", project.getProjectName(),
+                    ex.toString());
+            for (Row row : valid) {
+                row.error = "Source could not be saved: " + ex.getMessage();
+            }
+        }
+
+        for (Row row : chunk) {
+            results.accept(row.toResult());
+        }
+    }
+
+    /**
+     * Create the sources of the rows that can be provisioned, and mark the other rows with an
+     * error.
+     *
+     * @return rows without errors
+     */
+    private List<Row> validate(SourceType sourceType, List<Row> chunk) {
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error != null) {
+                continue;
+            }
+            SourceDTO sourceDto = row.source;
+            if (sourceDto.getId() != null) {
+                row.error = "A new source cannot already have an ID";
+            } else if (sourceDto.getSourceId() != null) {
+                row.error = "A new source cannot already have a Source ID";
+            } else if (sourceDto.getSourceName() != null
+                    && !SOURCE_NAME_PATTERN.matcher(sourceDto.getSourceName()).matches()) {
+                row.error = "Source name contains invalid characters";
+            } else {
+                row.entity = new Source()
+                        .sourceName(sourceDto.getSourceName())
+                        .sourceType(sourceType)
+                        .assigned(false);
+                row.entity.setExpectedSourceName(sourceDto.getExpectedSourceName());
+                if (sourceDto.getAttributes() != null) {
+                    row.entity.setAttributes(new HashMap<>(sourceDto.getAttributes()));
+                }
+                // generate the source ID and any missing name now, so that it is checked too
+                row.entity.generateUuid();
+                rows.add(row);
+            }
+        }
+
+        Set<String> names = rows.stream()
+                .map(row -> row.entity.getSourceName())
+                .collect(Collectors.toSet());
+        Set<String> existingNames = names.isEmpty() ? new HashSet<>()
+                : new HashSet<>(sourceRepository.findSourceNamesIn(names));
+
+        List<Row> valid = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (!existingNames.add(row.entity.getSourceName())) {
+                row.error = "Source name already in use";
+                row.entity = null;
+            } else {
+                valid.add(row);
+            }
+        }
+        return valid;
+    }
+
+    /** A row to provision and its result. */
+    private static class Row {
+
+        private final long number;
+
+        private final SourceDTO source;
+
+        private Source entity;
+
+        private String error;
+
+        private Row(long number, SourceDTO source) {
+            this.number = number;
+            this.source = source;
+        }
+
+        private SourceProvisioningResultDTO toResult() {
+            String sourceName = source != null ? source.getSourceName() : null;
+            if (error != null || entity == null || entity.getId() == null) {
+                return SourceProvisioningResultDTO.failed(number, sourceName,
+                        error != null ? error : "Source was not saved");
+            }
+            return SourceProvisioningResultDTO.created(number, entity.getId(),
+                    entity.getSourceId(), entity.getSourceName());
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package org.radarcns.management.service;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collections;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.Tombstone;
+import org.radarcns.management.domain.enumeration.TombstoneType;
 import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.repository.TombstoneRepository;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.SourceDTO;
 import org.radarcns.management.service.mapper.SourceMapper;
@@ -32,6 +33,15 @@ public class SourceService {
     @Autowired
     private SourceMapper sourceMapper;
 
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private SourceProjectionService sourceProjectionService;
+
     /**
      * Save a Source.
      *
@@ -40,24 +50,15 @@ public class SourceService {
      */
     public SourceDTO save(SourceDTO sourceDto) {
         log.debug("Request to save Source : {}", sourceDto);
+        if (sourceDto.getId() != null) {
+            projectStatisticsService.countSources(Collections.singleton(sourceDto.getId()), -1);
+        }
         Source source = sourceMapper.sourceDTOToSource(sourceDto);
         source = sourceRepository.save(source);
+        projectStatisticsService.countSources(Collections.singleton(source.getId()), 1);
         return sourceMapper.sourceToSourceDTO(source);
     }
 
-    /**
-     * Get all the Sources.
-     *
-     * @return the list of entities
-     */
-    @Transactional(readOnly = true)
-    public List<SourceDTO> findAll() {
-        return sourceRepository.findAll()
-                .stream()
-                .map(sourceMapper::sourceToSourceDTO)
-                .collect(Collectors.toCollection(LinkedList::new));
-    }
-
     /**
      * Get all the sourceData with pagination.
      *
@@ -66,7 +67,7 @@ public class SourceService {
     @Transactional(readOnly = true)
     public Page<SourceDTO> findAll(Pageable pageable) {
         log.debug("Request to get SourceData with pagination");
-        return sourceRepository.findAll(pageable)
+        return sourceRepository.findAllWithEagerRelationships(pageable)
                 .map(sourceMapper::sourceToSourceDTO);
     }
 
@@ -84,13 +85,21 @@ public class SourceService {
     }
 
     /**
-     * Delete the  device by id.
+     * Delete the  device by id. A tombstone is kept so that clients synchronizing the changes of
+     * its project can remove the source too.
      *
      * @param id the id of the entity
      */
     public void delete(Long id) {
         log.debug("Request to delete Source : {}", id);
-        sourceRepository.delete(id);
+        Source source = sourceRepository.findOne(id);
+        if (source == null) {
+            return;
+        }
+        projectStatisticsService.countSources(Collections.singleton(id), -1);
+        sourceRepository.delete(source);
+        tombstoneRepository.save(new Tombstone(TombstoneType.SOURCE, id, source.getSourceName(),
+                source.getProject() != null ? source.getProject().getId() : null));
     }
 
     /**
@@ -98,37 +107,41 @@ public class SourceService {
      *
      * @return list of sources
      */
+    @Transactional(readOnly = true)
     public Page<SourceDTO> findAllByProjectId(Long projectId, Pageable pageable) {
         return sourceRepository.findAllSourcesByProjectId(pageable, projectId)
                 .map(sourceMapper::sourceToSourceDTO);
     }
 
     /**
-     * Returns all sources by project in {@link MinimalSourceDetailsDTO} format.
+     * Returns all sources by project in {@link MinimalSourceDetailsDTO} format. The source types
+     * and projects of the sources are not loaded.
      *
      * @return list of sources
      */
+    @Transactional(readOnly = true)
     public Page<MinimalSourceDetailsDTO> findAllMinimalSourceDetailsByProject(Long projectId,
             Pageable pageable) {
-        return sourceRepository.findAllSourcesByProjectId(pageable, projectId)
-                .map(sourceMapper::sourceToMinimalSourceDetailsDTO);
+        return sourceProjectionService.findAllByProjectId(projectId, null, pageable);
     }
 
     /**
-     * Returns list of not-assigned sources by project id.
+     * Returns assigned or not-assigned sources by project id.
      */
-    public List<SourceDTO> findAllByProjectAndAssigned(Long projectId, boolean assigned) {
-        return sourceMapper.sourcesToSourceDTOs(
-                sourceRepository.findAllSourcesByProjectIdAndAssigned(projectId, assigned));
+    @Transactional(readOnly = true)
+    public Page<SourceDTO> findAllByProjectAndAssigned(Long projectId, boolean assigned,
+            Pageable pageable) {
+        return sourceRepository.findAllSourcesByProjectIdAndAssigned(pageable, projectId, assigned)
+                .map(sourceMapper::sourceToSourceDTO);
     }
 
     /**
-     * Returns list of not-assigned sources by project id.
+     * Returns assigned or not-assigned sources by project id in {@link MinimalSourceDetailsDTO}
+     * format. The source types and projects of the sources are not loaded.
      */
-    public List<MinimalSourceDetailsDTO> findAllMinimalSourceDetailsByProjectAndAssigned(
-            Long projectId, boolean assigned) {
-        return sourceRepository.findAllSourcesByProjectIdAndAssigned(projectId, assigned).stream()
-                .map(sourceMapper::sourceToMinimalSourceDetailsDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public Page<MinimalSourceDetailsDTO> findAllMinimalSourceDetailsByProjectAndAssigned(
+            Long projectId, boolean assigned, Pageable pageable) {
+        return sourceProjectionService.findAllByProjectId(projectId, assigned, pageable);
     }
 }
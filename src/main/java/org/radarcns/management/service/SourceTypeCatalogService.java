@@ -0,0 +1,213 @@
+package org.radarcns.management.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.catalog.SourceTypeCatalog;
+import org.radarcns.management.service.mapper.SourceTypeMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service that holds an immutable snapshot of all source types, so that source types can be read
+ * without querying the database.
+ *
+ * <p>A new snapshot is created once a transaction that writes a source type or source data
+ * commits, and the other nodes of the cluster are notified on a Hazelcast topic to create a new
+ * snapshot too. Readers always see a complete snapshot. Within a transaction that wrote a source
+ * type or source data, the source types are read from the database instead, so that the
+ * transaction sees its own writes. Cached responses with source types or source data are
+ * invalidated whenever a new snapshot is created.</p>
+ */
+@Service
+public class SourceTypeCatalogService {
+
+    /** Name of the Hazelcast topic that source type changes are published on. */
+    public static final String TOPIC_NAME = "source-type-changes";
+
+    private final Logger log = LoggerFactory.getLogger(SourceTypeCatalogService.class);
+
+    /** Key of the current transaction having written source types. */
+    private final Object transactionKey = new Object();
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private SourceTypeMapper sourceTypeMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ITopic<String> topic;
+
+    private String listenerId;
+
+    private volatile SourceTypeCatalog catalog;
+
+    /**
+     * Listen to source type changes of other nodes.
+     */
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        topic = hazelcastInstance.getTopic(TOPIC_NAME);
+        listenerId = topic.addMessageListener(this::onMessage);
+    }
+
+    /**
+     * Stop listening to source type changes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            topic.removeMessageListener(listenerId);
+        } catch (HazelcastInstanceNotActiveException ex) {
+            log.debug("Hazelcast was already shut down");
+        }
+    }
+
+    /**
+     * Create the first snapshot.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void warmUp() {
+        refresh();
+    }
+
+    /**
+     * Get the current snapshot of the source types.
+     *
+     * @return the snapshot
+     */
+    public SourceTypeCatalog getCatalog() {
+        if (TransactionSynchronizationManager.hasResource(transactionKey)) {
+            return load();
+        }
+        SourceTypeCatalog current = catalog;
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Register that a source type or source data was written. Once the current transaction
+     * commits, a new snapshot is created and the other nodes are notified.
+     */
+    public void catalogChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshOrReset("this node");
+            publish();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(transactionKey)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(transactionKey, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        // the other nodes must refresh even if this node fails to
+                        refreshOrReset("this node");
+                        publish();
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(
+                                transactionKey);
+                    }
+                });
+    }
+
+    /**
+     * Replace the snapshot with the source types that are currently in the database. If they
+     * cannot be loaded, the snapshot is dropped, so that it is loaded again when it is needed.
+     * Cached responses are invalidated in either case.
+     *
+     * @return the new snapshot
+     */
+    public synchronized SourceTypeCatalog refresh() {
+        try {
+            SourceTypeCatalog result = transactionTemplate.execute(status -> load());
+            catalog = result;
+            log.debug("Loaded {} source types", result.size());
+            return result;
+        } catch (RuntimeException ex) {
+            catalog = null;
+            throw ex;
+        } finally {
+            invalidateResponses();
+        }
+    }
+
+    private SourceTypeCatalog load() {
+        return SourceTypeCatalog.of(sourceTypeMapper.sourceTypesToSourceTypeDTOs(
+                sourceTypeRepository.findAllWithEagerRelationships()), objectMapper);
+    }
+
+    private void publish() {
+        try {
+            topic.publish(hazelcastInstance.getCluster().getLocalMember().getUuid());
+        } catch (HazelcastInstanceNotActiveException ex) {
+            log.debug("Hazelcast was already shut down");
+        }
+    }
+
+    private void onMessage(Message<String> message) {
+        if (message.getPublishingMember() != null
+                && message.getPublishingMember().localMember()) {
+            return;
+        }
+        refreshOrReset(message.getMessageObject());
+    }
+
+    /**
+     * Replace the snapshot, or only log the failure if the source types cannot be loaded, in
+     * which case {@link #refresh()} drops the snapshot.
+     *
+     * @param changedBy the node that changed the source types, for logging
+     */
+    private void refreshOrReset(String changedBy) {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Failed to load source types changed by {}: {}", changedBy,
+                    ex.toString());
+        }
+    }
+
+    private void invalidateResponses() {
+        responseCacheService.invalidate(ResponseCacheService.SOURCE_TYPES);
+        responseCacheService.invalidate(ResponseCacheService.SOURCE_DATA);
+    }
+}
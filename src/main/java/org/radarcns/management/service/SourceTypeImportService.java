@@ -0,0 +1,265 @@
+package org.radarcns.management.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.radarcns.management.domain.SourceData;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.repository.SourceDataRepository;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.catalog.CatalogSourceData;
+import org.radarcns.management.service.catalog.CatalogSourceType;
+import org.radarcns.management.service.mapper.CatalogSourceDataMapper;
+import org.radarcns.management.service.mapper.CatalogSourceTypeMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for importing the source types of the catalog server.
+ *
+ * <p>The source types of the catalog are compared with all source types in the database, which
+ * are read with a single query. New source types and source data are inserted in batches, and
+ * source types and source data of which the catalog definition changed are updated. Source data
+ * that is no longer in the catalog is kept, as is whether source data is enabled and whether
+ * a source type can be registered dynamically, since these may have been changed by an
+ * administrator.</p>
+ */
+@Service
+@Transactional
+public class SourceTypeImportService {
+
+    private final Logger log = LoggerFactory.getLogger(SourceTypeImportService.class);
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private SourceDataRepository sourceDataRepository;
+
+    @Autowired
+    private CatalogSourceTypeMapper catalogSourceTypeMapper;
+
+    @Autowired
+    private CatalogSourceDataMapper catalogSourceDataMapper;
+
+    /**
+     * Import source types of the catalog server.
+     *
+     * @param catalogSourceTypes the source types in the catalog
+     * @return the number of source types that were created, updated and unchanged
+     */
+    public ImportResult importSourceTypes(List<CatalogSourceType> catalogSourceTypes) {
+        ImportBatch batch = diff(catalogSourceTypes, findExisting());
+        save(batch);
+        return new ImportResult(batch.newSourceTypes.size(), batch.updated, batch.unchanged);
+    }
+
+    /** All source types in the database, with their source data, by key. */
+    private Map<String, SourceType> findExisting() {
+        Map<String, SourceType> existing = new HashMap<>();
+        for (SourceType sourceType : sourceTypeRepository.findAllWithEagerRelationships()) {
+            existing.put(key(sourceType), sourceType);
+        }
+        return existing;
+    }
+
+    /**
+     * Compare the catalog with the source types in the database. Existing source types and
+     * source data are updated in place; new ones are collected to be inserted.
+     */
+    private ImportBatch diff(List<CatalogSourceType> catalogSourceTypes,
+            Map<String, SourceType> existing) {
+        ImportBatch batch = new ImportBatch();
+        for (CatalogSourceType catalogSourceType : catalogSourceTypes) {
+            SourceType imported = catalogSourceTypeMapper
+                    .catalogSourceTypeToSourceType(catalogSourceType);
+            SourceType sourceType = existing.get(key(imported));
+            if (sourceType == null) {
+                imported.setSourceData(new HashSet<>());
+                existing.put(key(imported), imported);
+                batch.newSourceTypes.add(imported);
+                diffSourceData(imported, catalogSourceType, batch);
+                log.debug("Creating source type {}", key(imported));
+            } else {
+                boolean changed = updateSourceType(sourceType, imported);
+                if (diffSourceData(sourceType, catalogSourceType, batch) || changed) {
+                    log.debug("Updating source type {}", key(sourceType));
+                    batch.updated++;
+                } else {
+                    batch.unchanged++;
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Compare the source data of the catalog with the source data of a source type.
+     *
+     * @return whether any source data was added or changed
+     */
+    private boolean diffSourceData(SourceType sourceType, CatalogSourceType catalogSourceType,
+            ImportBatch batch) {
+        if (catalogSourceType.getData() == null) {
+            return false;
+        }
+        Map<String, SourceData> existingData = new HashMap<>();
+        for (SourceData sourceData : sourceType.getSourceData()) {
+            existingData.put(sourceData.getSourceDataType(), sourceData);
+        }
+        boolean changed = false;
+        for (CatalogSourceData catalogSourceData : catalogSourceType.getData()) {
+            SourceData importedData = catalogSourceDataMapper
+                    .catalogSourceDataToSourceData(catalogSourceData);
+            SourceData sourceData = existingData.get(importedData.getSourceDataType());
+            if (sourceData == null) {
+                // sourceDataName should be unique
+                // generated by combining sourceDataType and source-type configs
+                importedData.sourceDataName(key(sourceType).replace('/', '_') + "_"
+                        + importedData.getSourceDataType());
+                importedData.sourceType(sourceType);
+                sourceType.getSourceData().add(importedData);
+                existingData.put(importedData.getSourceDataType(), importedData);
+                batch.newSourceData.add(importedData);
+                changed = true;
+            } else if (updateSourceData(sourceData, importedData)) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /** Insert the new source types and source data of an import. */
+    private void save(ImportBatch batch) {
+        // new entities are inserted in JDBC batches, changed ones are updated on flush
+        sourceTypeRepository.save(batch.newSourceTypes);
+        sourceDataRepository.save(batch.newSourceData);
+    }
+
+    private static boolean updateSourceType(SourceType sourceType, SourceType imported) {
+        boolean changed = false;
+        if (!Objects.equals(sourceType.getName(), imported.getName())) {
+            sourceType.setName(imported.getName());
+            changed = true;
+        }
+        if (!Objects.equals(sourceType.getDescription(), imported.getDescription())) {
+            sourceType.setDescription(imported.getDescription());
+            changed = true;
+        }
+        if (!Objects.equals(sourceType.getAssessmentType(), imported.getAssessmentType())) {
+            sourceType.setAssessmentType(imported.getAssessmentType());
+            changed = true;
+        }
+        if (!Objects.equals(sourceType.getAppProvider(), imported.getAppProvider())) {
+            sourceType.setAppProvider(imported.getAppProvider());
+            changed = true;
+        }
+        if (imported.getSourceTypeScope() != null
+                && sourceType.getSourceTypeScope() != imported.getSourceTypeScope()) {
+            sourceType.setSourceTypeScope(imported.getSourceTypeScope());
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static boolean updateSourceData(SourceData sourceData, SourceData imported) {
+        boolean changed = false;
+        if (!Objects.equals(sourceData.getFrequency(), imported.getFrequency())) {
+            sourceData.setFrequency(imported.getFrequency());
+            changed = true;
+        }
+        if (!Objects.equals(sourceData.getUnit(), imported.getUnit())) {
+            sourceData.setUnit(imported.getUnit());
+            changed = true;
+        }
+        if (sourceData.getProcessingState() != imported.getProcessingState()) {
+            sourceData.setProcessingState(imported.getProcessingState());
+            changed = true;
+        }
+        if (!Objects.equals(sourceData.getKeySchema(), imported.getKeySchema())) {
+            sourceData.setKeySchema(imported.getKeySchema());
+            changed = true;
+        }
+        if (!Objects.equals(sourceData.getValueSchema(), imported.getValueSchema())) {
+            sourceData.setValueSchema(imported.getValueSchema());
+            changed = true;
+        }
+        if (!Objects.equals(sourceData.getTopic(), imported.getTopic())) {
+            sourceData.setTopic(imported.getTopic());
+            changed = true;
+        }
+        if (!Objects.equals(sourceData.getProvider(), imported.getProvider())) {
+            sourceData.setProvider(imported.getProvider());
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static String key(SourceType sourceType) {
+        return String.join("/", sourceType.getProducer(), sourceType.getModel(),
+                sourceType.getCatalogVersion());
+    }
+
+    /** New entities to insert and numbers of changed source types of an import. */
+    private static class ImportBatch {
+
+        private final List<SourceType> newSourceTypes = new ArrayList<>();
+
+        private final List<SourceData> newSourceData = new ArrayList<>();
+
+        private int updated;
+
+        private int unchanged;
+    }
+
+    /** Number of source types that were created, updated and unchanged by an import. */
+    public static class ImportResult {
+
+        private final int created;
+
+        private final int updated;
+
+        private final int unchanged;
+
+        /**
+         * Result of an import.
+         *
+         * @param created number of source types that were created
+         * @param updated number of source types of which the source type or its source data
+         *     changed
+         * @param unchanged number of source types that did not change
+         */
+        public ImportResult(int created, int updated, int unchanged) {
+            this.created = created;
+            this.updated = updated;
+            this.unchanged = unchanged;
+        }
+
+        public int getCreated() {
+            return created;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        @Override
+        public String toString() {
+            return "ImportResult{"
+                    + "created=" + created
+                    + ", updated=" + updated
+                    + ", unchanged=" + unchanged
+                    + '}';
+        }
+    }
+}
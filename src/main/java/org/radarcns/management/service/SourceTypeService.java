@@ -16,10 +16,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Service Implementation for managing SourceType.
@@ -42,6 +39,9 @@ public class SourceTypeService {
     @Autowired
     private ProjectMapper projectMapper;
 
+    @Autowired
+    private SourceTypeCatalogService sourceTypeCatalogService;
+
     /**
      * Save a sourceType.
      *
@@ -68,10 +68,7 @@ public class SourceTypeService {
     @Transactional(readOnly = true)
     public List<SourceTypeDTO> findAll() {
         log.debug("Request to get all SourceTypes");
-        List<SourceType> result = sourceTypeRepository.findAllWithEagerRelationships();
-        return result.stream().map(sourceTypeMapper::sourceTypeToSourceTypeDTO)
-                .collect(Collectors.toCollection(LinkedList::new));
-
+        return sourceTypeCatalogService.getCatalog().findAll();
     }
 
     /**
@@ -103,10 +100,9 @@ public class SourceTypeService {
             String version) {
         log.debug("Request to get SourceType by producer and model and version: {}, {}, {}",
                 producer, model, version);
-        Optional<SourceType> sourceType = sourceTypeRepository
-                .findOneWithEagerRelationshipsByProducerAndModelAndVersion(producer, model,
-                        version);
-        return sourceTypeMapper.sourceTypeToSourceTypeDTO(sourceType.orElse(null));
+        return sourceTypeCatalogService.getCatalog()
+                .findOne(producer, model, version)
+                .orElse(null);
     }
 
     /**
@@ -114,11 +110,7 @@ public class SourceTypeService {
      */
     public List<SourceTypeDTO> findByProducer(String producer) {
         log.debug("Request to get SourceType by producer: {}", producer);
-        List<SourceType> sourceTypes = sourceTypeRepository
-                .findWithEagerRelationshipsByProducer(producer);
-        List<SourceTypeDTO> sourceTypeDtos = sourceTypeMapper.sourceTypesToSourceTypeDTOs(
-                sourceTypes);
-        return sourceTypeDtos;
+        return sourceTypeCatalogService.getCatalog().findByProducer(producer);
     }
 
     /**
@@ -126,11 +118,7 @@ public class SourceTypeService {
      */
     public List<SourceTypeDTO> findByProducerAndModel(String producer, String model) {
         log.debug("Request to get SourceType by producer and model: {}, {}", producer, model);
-        List<SourceType> sourceTypes = sourceTypeRepository
-                .findWithEagerRelationshipsByProducerAndModel(producer, model);
-        List<SourceTypeDTO> sourceTypeDtos = sourceTypeMapper.sourceTypesToSourceTypeDTOs(
-                sourceTypes);
-        return sourceTypeDtos;
+        return sourceTypeCatalogService.getCatalog().findByProducerAndModel(producer, model);
     }
 
     /**
@@ -0,0 +1,316 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.radarcns.management.domain.Role;
+import org.radarcns.management.domain.Subject;
+import org.radarcns.management.domain.User;
+import org.radarcns.management.domain.support.EventPublisherEntityListener;
+import org.radarcns.management.repository.CustomAuditEventRepository;
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
+import org.radarcns.management.service.mapper.ProjectMapper;
+import org.radarcns.management.service.util.RandomUtil;
+import org.radarcns.management.service.util.SubjectRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for enrolling many subjects in a project at once.
+ *
+ * <p>Subjects are enrolled in chunks. For each chunk, existing logins and external IDs are looked
+ * up in one query each, the initial passwords are hashed in parallel and the subjects are saved
+ * in a single transaction, in JDBC batches. Their audit events are saved together, in the same
+ * transaction. The persistence context is cleared after each chunk, so memory use does not grow
+ * with the number of subjects.</p>
+ */
+@Service
+public class SubjectEnrollmentService {
+
+    /** Number of subjects saved per transaction. */
+    public static final int CHUNK_SIZE = 200;
+
+    /** Maximum length of the external ID and external link of a subject. */
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    private final Logger log = LoggerFactory.getLogger(SubjectEnrollmentService.class);
+
+    private final ExecutorService passwordExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new CustomizableThreadFactory("subject-enrollment-"));
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CustomAuditEventRepository auditEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PreDestroy
+    public void shutdown() {
+        passwordExecutor.shutdownNow();
+    }
+
+    /**
+     * Enroll all subjects read from the reader in a project. A row fails if it is malformed, if
+     * the subject has an ID, if its login is invalid, or if its login or its external ID in the
+     * project is already taken. Rows are validated one by one, so that a single invalid row does
+     * not fail its chunk. If a chunk still cannot be saved, all rows of that chunk fail.
+     *
+     * @param project the project to enroll the subjects in
+     * @param reader the subjects to enroll
+     * @param results consumer of the result of each row, called in row order once the row's chunk
+     *                has been saved
+     * @throws IOException if the subjects cannot be read
+     */
+    public void enroll(ProjectDTO project, SubjectRowReader reader,
+            Consumer<SubjectEnrollmentResultDTO> results) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long roleId = transactionTemplate.execute(status -> subjectService
+                .getProjectParticipantRole(projectMapper.projectDTOToProject(project),
+                        PARTICIPANT)
+                .getId());
+
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (true) {
+            Row row;
+            try {
+                SubjectDTO subject = reader.next();
+                if (subject == null) {
+                    break;
+                }
+                row = new Row(reader.getRowNumber(), subject);
+            } catch (IllegalArgumentException ex) {
+                row = new Row(reader.getRowNumber(), null);
+                row.error = ex.getMessage();
+            }
+            chunk.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                enrollChunk(transactionTemplate, project, roleId, chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            enrollChunk(transactionTemplate, project, roleId, chunk, results);
+        }
+    }
+
+    private void enrollChunk(TransactionTemplate transactionTemplate, ProjectDTO project,
+            Long roleId, List<Row> chunk, Consumer<SubjectEnrollmentResultDTO> results) {
+        List<Row> valid = validate(project, chunk);
+
+        List<CompletableFuture<String>> passwords = valid.stream()
+                .map(row -> CompletableFuture.supplyAsync(
+                        () -> passwordEncoder.encode(RandomUtil.generatePassword()),
+                        passwordExecutor))
+                .collect(Collectors.toList());
+
+        try {
+            transactionTemplate.execute(status -> {
+                // add the audit events of all subjects at once, after they have been saved
+                EventPublisherEntityListener.deferEvents();
+                Role role = entityManager.getReference(Role.class, roleId);
+                List<Subject> subjects = new ArrayList<>(valid.size());
+                for (int i = 0; i < valid.size(); i++) {
+                    SubjectDTO subjectDto = valid.get(i).subject;
+                    subjectDto.setProject(project);
+                    subjects.add(subjectRepository.save(subjectService.newSubject(subjectDto,
+                            role, passwords.get(i).join())));
+                }
+                entityManager.flush();
+                List<Long> ids = new ArrayList<>(valid.size());
+                for (int i = 0; i < valid.size(); i++) {
+                    valid.get(i).id = subjects.get(i).getId();
+                    ids.add(valid.get(i).id);
+                }
+                projectStatisticsService.countSubjects(ids, 1);
+                // save the audit events in the same transaction, so they are only rolled back
+                // together with the subjects
+                auditEventRepository.addAll(EventPublisherEntityListener.takeDeferredEvents());
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            EventPublisherEntityListener.takeDeferredEvents();
+            log.warn("Failed to enroll subjects in project {}: {}", project.getProjectName(),
+                    ex.toString());
+            for (Row row : valid) {
+                row.id = null;
+                row.error = "Subject could not be saved: " + ex.getMessage();
+            }
+        }
+
+        for (Row row : chunk) {
+            results.accept(row.toResult());
+        }
+    }
+
+    /**
+     * Mark rows that cannot be enrolled with an error.
+     *
+     * @return rows without errors
+     */
+    private List<Row> validate(ProjectDTO project, List<Row> chunk) {
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error == null) {
+                row.error = fieldError(row.subject);
+            }
+            if (row.error == null) {
+                rows.add(row);
+            }
+        }
+        Set<String> existingLogins = findExistingLogins(rows);
+        Set<String> existingExternalIds = findExistingExternalIds(project, rows);
+
+        List<Row> valid = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            row.error = duplicateError(row.subject, existingLogins, existingExternalIds);
+            if (row.error == null) {
+                valid.add(row);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Check the fields of a new subject.
+     *
+     * @return the error of the subject, or {@code null} if its fields are valid
+     */
+    private String fieldError(SubjectDTO subject) {
+        if (subject.getId() != null) {
+            return "A new subject cannot already have an ID";
+        }
+        Set<ConstraintViolation<User>> loginViolations = validator.validateValue(User.class,
+                "login", subject.getLogin());
+        if (!loginViolations.isEmpty()) {
+            return "Invalid login: " + loginViolations.iterator().next().getMessage();
+        }
+        if (exceedsColumnLength(subject.getExternalId())
+                || exceedsColumnLength(subject.getExternalLink())) {
+            return "External ID and external link can have at most " + MAX_COLUMN_LENGTH
+                    + " characters";
+        }
+        return null;
+    }
+
+    /**
+     * Check that a new subject does not have the login or external ID of an existing subject or
+     * of a previous row. The login and external ID are added to the existing ones.
+     *
+     * @return the error of the subject, or {@code null} if it is not a duplicate
+     */
+    private static String duplicateError(SubjectDTO subject, Set<String> existingLogins,
+            Set<String> existingExternalIds) {
+        if (!existingLogins.add(subject.getLogin().toLowerCase(Locale.ENGLISH))) {
+            return "A subject with given login already exists";
+        }
+        String externalId = subject.getExternalId();
+        if (externalId != null && !externalId.isEmpty()
+                && !existingExternalIds.add(externalId)) {
+            return "A subject with given project-id and external-id already exists";
+        }
+        return null;
+    }
+
+    /** Lower case logins of the rows that are already in use. */
+    private Set<String> findExistingLogins(List<Row> rows) {
+        Set<String> logins = rows.stream()
+                .map(row -> row.subject.getLogin().toLowerCase(Locale.ENGLISH))
+                .collect(Collectors.toSet());
+        return logins.isEmpty() ? new HashSet<>()
+                : new HashSet<>(userRepository.findLoginsIn(logins));
+    }
+
+    /** External IDs of the rows that are already in use in the project. */
+    private Set<String> findExistingExternalIds(ProjectDTO project, List<Row> rows) {
+        Set<String> externalIds = rows.stream()
+                .map(row -> row.subject.getExternalId())
+                .filter(id -> id != null && !id.isEmpty())
+                .collect(Collectors.toSet());
+        return externalIds.isEmpty() ? new HashSet<>()
+                : new HashSet<>(subjectRepository.findExternalIdsInProject(
+                        project.getProjectName(), externalIds));
+    }
+
+    private static boolean exceedsColumnLength(String value) {
+        return value != null && value.length() > MAX_COLUMN_LENGTH;
+    }
+
+    /** A row to enroll and its result. */
+    private static class Row {
+
+        private final long number;
+
+        private final SubjectDTO subject;
+
+        private Long id;
+
+        private String error;
+
+        private Row(long number, SubjectDTO subject) {
+            this.number = number;
+            this.subject = subject;
+        }
+
+        private SubjectEnrollmentResultDTO toResult() {
+            String login = subject != null ? subject.getLogin() : null;
+            String externalId = subject != null ? subject.getExternalId() : null;
+            if (error != null || Objects.isNull(id)) {
+                return SubjectEnrollmentResultDTO.failed(number, login, externalId,
+                        error != null ? error : "Subject was not saved");
+            }
+            return SubjectEnrollmentResultDTO.created(number, id, login, externalId);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.radarcns.management.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for exporting all subjects of a project.
+ *
+ * <p>Subject IDs are read with a forward-only database cursor, ordered by ID, so that an
+ * interrupted export can be resumed after the last exported subject. The subjects themselves are
+ * read for a batch of IDs at a time with {@link SubjectProjectionService}. No entities are loaded,
+ * so memory use does not depend on the number of subjects.</p>
+ */
+@Service
+public class SubjectExportService {
+
+    /** Number of subject IDs to read from the cursor before fetching their subjects. */
+    public static final int BATCH_SIZE = 100;
+
+    private static final String SUBJECT_ID_QUERY = "select subject.id from Subject subject "
+            + "where subject.id > :after "
+            + "and subject.user.id in (select user.id from User user join user.roles roles "
+            + "where roles.project.projectName = :projectName) "
+            + "order by subject.id";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SubjectProjectionService subjectProjectionService;
+
+    /**
+     * Export the subjects of a project, ordered by ID. The project of each subject only has its
+     * ID and name set.
+     *
+     * @param projectName the project to export the subjects of
+     * @param after only export subjects with a larger ID than this, to resume an export
+     * @param consumer consumer of each exported subject, in order of ID
+     */
+    @Transactional(readOnly = true)
+    public void export(String projectName, long after, Consumer<SubjectDTO> consumer) {
+        ScrollableResults results = entityManager.unwrap(Session.class)
+                .createQuery(SUBJECT_ID_QUERY)
+                .setParameter("after", after)
+                .setParameter("projectName", projectName)
+                .setFetchSize(BATCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            List<Long> batch = new ArrayList<>(BATCH_SIZE);
+            while (results.next()) {
+                batch.add((Long) results.get(0));
+                if (batch.size() == BATCH_SIZE) {
+                    exportBatch(batch, consumer);
+                }
+            }
+            if (!batch.isEmpty()) {
+                exportBatch(batch, consumer);
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private void exportBatch(List<Long> batch, Consumer<SubjectDTO> consumer) {
+        subjectProjectionService.findAllByIdIn(batch).forEach(consumer);
+        batch.clear();
+    }
+}
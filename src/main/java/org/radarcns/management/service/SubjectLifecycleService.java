@@ -0,0 +1,403 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.radarcns.management.repository.CustomAuditEventRepository;
+import org.radarcns.management.security.SpringSecurityAuditorAware;
+import org.radarcns.management.service.dto.EntityChangeDTO;
+import org.radarcns.management.service.dto.EntityChangeDTO.Action;
+import org.radarcns.management.service.dto.EntityChangeDTO.EntityType;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO.Operation;
+import org.radarcns.management.service.dto.SubjectBulkProgressDTO;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.radarcns.management.service.mapper.ProjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for discontinuing, deactivating or moving many subjects of a project at once.
+ *
+ * <p>The selected subjects are updated in chunks, each in its own transaction, with a fixed
+ * number of set-based update statements per chunk instead of loading and saving each subject.
+ * Only subjects that participate in the project and that are not discontinued are updated. Each
+ * updated chunk is recorded as a single audit event in its transaction. Since the updates bypass
+ * the entity callbacks, the last modified dates, project statistics and change stream of the
+ * subjects and their unassigned sources are updated explicitly. Native statements declare the
+ * tables they change, so only the cached entities and collections of those tables are
+ * invalidated.</p>
+ */
+@Service
+public class SubjectLifecycleService {
+
+    /** Number of subjects updated per transaction. */
+    public static final int CHUNK_SIZE = 200;
+
+    private static final String LOGIN_QUERY = "select subject.id from Subject subject "
+            + "where subject.user.login in :logins";
+
+    private static final String PARTICIPANT_QUERY = "select subject.id, user.login, "
+            + "user.activated from Subject subject join subject.user user join user.roles role "
+            + "where subject.id in :ids and subject.removed = false "
+            + "and role.authority.name = '" + PARTICIPANT + "' and role.project.id = :projectId";
+
+    private static final String SOURCE_QUERY = "select source.id, source.sourceName, "
+            + "project.projectName from Subject subject join subject.sources source "
+            + "left join source.project project where subject.id in :ids";
+
+    private static final String UNASSIGN_SOURCES = "update Source source "
+            + "set source.assigned = false, source.lastModifiedBy = :auditor, "
+            + "source.lastModifiedDate = :now where source.id in :ids";
+
+    private static final String REMOVE_SUBJECT_SOURCES = "delete from subject_sources "
+            + "where subjects_id in (:ids)";
+
+    private static final String UPDATE_SUBJECTS = "update Subject subject "
+            + "set subject.removed = :removed, subject.lastModifiedBy = :auditor, "
+            + "subject.lastModifiedDate = :now where subject.id in :ids";
+
+    private static final String DEACTIVATE_USERS = "update User user "
+            + "set user.activated = false, user.lastModifiedBy = :auditor, "
+            + "user.lastModifiedDate = :now where user.id in "
+            + "(select subject.user.id from Subject subject where subject.id in :ids)";
+
+    private static final String REMOVE_ROLES = "delete from role_users "
+            + "where users_id in (select user_id from subject where id in (:ids)) "
+            + "and (roles_id = :inactiveRoleId "
+            + "or roles_id in (select id from radar_role where project_id = :targetProjectId))";
+
+    private static final String INACTIVATE_ROLES = "update role_users "
+            + "set roles_id = :inactiveRoleId where roles_id = :participantRoleId "
+            + "and users_id in (select user_id from subject where id in (:ids))";
+
+    private static final String ADD_ROLES = "insert into role_users (users_id, roles_id) "
+            + "select user_id, :targetRoleId from subject where id in (:ids)";
+
+    private final Logger log = LoggerFactory.getLogger(SubjectLifecycleService.class);
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private SubjectSearchService subjectSearchService;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private CustomAuditEventRepository auditEventRepository;
+
+    @Autowired
+    private SpringSecurityAuditorAware springSecurityAuditorAware;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Apply a lifecycle operation to the selected subjects of a project. If a chunk cannot be
+     * updated, its subjects are counted as failed and the next chunk is updated.
+     *
+     * @param project the project of the subjects
+     * @param request the operation and the selection of subjects
+     * @param targetProject the project to move the subjects to, for a move operation
+     * @param progress consumer of the progress after each chunk
+     */
+    public void apply(ProjectDTO project, SubjectBulkOperationDTO request,
+            ProjectDTO targetProject, Consumer<SubjectBulkProgressDTO> progress) {
+        final Operation operation = request.getOperation();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final List<Long> ids = transactionTemplate.execute(status -> selectSubjects(project,
+                request));
+        final Map<String, Long> roleIds = operation == Operation.MOVE
+                ? transactionTemplate.execute(status -> moveRoleIds(project, targetProject))
+                : Collections.emptyMap();
+        final String auditor = springSecurityAuditorAware.getCurrentAuditor();
+
+        int processed = 0;
+        int updated = 0;
+        int failed = 0;
+        for (int start = 0; start < ids.size(); start += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(start + CHUNK_SIZE, ids.size()));
+            String message = null;
+            try {
+                List<Long> updatedIds = transactionTemplate.execute(status -> {
+                    List<Long> chunkIds = applyChunk(operation, project, targetProject, roleIds,
+                            chunk, auditor);
+                    if (!chunkIds.isEmpty()) {
+                        auditEventRepository.addAll(Collections.singletonList(toAuditEvent(
+                                auditor, operation, project, targetProject, chunkIds)));
+                    }
+                    return chunkIds;
+                });
+                updated += updatedIds.size();
+            } catch (RuntimeException ex) {
+                log.warn("Failed to {} subjects of project {}: {}", operation,
+                        project.getProjectName(), ex.toString());
+                failed += chunk.size();
+                message = "Subjects could not be updated: " + ex.getMessage();
+            }
+            processed += chunk.size();
+            progress.accept(new SubjectBulkProgressDTO(operation, ids.size(), processed, updated,
+                    failed, message));
+        }
+        if (ids.isEmpty()) {
+            progress.accept(new SubjectBulkProgressDTO(operation, 0, 0, 0, 0, null));
+        }
+    }
+
+    /** IDs of the subjects selected by login or by search criteria, in order. */
+    private List<Long> selectSubjects(ProjectDTO project, SubjectBulkOperationDTO request) {
+        if (request.getLogins() == null) {
+            return subjectSearchService.findIds(project.getProjectName(), request.getLogin(),
+                    request.getExternalId(), request.getAttributeKey(),
+                    request.getAttributeValue());
+        }
+        List<Long> ids = new ArrayList<>(request.getLogins().size());
+        List<String> logins = request.getLogins();
+        for (int start = 0; start < logins.size(); start += CHUNK_SIZE) {
+            ids.addAll(entityManager.createQuery(LOGIN_QUERY, Long.class)
+                    .setParameter("logins", logins.subList(start,
+                            Math.min(start + CHUNK_SIZE, logins.size())))
+                    .getResultList());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /** Participant role of the project, and the roles that moved subjects get instead. */
+    private Map<String, Long> moveRoleIds(ProjectDTO project, ProjectDTO targetProject) {
+        Map<String, Long> roleIds = new HashMap<>();
+        roleIds.put("participantRoleId", subjectService.getProjectParticipantRole(
+                projectMapper.projectDTOToProject(project), PARTICIPANT).getId());
+        roleIds.put("inactiveRoleId", subjectService.getProjectParticipantRole(
+                projectMapper.projectDTOToProject(project), INACTIVE_PARTICIPANT).getId());
+        roleIds.put("targetRoleId", subjectService.getProjectParticipantRole(
+                projectMapper.projectDTOToProject(targetProject), PARTICIPANT).getId());
+        return roleIds;
+    }
+
+    /**
+     * Apply an operation to the participants of the project in a chunk of subjects.
+     *
+     * @return IDs of the updated subjects
+     */
+    private List<Long> applyChunk(Operation operation, ProjectDTO project,
+            ProjectDTO targetProject, Map<String, Long> roleIds, List<Long> chunk,
+            String auditor) {
+        ChunkUpdate update = new ChunkUpdate(operation, auditor);
+        List<Object[]> subjects = findParticipants(update, project, chunk);
+        if (subjects.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = firstColumn(subjects);
+        List<Object[]> sources = findSources(update, ids);
+        List<Long> sourceIds = firstColumn(sources);
+        if (update.moves) {
+            projectStatisticsService.lock(Arrays.asList(project.getId(), targetProject.getId()));
+        }
+        projectStatisticsService.countSubjects(ids, -1);
+        projectStatisticsService.countSources(sourceIds, -1);
+
+        unassignSources(update, ids, sourceIds);
+        updateSubjects(update, ids);
+        updateUsers(update, ids, targetProject, roleIds);
+
+        projectStatisticsService.countSubjects(ids, 1);
+        projectStatisticsService.countSources(sourceIds, 1);
+        publishChanges(update, update.moves ? targetProject : project, subjects, sources);
+        return ids;
+    }
+
+    /** Participants of the project in a chunk, with their ID, login and activation. */
+    private List<Object[]> findParticipants(ChunkUpdate update, ProjectDTO project,
+            List<Long> chunk) {
+        List<Object[]> subjects = entityManager.createQuery(PARTICIPANT_QUERY, Object[].class)
+                .setParameter("ids", chunk)
+                .setParameter("projectId", project.getId())
+                .getResultList();
+        if (update.activatedOnly) {
+            subjects.removeIf(row -> !(Boolean) row[2]);
+        }
+        return subjects;
+    }
+
+    /** Sources to unassign from subjects, with their ID, name and project name. */
+    private List<Object[]> findSources(ChunkUpdate update, List<Long> ids) {
+        if (!update.unassignsSources) {
+            return Collections.emptyList();
+        }
+        return entityManager.createQuery(SOURCE_QUERY, Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    private void unassignSources(ChunkUpdate update, List<Long> ids, List<Long> sourceIds) {
+        if (sourceIds.isEmpty()) {
+            return;
+        }
+        entityManager.createQuery(UNASSIGN_SOURCES)
+                .setParameter("ids", sourceIds)
+                .setParameter("auditor", update.auditor)
+                .setParameter("now", update.now)
+                .executeUpdate();
+        entityManager.createNativeQuery(REMOVE_SUBJECT_SOURCES)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("subject_sources")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    private void updateSubjects(ChunkUpdate update, List<Long> ids) {
+        entityManager.createQuery(UPDATE_SUBJECTS)
+                .setParameter("ids", ids)
+                .setParameter("removed", update.removes)
+                .setParameter("auditor", update.auditor)
+                .setParameter("now", update.now)
+                .executeUpdate();
+    }
+
+    /** Move the roles of the users of subjects, or deactivate the users. */
+    private void updateUsers(ChunkUpdate update, List<Long> ids, ProjectDTO targetProject,
+            Map<String, Long> roleIds) {
+        if (update.moves) {
+            moveRoles(ids, targetProject, roleIds);
+            return;
+        }
+        entityManager.createQuery(DEACTIVATE_USERS)
+                .setParameter("ids", ids)
+                .setParameter("auditor", update.auditor)
+                .setParameter("now", update.now)
+                .executeUpdate();
+    }
+
+    /** Publish the updated subjects in their new project, and their unassigned sources. */
+    private void publishChanges(ChunkUpdate update, ProjectDTO project, List<Object[]> subjects,
+            List<Object[]> sources) {
+        for (Object[] row : subjects) {
+            EntityChangeDTO change = new EntityChangeDTO();
+            change.setEntityType(EntityType.SUBJECT);
+            change.setAction(Action.UPDATED);
+            change.setId((Long) row[0]);
+            change.setName((String) row[1]);
+            change.setProjectName(project.getProjectName());
+            change.setStatus(SubjectStatus.of(update.moves && (Boolean) row[2],
+                    update.removes));
+            change.setDate(update.now);
+            changeStreamService.publish(change);
+        }
+        for (Object[] row : sources) {
+            EntityChangeDTO change = new EntityChangeDTO();
+            change.setEntityType(EntityType.SOURCE);
+            change.setAction(Action.UPDATED);
+            change.setId((Long) row[0]);
+            change.setName((String) row[1]);
+            change.setProjectName((String) row[2]);
+            change.setAssigned(false);
+            change.setDate(update.now);
+            changeStreamService.publish(change);
+        }
+    }
+
+    private static List<Long> firstColumn(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Replace the participant role of subjects by the inactive participant role of the project,
+     * and give them the participant role of the target project instead of any other role in
+     * that project.
+     */
+    private void moveRoles(List<Long> ids, ProjectDTO targetProject, Map<String, Long> roleIds) {
+        entityManager.createNativeQuery(REMOVE_ROLES)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("role_users")
+                .setParameter("ids", ids)
+                .setParameter("inactiveRoleId", roleIds.get("inactiveRoleId"))
+                .setParameter("targetProjectId", targetProject.getId())
+                .executeUpdate();
+        entityManager.createNativeQuery(INACTIVATE_ROLES)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("role_users")
+                .setParameter("ids", ids)
+                .setParameter("inactiveRoleId", roleIds.get("inactiveRoleId"))
+                .setParameter("participantRoleId", roleIds.get("participantRoleId"))
+                .executeUpdate();
+        entityManager.createNativeQuery(ADD_ROLES)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("role_users")
+                .setParameter("ids", ids)
+                .setParameter("targetRoleId", roleIds.get("targetRoleId"))
+                .executeUpdate();
+    }
+
+    private static AuditEvent toAuditEvent(String auditor, Operation operation,
+            ProjectDTO project, ProjectDTO targetProject, List<Long> ids) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("project", project.getProjectName());
+        if (targetProject != null) {
+            data.put("target_project", targetProject.getProjectName());
+        }
+        data.put("subjects", ids.size());
+        data.put("subject_ids", ids.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+        return new AuditEvent(auditor, "SUBJECT_BULK_" + operation.name(), data);
+    }
+
+    /** What an operation changes in a chunk, and who changes it when. */
+    private static final class ChunkUpdate {
+
+        /** Only activated subjects are deactivated. */
+        private final boolean activatedOnly;
+
+        /** Sources are unassigned from subjects that are discontinued or moved. */
+        private final boolean unassignsSources;
+
+        /** Discontinued subjects are marked as removed. */
+        private final boolean removes;
+
+        /** Moved subjects change roles instead of being deactivated. */
+        private final boolean moves;
+
+        private final String auditor;
+
+        private final ZonedDateTime now = ZonedDateTime.now();
+
+        private ChunkUpdate(Operation operation, String auditor) {
+            this.activatedOnly = operation == Operation.DEACTIVATE;
+            this.unassignsSources = operation != Operation.DEACTIVATE;
+            this.removes = operation == Operation.DISCONTINUE;
+            this.moves = operation == Operation.MOVE;
+            this.auditor = auditor;
+        }
+    }
+}
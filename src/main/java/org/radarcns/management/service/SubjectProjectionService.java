@@ -0,0 +1,174 @@
+package org.radarcns.management.service;
+
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.RoleDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for reading subject DTOs directly from scalar queries, without loading any entities.
+ *
+ * <p>The subjects and their users are read in a single projection. Their roles, sources and
+ * attributes are then read with one query each for all requested subjects. The project of a
+ * subject is taken from its participant or inactive participant role, and reduced to its ID and
+ * name, so the source types and attributes of projects are never read.</p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class SubjectProjectionService {
+
+    private static final String SUBJECT_QUERY = "select subject.id, user.login, "
+            + "subject.externalId, subject.externalLink, user.activated, subject.removed, "
+            + "user.createdBy, user.createdDate, user.lastModifiedBy, user.lastModifiedDate "
+            + "from Subject subject join subject.user user "
+            + "where subject.id in :ids";
+
+    private static final String ROLE_QUERY = "select subject.id, role.id, project.id, "
+            + "project.projectName, role.authority.name "
+            + "from Subject subject join subject.user.roles role left join role.project project "
+            + "where subject.id in :ids order by role.id";
+
+    private static final String SOURCE_QUERY = "select subject.id, source.id, source.sourceId, "
+            + "source.sourceName, source.expectedSourceName, source.assigned, sourceType.id, "
+            + "sourceType.producer, sourceType.model, sourceType.catalogVersion "
+            + "from Subject subject join subject.sources source "
+            + "left join source.sourceType sourceType "
+            + "where subject.id in :ids order by source.id";
+
+    private static final String SOURCE_ATTRIBUTE_QUERY = "select source.id, key(attributes), "
+            + "value(attributes) from Source source join source.attributes attributes "
+            + "where source.id in :ids";
+
+    private static final String SUBJECT_ATTRIBUTE_QUERY = "select subject.id, key(attributes), "
+            + "value(attributes) from Subject subject join subject.attributes attributes "
+            + "where subject.id in :ids";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Get the subjects with given IDs, with their roles, sources and attributes. The project of
+     * each subject only has its ID and name set.
+     *
+     * @param ids the subject IDs
+     * @return the subjects, in the order of the given IDs. Subjects that do not exist are
+     *      omitted.
+     */
+    public List<SubjectDTO> findAllByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, SubjectDTO> subjects = new HashMap<>();
+        for (Object[] row : query(SUBJECT_QUERY, ids)) {
+            subjects.put((Long) row[0], toSubject(row));
+        }
+        for (Object[] row : query(ROLE_QUERY, ids)) {
+            subjects.get((Long) row[0]).getRoles().add(toRole(row));
+        }
+        subjects.values().forEach(SubjectProjectionService::setProject);
+        Map<Long, MinimalSourceDetailsDTO> sources = new LinkedHashMap<>();
+        for (Object[] row : query(SOURCE_QUERY, ids)) {
+            MinimalSourceDetailsDTO source = toSource(row);
+            sources.put(source.getId(), source);
+            subjects.get((Long) row[0]).getSources().add(source);
+        }
+        if (!sources.isEmpty()) {
+            for (Object[] row : query(SOURCE_ATTRIBUTE_QUERY, sources.keySet())) {
+                sources.get((Long) row[0]).getAttributes().put((String) row[1], (String) row[2]);
+            }
+        }
+        for (Object[] row : query(SUBJECT_ATTRIBUTE_QUERY, ids)) {
+            subjects.get((Long) row[0]).getAttributes().put((String) row[1], (String) row[2]);
+        }
+        return ids.stream()
+                .map(subjects::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<Object[]> query(String query, Collection<Long> ids) {
+        return entityManager.createQuery(query, Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    private static SubjectDTO toSubject(Object[] row) {
+        SubjectDTO subject = new SubjectDTO();
+        subject.setId((Long) row[0]);
+        subject.setLogin((String) row[1]);
+        subject.setExternalId((String) row[2]);
+        subject.setExternalLink((String) row[3]);
+        subject.setStatus(SubjectStatus.of((Boolean) row[4], (Boolean) row[5]));
+        subject.setCreatedBy((String) row[6]);
+        subject.setCreatedDate((ZonedDateTime) row[7]);
+        subject.setLastModifiedBy((String) row[8]);
+        subject.setLastModifiedDate((ZonedDateTime) row[9]);
+        subject.setRoles(new ArrayList<>());
+        return subject;
+    }
+
+    /**
+     * Set the project of a subject from its roles, which are ordered by ID. As in the subject
+     * mapper, the project of the first participant role is used, or of the first inactive
+     * participant role if the subject has no participant role.
+     */
+    private static void setProject(SubjectDTO subject) {
+        Optional<RoleDTO> role = subject.getRoles().stream()
+                .filter(r -> PARTICIPANT.equals(r.getAuthorityName()))
+                .findFirst();
+        if (!role.isPresent()) {
+            role = subject.getRoles().stream()
+                    .filter(r -> INACTIVE_PARTICIPANT.equals(r.getAuthorityName()))
+                    .findFirst();
+        }
+        role.filter(r -> r.getProjectId() != null).ifPresent(r -> {
+            ProjectDTO project = new ProjectDTO();
+            project.setId(r.getProjectId());
+            project.setProjectName(r.getProjectName());
+            subject.setProject(project);
+        });
+    }
+
+    private static RoleDTO toRole(Object[] row) {
+        RoleDTO role = new RoleDTO();
+        role.setId((Long) row[1]);
+        role.setProjectId((Long) row[2]);
+        role.setProjectName((String) row[3]);
+        role.setAuthorityName((String) row[4]);
+        return role;
+    }
+
+    private static MinimalSourceDetailsDTO toSource(Object[] row) {
+        MinimalSourceDetailsDTO source = new MinimalSourceDetailsDTO();
+        source.setId((Long) row[1]);
+        source.setSourceId((UUID) row[2]);
+        source.setSourceName((String) row[3]);
+        source.setExpectedSourceName((String) row[4]);
+        source.setAssigned((Boolean) row[5]);
+        source.setSourceTypeId((Long) row[6]);
+        source.setSourceTypeProducer((String) row[7]);
+        source.setSourceTypeModel((String) row[8]);
+        source.setSourceTypeCatalogVersion((String) row[9]);
+        return source;
+    }
+}
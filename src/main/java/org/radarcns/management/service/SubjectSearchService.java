@@ -0,0 +1,155 @@
+package org.radarcns.management.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for searching the subjects of a project by login, external ID and attribute.
+ *
+ * <p>Logins, external IDs and attribute values are matched by prefix, which the indexes on the
+ * user login, the subject external ID and the subject attribute key and value can serve. A page
+ * of matching subject IDs is selected first, after which its subjects are read with
+ * {@link SubjectProjectionService}.</p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class SubjectSearchService {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private static final String FROM_CLAUSE = " from Subject subject join subject.user user "
+            + "where user.id in (select roleUser.id from User roleUser join roleUser.roles roles "
+            + "where roles.project.projectName = :projectName)";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SubjectProjectionService subjectProjectionService;
+
+    /**
+     * Search the subjects of a project, ordered by ID. Criteria that are {@code null} are not
+     * applied. The project of each subject only has its ID and name set.
+     *
+     * @param projectName the project to search the subjects of
+     * @param login prefix of the subject login
+     * @param externalId prefix of the subject external ID
+     * @param attributeKey key of an attribute that the subject has
+     * @param attributeValue prefix of the value of the attribute with {@code attributeKey}
+     * @param pageable the page to get
+     * @return the requested page of matching subjects
+     * @throws CustomParameterizedException if an attribute value is given without a key
+     */
+    public Page<SubjectDTO> search(String projectName, String login, String externalId,
+            String attributeKey, String attributeValue, Pageable pageable) {
+        Criteria criteria = new Criteria(projectName, login, externalId, attributeKey,
+                attributeValue);
+        TypedQuery<Long> idQuery = entityManager.createQuery(
+                "select subject.id" + criteria.where + " order by subject.id", Long.class)
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+        setParameters(idQuery, criteria.parameters);
+        List<Long> ids = idQuery.getResultList();
+
+        long total;
+        if (pageable.getOffset() == 0 && ids.size() < pageable.getPageSize()) {
+            // the first page is not full, so there are no more results to count
+            total = ids.size();
+        } else {
+            TypedQuery<Long> countQuery = entityManager.createQuery(
+                    "select count(subject.id)" + criteria.where, Long.class);
+            setParameters(countQuery, criteria.parameters);
+            total = countQuery.getSingleResult();
+        }
+        return new PageImpl<>(subjectProjectionService.findAllByIdIn(ids), pageable, total);
+    }
+
+    /**
+     * Get the IDs of all subjects of a project that match the given criteria, in order.
+     * Criteria that are {@code null} are not applied.
+     *
+     * @param projectName the project to search the subjects of
+     * @param login prefix of the subject login
+     * @param externalId prefix of the subject external ID
+     * @param attributeKey key of an attribute that the subject has
+     * @param attributeValue prefix of the value of the attribute with {@code attributeKey}
+     * @return the IDs of the matching subjects
+     * @throws CustomParameterizedException if an attribute value is given without a key
+     */
+    public List<Long> findIds(String projectName, String login, String externalId,
+            String attributeKey, String attributeValue) {
+        Criteria criteria = new Criteria(projectName, login, externalId, attributeKey,
+                attributeValue);
+        TypedQuery<Long> idQuery = entityManager.createQuery(
+                "select subject.id" + criteria.where + " order by subject.id", Long.class);
+        setParameters(idQuery, criteria.parameters);
+        return idQuery.getResultList();
+    }
+
+    private static void setParameters(Query query, Map<String, Object> parameters) {
+        parameters.forEach(query::setParameter);
+    }
+
+    /** LIKE pattern that matches given prefix literally. */
+    private static String toPrefixPattern(String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    /** From and where clauses of a subject search, with their parameters. */
+    private static class Criteria {
+
+        private final StringBuilder where = new StringBuilder(FROM_CLAUSE);
+
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        private Criteria(String projectName, String login, String externalId,
+                String attributeKey, String attributeValue) {
+            if (attributeValue != null && attributeKey == null) {
+                throw new CustomParameterizedException("error.attributeKeyRequired",
+                        attributeValue);
+            }
+            parameters.put("projectName", projectName);
+            if (login != null) {
+                where.append(" and user.login like :login escape '" + LIKE_ESCAPE + "'");
+                parameters.put("login", toPrefixPattern(login));
+            }
+            if (externalId != null) {
+                where.append(" and subject.externalId like :externalId escape '"
+                        + LIKE_ESCAPE + "'");
+                parameters.put("externalId", toPrefixPattern(externalId));
+            }
+            if (attributeKey != null) {
+                where.append(" and subject.id in (select attributeSubject.id "
+                        + "from Subject attributeSubject "
+                        + "join attributeSubject.attributes attributes "
+                        + "where key(attributes) = :attributeKey");
+                parameters.put("attributeKey", attributeKey);
+                if (attributeValue != null) {
+                    where.append(" and value(attributes) like :attributeValue escape '"
+                            + LIKE_ESCAPE + "'");
+                    parameters.put("attributeValue", toPrefixPattern(attributeValue));
+                }
+                where.append(')');
+            }
+        }
+    }
+}
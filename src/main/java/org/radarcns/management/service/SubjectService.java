@@ -6,6 +6,8 @@ import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,16 +15,23 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.NativeQuery;
 import org.radarcns.management.domain.Project;
 import org.radarcns.management.domain.Role;
 import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Subject;
+import org.radarcns.management.domain.Tombstone;
 import org.radarcns.management.domain.User;
+import org.radarcns.management.domain.enumeration.TombstoneType;
 import org.radarcns.management.repository.AuthorityRepository;
 import org.radarcns.management.repository.RoleRepository;
 import org.radarcns.management.repository.SourceRepository;
 import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.TombstoneRepository;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.mapper.ProjectMapper;
@@ -37,8 +46,12 @@ import org.radarcns.management.web.rest.util.HeaderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -50,8 +63,15 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class SubjectService {
 
+    private static final String REGISTER_SOURCE = "insert into subject_sources "
+            + "(subjects_id, sources_id, registered_source_type_id) "
+            + "values (:subjectId, :sourceId, :sourceTypeId)";
+
     private final Logger log = LoggerFactory.getLogger(SubjectService.class);
 
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private SubjectMapper subjectMapper;
 
@@ -73,6 +93,15 @@ public class SubjectService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private SubjectProjectionService subjectProjectionService;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -85,14 +114,33 @@ public class SubjectService {
      */
     @Transactional
     public SubjectDTO createSubject(SubjectDTO subjectDto) {
+        Set<Long> sourceIds = sourceIds(Collections.emptySet(), subjectDto);
+        projectStatisticsService.countSources(sourceIds, -1);
+        Subject subject = newSubject(subjectDto, getProjectParticipantRole(
+                projectMapper.projectDTOToProject(subjectDto.getProject()), PARTICIPANT),
+                passwordEncoder.encode(RandomUtil.generatePassword()));
+        subject = subjectRepository.save(subject);
+        projectStatisticsService.countSubjects(Collections.singleton(subject.getId()), 1);
+        projectStatisticsService.countSources(sourceIds, 1);
+        return subjectMapper.subjectToSubjectDTO(subject);
+    }
+
+    /**
+     * Create a new subject entity with an activated user. The subject is not saved.
+     *
+     * @param subjectDto the subject information
+     * @param participantRole the participant role of the subject
+     * @param encryptedPassword the encrypted initial password of the subject user
+     * @return the new subject
+     */
+    public Subject newSubject(SubjectDTO subjectDto, Role participantRole,
+            String encryptedPassword) {
         Subject subject = subjectMapper.subjectDTOToSubject(subjectDto);
         //assign roles
         User user = subject.getUser();
-        user.getRoles().add(getProjectParticipantRole(
-                projectMapper.projectDTOToProject(subjectDto.getProject()), PARTICIPANT));
+        user.getRoles().add(participantRole);
 
         // set password and reset keys
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
         user.setPassword(encryptedPassword);
         user.setResetKey(RandomUtil.generateResetKey());
         // setting default language key to "en", required to set email context, Find a workaround
@@ -106,8 +154,7 @@ public class SubjectService {
                 source.setAssigned(true);
             }
         }
-        subject = subjectRepository.save(subject);
-        return subjectMapper.subjectToSubjectDTO(subject);
+        return subject;
     }
 
     /**
@@ -117,7 +164,7 @@ public class SubjectService {
      * @return relevant Participant role
      * @throws java.util.NoSuchElementException if the authority name is not in the database
      */
-    private Role getProjectParticipantRole(Project project, String authority) {
+    public Role getProjectParticipantRole(Project project, String authority) {
         return roleRepository.findOneByProjectIdAndAuthorityName(project.getId(), authority)
                 .orElseGet(() -> {
                     Role subjectRole = new Role();
@@ -145,6 +192,16 @@ public class SubjectService {
             return createSubject(newSubjectDto);
         }
         Subject subjectFromDb = subjectRepository.findOne(newSubjectDto.getId());
+        Set<Long> subjectIds = Collections.singleton(subjectFromDb.getId());
+        final Set<Long> sourceIds = sourceIds(subjectFromDb.getSources(), newSubjectDto);
+        // the subject may move to another project
+        List<Long> projectIds = subjectFromDb.getUser().getRoles().stream()
+                .map(role -> role.getProject() != null ? role.getProject().getId() : null)
+                .collect(Collectors.toCollection(ArrayList::new));
+        projectIds.add(newSubjectDto.getProject().getId());
+        projectStatisticsService.lock(projectIds);
+        projectStatisticsService.countSubjects(subjectIds, -1);
+        projectStatisticsService.countSources(sourceIds, -1);
         //reset all the sources assigned to a subject to unassigned
         for (Source source : subjectFromDb.getSources()) {
             source.setAssigned(false);
@@ -157,12 +214,34 @@ public class SubjectService {
         }
         // update participant role
         Set<Role> managedRoles = updateParticipantRoles(subjectFromDb, newSubjectDto);
+        if (!managedRoles.equals(subjectFromDb.getUser().getRoles())) {
+            // only the user changes, but the change feed finds moved subjects by date
+            subjectFromDb.setLastModifiedDate(ZonedDateTime.now());
+        }
         subjectFromDb.getUser().setRoles(managedRoles);
         subjectFromDb = subjectRepository.save(subjectFromDb);
+        projectStatisticsService.countSubjects(subjectIds, 1);
+        projectStatisticsService.countSources(sourceIds, 1);
 
         return subjectMapper.subjectToSubjectDTO(subjectFromDb);
     }
 
+    private static Set<Long> sourceIds(Set<Source> sources) {
+        return sources.stream()
+                .map(Source::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /** IDs of the current sources of a subject and of the sources in its new information. */
+    private static Set<Long> sourceIds(Set<Source> sources, SubjectDTO subjectDto) {
+        Set<Long> sourceIds = sourceIds(sources);
+        subjectDto.getSources().stream()
+                .map(MinimalSourceDetailsDTO::getId)
+                .filter(Objects::nonNull)
+                .forEach(sourceIds::add);
+        return sourceIds;
+    }
+
     private Set<Role> updateParticipantRoles(Subject subject, SubjectDTO subjectDto) {
         Set<Role> managedRoles = subject.getUser().getRoles().stream().map(role -> {
             // inactivate existing patient roles
@@ -182,16 +261,78 @@ public class SubjectService {
 
 
     /**
-     * Get a page of subjects.
+     * Get a page of subjects. The project of each subject only has its ID and name set.
      *
      * @param pageable the page information
      * @return the requested page of subjects
      */
+    @Transactional(readOnly = true)
     public Page<SubjectDTO> findAll(Pageable pageable) {
-        return subjectRepository.findAllWithEagerRelationships(pageable)
+        Pageable ordered = orderedById(pageable);
+        return fetchPage(subjectRepository.findAllIds(ordered), ordered);
+    }
+
+    /**
+     * Get a page of subjects that have any of given roles in a project. The project of each
+     * subject only has its ID and name set.
+     *
+     * @param pageable the page information
+     * @param projectName the name of the project
+     * @param authorities the roles of the subjects to include
+     * @return the requested page of subjects
+     */
+    @Transactional(readOnly = true)
+    public Page<SubjectDTO> findAllByProjectNameAndAuthoritiesIn(Pageable pageable,
+            String projectName, List<String> authorities) {
+        Pageable ordered = orderedById(pageable);
+        return fetchPage(subjectRepository.findIdsByProjectNameAndAuthoritiesIn(ordered,
+                projectName, authorities), ordered);
+    }
+
+    /**
+     * Get the subject with given login. Its lazy collections are mapped within the transaction.
+     *
+     * @param login the login of the subject
+     * @return the subject, or an empty optional if no subject has given login
+     */
+    @Transactional(readOnly = true)
+    public Optional<SubjectDTO> findOneByLogin(String login) {
+        return subjectRepository.findOneWithEagerBySubjectLogin(login)
                 .map(subjectMapper::subjectToSubjectDTO);
     }
 
+    /**
+     * Get the subjects with given external ID that have any of given roles, in any project.
+     *
+     * @param externalId the external ID
+     * @param authorities the roles of the subjects to include
+     * @return the matching subjects
+     */
+    @Transactional(readOnly = true)
+    public List<SubjectDTO> findAllByExternalIdAndAuthoritiesIn(String externalId,
+            List<String> authorities) {
+        return subjectMapper.subjectsToSubjectDTOs(subjectRepository
+                .findAllByExternalIdAndAuthoritiesIn(externalId, authorities));
+    }
+
+    /**
+     * Fetch the subjects of a page of IDs as projections, without loading the subject entities.
+     * The subjects are returned in the order of the IDs.
+     */
+    private Page<SubjectDTO> fetchPage(Page<Long> ids, Pageable pageable) {
+        return new PageImpl<>(subjectProjectionService.findAllByIdIn(ids.getContent()), pageable,
+                ids.getTotalElements());
+    }
+
+    /** Order unsorted pages by ID, so that pages do not overlap. */
+    private static Pageable orderedById(Pageable pageable) {
+        if (pageable == null || pageable.getSort() != null) {
+            return pageable;
+        }
+        return new PageRequest(pageable.getPageNumber(), pageable.getPageSize(),
+                Direction.ASC, "id");
+    }
+
     /**
      * Discontinue the given subject.
      *
@@ -203,6 +344,10 @@ public class SubjectService {
      */
     public SubjectDTO discontinueSubject(SubjectDTO subjectDto) {
         Subject subject = subjectRepository.findOne(subjectDto.getId());
+        Set<Long> subjectIds = Collections.singleton(subject.getId());
+        Set<Long> sourceIds = sourceIds(subject.getSources());
+        projectStatisticsService.countSubjects(subjectIds, -1);
+        projectStatisticsService.countSources(sourceIds, -1);
         // reset all the sources assigned to a subject to unassigned
         unassignAllSources(subject);
 
@@ -210,7 +355,10 @@ public class SubjectService {
         // access token
         subject.setRemoved(true);
         subject.getUser().setActivated(false);
-        return subjectMapper.subjectToSubjectDTO(subjectRepository.save(subject));
+        subject = subjectRepository.save(subject);
+        projectStatisticsService.countSubjects(subjectIds, 1);
+        projectStatisticsService.countSources(sourceIds, 1);
+        return subjectMapper.subjectToSubjectDTO(subject);
     }
 
     /**
@@ -232,6 +380,12 @@ public class SubjectService {
      * dynamicallyRegister-able sourceType. Currently, it is allowed to create only once source of a
      * dynamicallyRegistrable sourceType per subject. Otherwise finds the matching source and
      * updates meta-data.
+     *
+     * <p>A dynamically registered source is linked to its subject together with its source type,
+     * which the database allows only once per subject. A repeated registration with the same
+     * source name and meta-data returns the registered source without changing anything. If a
+     * concurrent registration links a source first, a {@link DataIntegrityViolationException} is
+     * thrown and the registration can be retried to get that source.</p>
      */
     @Transactional
     public MinimalSourceDetailsDTO assignOrUpdateSource(Subject subject, SourceType sourceType,
@@ -239,11 +393,6 @@ public class SubjectService {
             throws URISyntaxException {
         Source assignedSource = null;
 
-        List<Source> sources = subjectRepository
-                .findSubjectSourcesBySourceType(subject.getUser().getLogin(),
-                        sourceType.getProducer(), sourceType.getModel(),
-                        sourceType.getCatalogVersion());
-
         // update meta-data for existing sources
         if (sourceRegistrationDto.getSourceId() != null) {
             // for manually registered devices only add meta-data
@@ -268,35 +417,16 @@ public class SubjectService {
         } else if (sourceType.getCanRegisterDynamically()) {
             // create a source and register meta data
             // we allow only one source of a source-type per subject
-            if (sources.isEmpty()) {
-                Source source1 = new Source()
-                        .project(project)
-                        .assigned(true)
-                        .sourceType(sourceType);
-                source1.getAttributes().putAll(sourceRegistrationDto.getAttributes());
-                // if source name is provided update source name
-                if (Objects.nonNull(sourceRegistrationDto.getSourceName())) {
-                    // append the auto generated source-name to given source-name to avoid conflicts
-                    source1.setSourceName(sourceRegistrationDto.getSourceName() + "_"
-                            + source1.getSourceName());
-                }
-
-                Optional<Source> sourceToUpdate = sourceRepository.findOneBySourceName(
-                        source1.getSourceName());
-                if (sourceToUpdate.isPresent()) {
-                    log.error("Cannot create a source with existing source-name {}",
-                            source1.getSourceName());
-                    Map<String, String> errorParams = new HashMap<>();
-                    errorParams.put("message",
-                            "SourceName already in use. Cannot create a source with source-name ");
-                    errorParams.put("source-name", source1.getSourceName());
-                    throw new CustomNotFoundException(ErrorConstants.ERR_SOURCE_NAME_EXISTS,
-                            errorParams);
-                }
-                source1 = sourceRepository.save(source1);
-
-                assignedSource = source1;
-                subject.getSources().add(source1);
+            Optional<Source> registered = sourceRepository
+                    .findOneRegisteredBySubjectIdAndSourceTypeId(subject.getId(),
+                            sourceType.getId());
+            if (!registered.isPresent()) {
+                assignedSource = registerSource(subject, sourceType, project,
+                        sourceRegistrationDto);
+            } else if (isSameRegistration(registered.get(), sourceRegistrationDto)) {
+                log.debug("Source {} was already registered for subject {}",
+                        registered.get().getSourceName(), subject.getUser().getLogin());
+                assignedSource = registered.get();
             } else {
                 log.error("A Source of SourceType with the specified producer, model and version "
                         + "was already registered for subject login");
@@ -329,18 +459,66 @@ public class SubjectService {
             errorParams.put("sourceId", sourceRegistrationDto.getSourceId().toString());
             throw new CustomParameterizedException("InvalidRequest", errorParams);
         }
-        subjectRepository.save(subject);
         return sourceMapper.sourceToMinimalSourceDetailsDTO(assignedSource);
     }
 
+    /**
+     * Create a source and link it to a subject as its registered source of its source type.
+     * The source name is unique by its generated suffix, and the link is unique by the database
+     * constraint on the subject and registered source type.
+     */
+    private Source registerSource(Subject subject, SourceType sourceType, Project project,
+            MinimalSourceDetailsDTO sourceRegistrationDto) {
+        Source source = new Source()
+                .project(project)
+                .assigned(true)
+                .sourceType(sourceType);
+        source.generateUuid();
+        source.getAttributes().putAll(sourceRegistrationDto.getAttributes());
+        // if source name is provided update source name
+        if (Objects.nonNull(sourceRegistrationDto.getSourceName())) {
+            // append the auto generated source-name to given source-name to avoid conflicts
+            source.setSourceName(sourceRegistrationDto.getSourceName() + "_"
+                    + source.getSourceName());
+        }
+        source = sourceRepository.saveAndFlush(source);
+        try {
+            // only the cached sources of subjects are affected by the link
+            entityManager.createNativeQuery(REGISTER_SOURCE)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("subject_sources")
+                    .setParameter("subjectId", subject.getId())
+                    .setParameter("sourceId", source.getId())
+                    .setParameter("sourceTypeId", sourceType.getId())
+                    .executeUpdate();
+        } catch (PersistenceException ex) {
+            if (ex.getCause() instanceof ConstraintViolationException) {
+                throw new DataIntegrityViolationException("Source type " + sourceType.getId()
+                        + " was already registered for subject " + subject.getId(), ex);
+            }
+            throw ex;
+        }
+        projectStatisticsService.countSources(Collections.singleton(source.getId()), 1);
+        return source;
+    }
+
+    /** Whether a registration request matches the source that was registered before. */
+    private static boolean isSameRegistration(Source source,
+            MinimalSourceDetailsDTO sourceRegistrationDto) {
+        return (sourceRegistrationDto.getSourceName() == null
+                || source.getSourceName().startsWith(sourceRegistrationDto.getSourceName() + "_"))
+                && source.getAttributes().equals(sourceRegistrationDto.getAttributes());
+    }
+
     /**
      * Gets all sources assigned to the subject identified by :login.
      *
+     * @param login the login of the subject
      * @return list of sources
      */
-    public List<MinimalSourceDetailsDTO> getSources(Subject subject) {
-        List<Source> sources = subjectRepository.findSourcesBySubjectLogin(subject.getUser()
-                .getLogin());
+    @Transactional(readOnly = true)
+    public List<MinimalSourceDetailsDTO> getSources(String login) {
+        List<Source> sources = subjectRepository.findSourcesBySubjectLogin(login);
 
         return sourceMapper.sourcesToMinimalSourceDetailsDTOs(sources);
     }
@@ -352,8 +530,19 @@ public class SubjectService {
      */
     public void deleteSubject(String login) {
         subjectRepository.findOneWithEagerBySubjectLogin(login).ifPresent(subject -> {
+            Set<Long> sourceIds = sourceIds(subject.getSources());
+            projectStatisticsService.countSubjects(Collections.singleton(subject.getId()), -1);
+            projectStatisticsService.countSources(sourceIds, -1);
             unassignAllSources(subject);
+            Long projectId = subject.getUser().getRoles().stream()
+                    .filter(role -> PARTICIPANT.equals(role.getAuthority().getName()))
+                    .map(role -> role.getProject().getId())
+                    .findFirst()
+                    .orElse(null);
             subjectRepository.delete(subject);
+            projectStatisticsService.countSources(sourceIds, 1);
+            tombstoneRepository.save(new Tombstone(TombstoneType.SUBJECT, subject.getId(),
+                    login, projectId));
             log.debug("Deleted Subject: {}", subject);
         });
     }
@@ -30,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -66,6 +67,9 @@ public class UserService {
     @Autowired
     private AuthorityRepository authorityRepository;
 
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
     /**
      * Activate a user with the given activation key.
      * @param key the activation key
@@ -77,7 +81,7 @@ public class UserService {
         return userRepository.findOneByActivationKey(key)
                 .map(user -> {
                     // activate given user for the registration key.
-                    user.setActivated(true);
+                    setActivated(user, true);
                     user.setActivationKey(null);
                     log.debug("Activated user: {}", user);
                     return user;
@@ -103,7 +107,7 @@ public class UserService {
                     user.setPassword(passwordEncoder.encode(newPassword));
                     user.setResetKey(null);
                     user.setResetDate(null);
-                    user.setActivated(true);
+                    setActivated(user, true);
                     return user;
                 });
     }
@@ -124,6 +128,18 @@ public class UserService {
                 });
     }
 
+    /**
+     * Activate or deactivate a user, and update the counters of the project of its subject.
+     */
+    private void setActivated(User user, boolean activated) {
+        if (user.getActivated() != activated) {
+            Set<Long> userIds = Collections.singleton(user.getId());
+            projectStatisticsService.countSubjectsOfUsers(userIds, -1);
+            user.setActivated(activated);
+            projectStatisticsService.countSubjectsOfUsers(userIds, 1);
+        }
+    }
+
     /**
      * Add a new user to the database.
      *
@@ -209,6 +225,9 @@ public class UserService {
         return Optional.of(userRepository
                 .findOne(userDto.getId()))
                 .map(user -> {
+                    // the activation and roles determine how the subject of the user is counted
+                    Set<Long> userIds = Collections.singleton(user.getId());
+                    projectStatisticsService.countSubjectsOfUsers(userIds, -1);
                     user.setLogin(userDto.getLogin());
                     user.setFirstName(userDto.getFirstName());
                     user.setLastName(userDto.getLastName());
@@ -218,6 +237,7 @@ public class UserService {
                     Set<Role> managedRoles = user.getRoles();
                     managedRoles.clear();
                     managedRoles.addAll(getUserRoles(userDto));
+                    projectStatisticsService.countSubjectsOfUsers(userIds, 1);
 
                     log.debug("Changed Information for User: {}", user);
                     return user;
@@ -0,0 +1,227 @@
+package org.radarcns.management.service.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.radarcns.management.service.dto.MinimalSourceTypeDTO;
+import org.radarcns.management.service.dto.SourceDataDTO;
+import org.radarcns.management.service.dto.SourceTypeDTO;
+
+/**
+ * Immutable snapshot of all source types, indexed by ID, producer, model and catalog version.
+ * The JSON of the source types of each producer, producer and model, and producer, model and
+ * catalog version is serialized when the snapshot is created.
+ *
+ * <p>The source types in a snapshot are shared by all readers, so they are only returned as
+ * copies, with an unmodifiable set of copied source data. Changing a returned source type does
+ * not change the snapshot.</p>
+ */
+public final class SourceTypeCatalog {
+
+    private static final byte[] EMPTY_LIST_JSON = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private final List<SourceTypeDTO> sourceTypes;
+
+    private final Map<Long, SourceTypeDTO> byId;
+
+    private final Map<String, List<SourceTypeDTO>> byKey;
+
+    private final Map<String, byte[]> json;
+
+    private SourceTypeCatalog(List<SourceTypeDTO> sourceTypes, ObjectMapper objectMapper)
+            throws JsonProcessingException {
+        List<SourceTypeDTO> sorted = new ArrayList<>(sourceTypes);
+        sorted.sort(Comparator.comparing(SourceTypeDTO::getId));
+        this.sourceTypes = Collections.unmodifiableList(sorted);
+
+        Map<Long, SourceTypeDTO> idIndex = new HashMap<>();
+        Map<String, List<SourceTypeDTO>> keyIndex = new LinkedHashMap<>();
+        for (SourceTypeDTO sourceType : this.sourceTypes) {
+            idIndex.put(sourceType.getId(), sourceType);
+            String producer = sourceType.getProducer();
+            String model = sourceType.getModel();
+            keyIndex.computeIfAbsent(key(producer), k -> new ArrayList<>()).add(sourceType);
+            keyIndex.computeIfAbsent(key(producer, model), k -> new ArrayList<>())
+                    .add(sourceType);
+            keyIndex.computeIfAbsent(key(producer, model, sourceType.getCatalogVersion()),
+                    k -> new ArrayList<>()).add(sourceType);
+        }
+        this.byId = Collections.unmodifiableMap(idIndex);
+
+        Map<String, List<SourceTypeDTO>> lists = new HashMap<>();
+        Map<String, byte[]> serialized = new HashMap<>();
+        for (Map.Entry<String, List<SourceTypeDTO>> entry : keyIndex.entrySet()) {
+            List<SourceTypeDTO> value = Collections.unmodifiableList(entry.getValue());
+            lists.put(entry.getKey(), value);
+            // a single source type for a producer, model and version, a list otherwise
+            serialized.put(entry.getKey(), objectMapper.writeValueAsBytes(
+                    isVersionKey(entry.getKey()) ? value.get(0) : value));
+        }
+        this.byKey = Collections.unmodifiableMap(lists);
+        this.json = Collections.unmodifiableMap(serialized);
+    }
+
+    /**
+     * Create a snapshot of given source types.
+     *
+     * @param sourceTypes all source types
+     * @param objectMapper mapper to serialize the source types with
+     * @return the snapshot
+     * @throws IllegalStateException if the source types cannot be serialized
+     */
+    public static SourceTypeCatalog of(Collection<SourceTypeDTO> sourceTypes,
+            ObjectMapper objectMapper) {
+        try {
+            return new SourceTypeCatalog(new ArrayList<>(sourceTypes), objectMapper);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize source types", ex);
+        }
+    }
+
+    /** All source types, ordered by ID. */
+    public List<SourceTypeDTO> findAll() {
+        return copy(sourceTypes);
+    }
+
+    /**
+     * Get the source types with given IDs that exist, ordered by ID.
+     *
+     * @param ids source type IDs
+     * @return the source types
+     */
+    public List<SourceTypeDTO> findAll(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(SourceTypeDTO::getId))
+                .map(SourceTypeCatalog::copy)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<SourceTypeDTO> findOne(Long id) {
+        return Optional.ofNullable(byId.get(id)).map(SourceTypeCatalog::copy);
+    }
+
+    /**
+     * Get a source type by producer, model and catalog version.
+     *
+     * @param producer the producer
+     * @param model the model
+     * @param version the catalog version
+     * @return the source type, or an empty optional if it does not exist
+     */
+    public Optional<SourceTypeDTO> findOne(String producer, String model, String version) {
+        return byKey.getOrDefault(key(producer, model, version), Collections.emptyList())
+                .stream()
+                .findFirst()
+                .map(SourceTypeCatalog::copy);
+    }
+
+    public List<SourceTypeDTO> findByProducer(String producer) {
+        return copy(byKey.getOrDefault(key(producer), Collections.emptyList()));
+    }
+
+    public List<SourceTypeDTO> findByProducerAndModel(String producer, String model) {
+        return copy(byKey.getOrDefault(key(producer, model), Collections.emptyList()));
+    }
+
+    /** JSON array of the source types of a producer. */
+    public byte[] findJsonByProducer(String producer) {
+        return json.getOrDefault(key(producer), EMPTY_LIST_JSON);
+    }
+
+    /** JSON array of the source types of a producer and model. */
+    public byte[] findJsonByProducerAndModel(String producer, String model) {
+        return json.getOrDefault(key(producer, model), EMPTY_LIST_JSON);
+    }
+
+    /**
+     * Get the JSON of a source type by producer, model and catalog version.
+     *
+     * @param producer the producer
+     * @param model the model
+     * @param version the catalog version
+     * @return the JSON object, or an empty optional if the source type does not exist
+     */
+    public Optional<byte[]> findJson(String producer, String model, String version) {
+        return Optional.ofNullable(json.get(key(producer, model, version)));
+    }
+
+    public int size() {
+        return sourceTypes.size();
+    }
+
+    private static List<SourceTypeDTO> copy(List<SourceTypeDTO> sourceTypes) {
+        return Collections.unmodifiableList(sourceTypes.stream()
+                .map(SourceTypeCatalog::copy)
+                .collect(Collectors.toList()));
+    }
+
+    private static SourceTypeDTO copy(SourceTypeDTO sourceType) {
+        SourceTypeDTO result = new SourceTypeDTO();
+        result.setId(sourceType.getId());
+        result.setProducer(sourceType.getProducer());
+        result.setModel(sourceType.getModel());
+        result.setCatalogVersion(sourceType.getCatalogVersion());
+        result.setSourceTypeScope(sourceType.getSourceTypeScope());
+        result.setCanRegisterDynamically(sourceType.getCanRegisterDynamically());
+        result.setName(sourceType.getName());
+        result.setDescription(sourceType.getDescription());
+        result.setAssessmentType(sourceType.getAssessmentType());
+        result.setAppProvider(sourceType.getAppProvider());
+        Set<SourceDataDTO> sourceData = sourceType.getSourceData().stream()
+                .map(SourceTypeCatalog::copy)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        result.setSourceData(Collections.unmodifiableSet(sourceData));
+        return result;
+    }
+
+    private static SourceDataDTO copy(SourceDataDTO sourceData) {
+        SourceDataDTO result = new SourceDataDTO();
+        result.setId(sourceData.getId());
+        result.setSourceDataType(sourceData.getSourceDataType());
+        result.setSourceDataName(sourceData.getSourceDataName());
+        result.setFrequency(sourceData.getFrequency());
+        result.setUnit(sourceData.getUnit());
+        result.setProcessingState(sourceData.getProcessingState());
+        result.setDataClass(sourceData.getDataClass());
+        result.setKeySchema(sourceData.getKeySchema());
+        result.setValueSchema(sourceData.getValueSchema());
+        result.setTopic(sourceData.getTopic());
+        result.setProvider(sourceData.getProvider());
+        result.setEnabled(sourceData.isEnabled());
+        MinimalSourceTypeDTO sourceType = sourceData.getSourceType();
+        if (sourceType != null) {
+            MinimalSourceTypeDTO minimal = new MinimalSourceTypeDTO();
+            minimal.setId(sourceType.getId());
+            minimal.setProducer(sourceType.getProducer());
+            minimal.setModel(sourceType.getModel());
+            minimal.setCatalogVersion(sourceType.getCatalogVersion());
+            result.setSourceType(minimal);
+        }
+        return result;
+    }
+
+    /** Slashes do not occur in producers, models or versions, so keys are unique. */
+    private static String key(String... parts) {
+        return String.join("/", parts);
+    }
+
+    private static boolean isVersionKey(String key) {
+        return key.chars().filter(c -> c == '/').count() == 2;
+    }
+}
@@ -0,0 +1,123 @@
+package org.radarcns.management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+
+/**
+ * Notification that a subject or source was created, updated or removed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityChangeDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum EntityType {
+        SUBJECT,
+        SOURCE
+    }
+
+    public enum Action {
+        CREATED,
+        UPDATED,
+        REMOVED
+    }
+
+    private EntityType entityType;
+
+    private Action action;
+
+    private Long id;
+
+    private String name;
+
+    private String projectName;
+
+    private SubjectStatus status;
+
+    private Boolean assigned;
+
+    private ZonedDateTime date;
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(EntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /** Login of a subject or name of a source. */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    /** Status of a subject. */
+    public SubjectStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SubjectStatus status) {
+        this.status = status;
+    }
+
+    /** Whether a source is assigned to a subject. */
+    public Boolean getAssigned() {
+        return assigned;
+    }
+
+    public void setAssigned(Boolean assigned) {
+        this.assigned = assigned;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public void setDate(ZonedDateTime date) {
+        this.date = date;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChangeDTO{"
+                + "entityType=" + entityType
+                + ", action=" + action
+                + ", id=" + id
+                + ", name='" + name + '\''
+                + ", projectName='" + projectName + '\''
+                + ", status=" + status
+                + ", assigned=" + assigned
+                + ", date=" + date
+                + '}';
+    }
+}
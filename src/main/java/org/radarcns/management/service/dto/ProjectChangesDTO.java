@@ -0,0 +1,68 @@
+package org.radarcns.management.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subjects and sources of a project that changed since a given date or cursor.
+ */
+public class ProjectChangesDTO {
+
+    private String cursor;
+
+    private boolean hasMore;
+
+    private List<SubjectDTO> subjects = new ArrayList<>();
+
+    private List<MinimalSourceDetailsDTO> sources = new ArrayList<>();
+
+    private List<TombstoneDTO> removed = new ArrayList<>();
+
+    /** Cursor to request the next changes after. */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /** Whether more changes can be requested right away with the cursor. */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    /** Subjects that were created or updated, and were not discontinued. */
+    public List<SubjectDTO> getSubjects() {
+        return subjects;
+    }
+
+    public void setSubjects(List<SubjectDTO> subjects) {
+        this.subjects = subjects;
+    }
+
+    /** Sources that were created or updated. */
+    public List<MinimalSourceDetailsDTO> getSources() {
+        return sources;
+    }
+
+    public void setSources(List<MinimalSourceDetailsDTO> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Subjects and sources that were deleted, and subjects that were discontinued or moved to
+     * another project.
+     */
+    public List<TombstoneDTO> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<TombstoneDTO> removed) {
+        this.removed = removed;
+    }
+}
@@ -0,0 +1,66 @@
+package org.radarcns.management.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of a project authorization snapshot. It is followed by a {@link SubjectSnapshotDTO} for
+ * each subject of the project.
+ */
+public class ProjectSnapshotDTO {
+
+    /** Version of the snapshot format. */
+    public static final int FORMAT_VERSION = 1;
+
+    private int format = FORMAT_VERSION;
+
+    private String projectName;
+
+    private String version;
+
+    private List<MinimalSourceTypeDTO> sourceTypes = new ArrayList<>();
+
+    public int getFormat() {
+        return format;
+    }
+
+    public void setFormat(int format) {
+        this.format = format;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    /** Version of the subjects and sources of the project, which is also the ETag. */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /** Source types of the project, which the sources refer to by ID. */
+    public List<MinimalSourceTypeDTO> getSourceTypes() {
+        return sourceTypes;
+    }
+
+    public void setSourceTypes(List<MinimalSourceTypeDTO> sourceTypes) {
+        this.sourceTypes = sourceTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectSnapshotDTO{"
+                + "format=" + format
+                + ", projectName='" + projectName + '\''
+                + ", version='" + version + '\''
+                + ", sourceTypes=" + sourceTypes.size()
+                + '}';
+    }
+}
@@ -0,0 +1,80 @@
+package org.radarcns.management.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Number of subjects and sources of a project, by status.
+ */
+public class ProjectStatisticsDTO {
+
+    private String projectName;
+
+    private long activatedSubjects;
+
+    private long deactivatedSubjects;
+
+    private long discontinuedSubjects;
+
+    private long assignedSources;
+
+    private long unassignedSources;
+
+    private ZonedDateTime reconciledDate;
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public long getActivatedSubjects() {
+        return activatedSubjects;
+    }
+
+    public void setActivatedSubjects(long activatedSubjects) {
+        this.activatedSubjects = activatedSubjects;
+    }
+
+    public long getDeactivatedSubjects() {
+        return deactivatedSubjects;
+    }
+
+    public void setDeactivatedSubjects(long deactivatedSubjects) {
+        this.deactivatedSubjects = deactivatedSubjects;
+    }
+
+    public long getDiscontinuedSubjects() {
+        return discontinuedSubjects;
+    }
+
+    public void setDiscontinuedSubjects(long discontinuedSubjects) {
+        this.discontinuedSubjects = discontinuedSubjects;
+    }
+
+    public long getAssignedSources() {
+        return assignedSources;
+    }
+
+    public void setAssignedSources(long assignedSources) {
+        this.assignedSources = assignedSources;
+    }
+
+    public long getUnassignedSources() {
+        return unassignedSources;
+    }
+
+    public void setUnassignedSources(long unassignedSources) {
+        this.unassignedSources = unassignedSources;
+    }
+
+    /** Date at which the counts were last verified against the subjects and sources. */
+    public ZonedDateTime getReconciledDate() {
+        return reconciledDate;
+    }
+
+    public void setReconciledDate(ZonedDateTime reconciledDate) {
+        this.reconciledDate = reconciledDate;
+    }
+}
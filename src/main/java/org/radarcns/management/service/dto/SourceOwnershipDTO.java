@@ -0,0 +1,70 @@
+package org.radarcns.management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.UUID;
+
+/**
+ * Subject and project that a source belongs to.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SourceOwnershipDTO {
+
+    private final UUID sourceId;
+
+    private final String sourceName;
+
+    private final String subjectLogin;
+
+    private final String projectName;
+
+    private final boolean assigned;
+
+    /**
+     * Ownership of a source.
+     *
+     * @param sourceId source ID of the source
+     * @param sourceName name of the source
+     * @param subjectLogin login of the subject of the source, if any
+     * @param projectName name of the project of the source, if any
+     * @param assigned whether the source is assigned
+     */
+    public SourceOwnershipDTO(UUID sourceId, String sourceName, String subjectLogin,
+            String projectName, boolean assigned) {
+        this.sourceId = sourceId;
+        this.sourceName = sourceName;
+        this.subjectLogin = subjectLogin;
+        this.projectName = projectName;
+        this.assigned = assigned;
+    }
+
+    public UUID getSourceId() {
+        return sourceId;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public String getSubjectLogin() {
+        return subjectLogin;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public boolean isAssigned() {
+        return assigned;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceOwnershipDTO{"
+                + "sourceId=" + sourceId
+                + ", sourceName='" + sourceName + '\''
+                + ", subjectLogin='" + subjectLogin + '\''
+                + ", projectName='" + projectName + '\''
+                + ", assigned=" + assigned
+                + '}';
+    }
+}
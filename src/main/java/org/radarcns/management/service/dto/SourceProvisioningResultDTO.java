@@ -0,0 +1,103 @@
+package org.radarcns.management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.UUID;
+
+/**
+ * Result of provisioning a single row of a bulk source provisioning.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SourceProvisioningResultDTO {
+
+    public enum ProvisioningStatus {
+        CREATED,
+        FAILED
+    }
+
+    private final long row;
+
+    private final ProvisioningStatus status;
+
+    private final Long id;
+
+    private final UUID sourceId;
+
+    private final String sourceName;
+
+    private final String message;
+
+    private SourceProvisioningResultDTO(long row, ProvisioningStatus status, Long id,
+            UUID sourceId, String sourceName, String message) {
+        this.row = row;
+        this.status = status;
+        this.id = id;
+        this.sourceId = sourceId;
+        this.sourceName = sourceName;
+        this.message = message;
+    }
+
+    /**
+     * Result of a row that was provisioned.
+     *
+     * @param row row number, starting at 1
+     * @param id ID of the created source
+     * @param sourceId source ID of the created source
+     * @param sourceName name of the created source
+     * @return result
+     */
+    public static SourceProvisioningResultDTO created(long row, Long id, UUID sourceId,
+            String sourceName) {
+        return new SourceProvisioningResultDTO(row, ProvisioningStatus.CREATED, id, sourceId,
+                sourceName, null);
+    }
+
+    /**
+     * Result of a row that could not be provisioned.
+     *
+     * @param row row number, starting at 1
+     * @param sourceName name of the source, if known
+     * @param message reason why the row could not be provisioned
+     * @return result
+     */
+    public static SourceProvisioningResultDTO failed(long row, String sourceName,
+            String message) {
+        return new SourceProvisioningResultDTO(row, ProvisioningStatus.FAILED, null, null,
+                sourceName, message);
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public ProvisioningStatus getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getSourceId() {
+        return sourceId;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceProvisioningResultDTO{"
+                + "row=" + row
+                + ", status=" + status
+                + ", id=" + id
+                + ", sourceId=" + sourceId
+                + ", sourceName='" + sourceName + '\''
+                + ", message='" + message + '\''
+                + '}';
+    }
+}
@@ -0,0 +1,114 @@
+package org.radarcns.management.service.dto;
+
+import java.util.List;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Lifecycle operation on many subjects of a project. The subjects are either given by login, or
+ * selected by the same criteria as a subject search.
+ */
+public class SubjectBulkOperationDTO {
+
+    public enum Operation {
+        DISCONTINUE,
+        DEACTIVATE,
+        MOVE
+    }
+
+    @NotNull
+    private Operation operation;
+
+    private List<String> logins;
+
+    private String login;
+
+    private String externalId;
+
+    private String attributeKey;
+
+    private String attributeValue;
+
+    private String targetProjectName;
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    /** Logins of the subjects to apply the operation to. */
+    public List<String> getLogins() {
+        return logins;
+    }
+
+    public void setLogins(List<String> logins) {
+        this.logins = logins;
+    }
+
+    /** Prefix of the logins of the subjects to apply the operation to. */
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    /** Prefix of the external IDs of the subjects to apply the operation to. */
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
+    /** Key of an attribute of the subjects to apply the operation to. */
+    public String getAttributeKey() {
+        return attributeKey;
+    }
+
+    public void setAttributeKey(String attributeKey) {
+        this.attributeKey = attributeKey;
+    }
+
+    /**
+     * Prefix of the value of the attribute with {@link #getAttributeKey()}.
+     */
+    public String getAttributeValue() {
+        return attributeValue;
+    }
+
+    public void setAttributeValue(String attributeValue) {
+        this.attributeValue = attributeValue;
+    }
+
+    /** Project to move the subjects to. */
+    public String getTargetProjectName() {
+        return targetProjectName;
+    }
+
+    public void setTargetProjectName(String targetProjectName) {
+        this.targetProjectName = targetProjectName;
+    }
+
+    /** Whether the subjects are selected by login or by any search criteria. */
+    public boolean hasSelection() {
+        return logins != null || login != null || externalId != null || attributeKey != null;
+    }
+
+    @Override
+    public String toString() {
+        return "SubjectBulkOperationDTO{"
+                + "operation=" + operation
+                + ", logins=" + (logins != null ? logins.size() + " logins" : null)
+                + ", login='" + login + '\''
+                + ", externalId='" + externalId + '\''
+                + ", attributeKey='" + attributeKey + '\''
+                + ", attributeValue='" + attributeValue + '\''
+                + ", targetProjectName='" + targetProjectName + '\''
+                + '}';
+    }
+}
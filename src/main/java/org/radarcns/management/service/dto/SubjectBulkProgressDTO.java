@@ -0,0 +1,71 @@
+package org.radarcns.management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO.Operation;
+
+/**
+ * Progress of a lifecycle operation on many subjects, reported after each chunk of subjects.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubjectBulkProgressDTO {
+
+    private final Operation operation;
+
+    private final int total;
+
+    private final int processed;
+
+    private final int updated;
+
+    private final int failed;
+
+    private final String message;
+
+    /**
+     * Progress of an operation.
+     *
+     * @param operation the operation
+     * @param total number of selected subjects
+     * @param processed number of selected subjects that were processed so far
+     * @param updated number of processed subjects that were updated
+     * @param failed number of processed subjects that could not be updated
+     * @param message reason why the last chunk could not be updated, if it failed
+     */
+    public SubjectBulkProgressDTO(Operation operation, int total, int processed, int updated,
+            int failed, String message) {
+        this.operation = operation;
+        this.total = total;
+        this.processed = processed;
+        this.updated = updated;
+        this.failed = failed;
+        this.message = message;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    /**
+     * Number of subjects that were updated. Subjects that were already in the requested state, or
+     * that are not participants of the project, are processed but not updated.
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -22,7 +22,22 @@ public class SubjectDTO implements Serializable {
         DEACTIVATED,    // activated = false, removed = false
         ACTIVATED,      // activated = true,  removed = false
         DISCONTINUED,   // activated = false, removed = true
-        INVALID         // activated = true,  removed = true (invalid state, makes no sense)
+        INVALID;        // activated = true,  removed = true (invalid state, makes no sense)
+
+        /**
+         * Status of a subject with given user and subject flags.
+         *
+         * @param activated whether the subject user is activated
+         * @param removed whether the subject is removed
+         * @return subject status
+         */
+        public static SubjectStatus of(boolean activated, boolean removed) {
+            if (removed) {
+                return activated ? INVALID : DISCONTINUED;
+            } else {
+                return activated ? ACTIVATED : DEACTIVATED;
+            }
+        }
     }
 
     public static final String HUMAN_READABLE_IDENTIFIER_KEY = "Human-readable-identifier";
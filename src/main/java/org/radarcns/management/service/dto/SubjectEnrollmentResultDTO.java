@@ -0,0 +1,103 @@
+package org.radarcns.management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Result of enrolling a single row of a bulk subject enrollment.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubjectEnrollmentResultDTO {
+
+    public enum EnrollmentStatus {
+        CREATED,
+        FAILED
+    }
+
+    private final long row;
+
+    private final EnrollmentStatus status;
+
+    private final Long id;
+
+    private final String login;
+
+    private final String externalId;
+
+    private final String message;
+
+    private SubjectEnrollmentResultDTO(long row, EnrollmentStatus status, Long id, String login,
+            String externalId, String message) {
+        this.row = row;
+        this.status = status;
+        this.id = id;
+        this.login = login;
+        this.externalId = externalId;
+        this.message = message;
+    }
+
+    /**
+     * Result of a row that was enrolled.
+     *
+     * @param row row number, starting at 1
+     * @param id ID of the created subject
+     * @param login login of the created subject
+     * @param externalId external ID of the created subject
+     * @return result
+     */
+    public static SubjectEnrollmentResultDTO created(long row, Long id, String login,
+            String externalId) {
+        return new SubjectEnrollmentResultDTO(row, EnrollmentStatus.CREATED, id, login,
+                externalId, null);
+    }
+
+    /**
+     * Result of a row that could not be enrolled.
+     *
+     * @param row row number, starting at 1
+     * @param login login of the subject, if known
+     * @param externalId external ID of the subject, if known
+     * @param message reason why the row could not be enrolled
+     * @return result
+     */
+    public static SubjectEnrollmentResultDTO failed(long row, String login, String externalId,
+            String message) {
+        return new SubjectEnrollmentResultDTO(row, EnrollmentStatus.FAILED, null, login,
+                externalId, message);
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public EnrollmentStatus getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "SubjectEnrollmentResultDTO{"
+                + "row=" + row
+                + ", status=" + status
+                + ", id=" + id
+                + ", login='" + login + '\''
+                + ", externalId='" + externalId + '\''
+                + ", message='" + message + '\''
+                + '}';
+    }
+}
@@ -0,0 +1,92 @@
+package org.radarcns.management.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+
+/**
+ * Subject in a project authorization snapshot, with the sources assigned to it.
+ */
+public class SubjectSnapshotDTO {
+
+    private String login;
+
+    private SubjectStatus status;
+
+    private List<SnapshotSource> sources = new ArrayList<>();
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public SubjectStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SubjectStatus status) {
+        this.status = status;
+    }
+
+    public List<SnapshotSource> getSources() {
+        return sources;
+    }
+
+    public void setSources(List<SnapshotSource> sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    public String toString() {
+        return "SubjectSnapshotDTO{"
+                + "login='" + login + '\''
+                + ", status=" + status
+                + ", sources=" + sources
+                + '}';
+    }
+
+    /** Source assigned to a subject, with the ID of its source type. */
+    public static class SnapshotSource {
+
+        private UUID sourceId;
+
+        private Long sourceTypeId;
+
+        public SnapshotSource() {
+            // for deserialization
+        }
+
+        public SnapshotSource(UUID sourceId, Long sourceTypeId) {
+            this.sourceId = sourceId;
+            this.sourceTypeId = sourceTypeId;
+        }
+
+        public UUID getSourceId() {
+            return sourceId;
+        }
+
+        public void setSourceId(UUID sourceId) {
+            this.sourceId = sourceId;
+        }
+
+        public Long getSourceTypeId() {
+            return sourceTypeId;
+        }
+
+        public void setSourceTypeId(Long sourceTypeId) {
+            this.sourceTypeId = sourceTypeId;
+        }
+
+        @Override
+        public String toString() {
+            return "SnapshotSource{"
+                    + "sourceId=" + sourceId
+                    + ", sourceTypeId=" + sourceTypeId
+                    + '}';
+        }
+    }
+}
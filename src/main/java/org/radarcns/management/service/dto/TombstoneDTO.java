@@ -0,0 +1,78 @@
+package org.radarcns.management.service.dto;
+
+import java.time.ZonedDateTime;
+import org.radarcns.management.domain.enumeration.TombstoneType;
+
+/**
+ * A subject or source that was removed from a project.
+ */
+public class TombstoneDTO {
+
+    public enum RemovalReason {
+        DELETED,
+        DISCONTINUED,
+        MOVED
+    }
+
+    private TombstoneType type;
+
+    private Long id;
+
+    private String name;
+
+    private RemovalReason reason;
+
+    private ZonedDateTime date;
+
+    public TombstoneType getType() {
+        return type;
+    }
+
+    public void setType(TombstoneType type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /** Login of a subject or name of a source. */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public RemovalReason getReason() {
+        return reason;
+    }
+
+    public void setReason(RemovalReason reason) {
+        this.reason = reason;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public void setDate(ZonedDateTime date) {
+        this.date = date;
+    }
+
+    @Override
+    public String toString() {
+        return "TombstoneDTO{"
+                + "type=" + type
+                + ", id=" + id
+                + ", name='" + name + '\''
+                + ", reason=" + reason
+                + ", date=" + date
+                + '}';
+    }
+}
@@ -1,6 +1,7 @@
 package org.radarcns.management.service.mapper.decorator;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import org.mapstruct.MappingTarget;
@@ -33,9 +34,12 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
         }
         SubjectDTO dto = delegate.subjectToSubjectDTO(subject);
         dto.setStatus(getSubjectStatus(subject));
-        Optional<Role> role = subject.getUser().getRoles().stream()
-                .filter(r -> r.getAuthority().getName().equals(AuthoritiesConstants.PARTICIPANT))
-                .findFirst();
+        // use the participant role with the lowest ID, or else the inactive participant role with
+        // the lowest ID, so that the project does not depend on the iteration order of the roles
+        Optional<Role> role = findFirstRole(subject, AuthoritiesConstants.PARTICIPANT);
+        if (!role.isPresent()) {
+            role = findFirstRole(subject, AuthoritiesConstants.INACTIVE_PARTICIPANT);
+        }
 
         role.ifPresent(role1 ->
                 dto.setProject(projectMapper.projectToProjectDTO(role1.getProject())));
@@ -43,6 +47,13 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
         return dto;
     }
 
+    private static Optional<Role> findFirstRole(Subject subject, String authority) {
+        return subject.getUser().getRoles().stream()
+                .filter(r -> r.getAuthority().getName().equals(authority))
+                .min(Comparator.comparing(Role::getId,
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
     @Override
     public Subject subjectDTOToSubject(SubjectDTO subjectDto) {
 
@@ -92,14 +103,7 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
     }
 
     private SubjectStatus getSubjectStatus(Subject subject) {
-        if (!subject.getUser().getActivated() && !subject.isRemoved()) {
-            return SubjectStatus.DEACTIVATED;
-        } else if (subject.getUser().getActivated() && !subject.isRemoved()) {
-            return SubjectStatus.ACTIVATED;
-        } else if (!subject.getUser().getActivated() && subject.isRemoved()) {
-            return SubjectStatus.DISCONTINUED;
-        }
-        return SubjectStatus.INVALID;
+        return SubjectStatus.of(subject.getUser().getActivated(), subject.isRemoved());
     }
 
     private Subject setSubjectStatus(SubjectDTO subjectDto, Subject subject) {
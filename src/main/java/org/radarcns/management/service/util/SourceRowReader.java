@@ -0,0 +1,72 @@
+package org.radarcns.management.service.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import org.radarcns.management.service.dto.SourceDTO;
+
+/**
+ * Reads sources from a newline-delimited JSON stream, one source object per line, without
+ * loading the whole stream in memory. Blank lines are skipped.
+ */
+public final class SourceRowReader implements Closeable {
+
+    private final BufferedReader reader;
+
+    private final ObjectReader sourceReader;
+
+    private long rowNumber;
+
+    /**
+     * Read sources from newline-delimited JSON.
+     *
+     * @param in input stream
+     * @param objectMapper mapper to parse the sources with
+     */
+    public SourceRowReader(InputStream in, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.sourceReader = objectMapper.readerFor(SourceDTO.class);
+    }
+
+    /**
+     * Read the next source.
+     *
+     * @return the source, or {@code null} if the end of the stream was reached
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the row is malformed. The next row can still be read.
+     */
+    public SourceDTO next() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+
+        rowNumber++;
+        try {
+            return sourceReader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed row: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    /**
+     * Number of the last row returned by {@link #next()}, starting at 1.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,155 @@
+package org.radarcns.management.service.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import org.radarcns.management.service.dto.SubjectDTO;
+
+/**
+ * Reads subjects from a stream, one subject per line, without loading the whole stream in memory.
+ * Blank lines are skipped.
+ *
+ * <p>In newline-delimited JSON, each line is a subject object. In CSV, the first line is a
+ * header. The {@code login}, {@code externalId} and {@code externalLink} columns are mapped to
+ * the subject fields, and any other column to a subject attribute. CSV values may be quoted, but
+ * may not contain line breaks.</p>
+ */
+public final class SubjectRowReader implements Closeable {
+
+    private static final ObjectReader CSV_READER = new CsvMapper().readerFor(String[].class);
+
+    private final BufferedReader reader;
+
+    private final LineParser parser;
+
+    private long rowNumber;
+
+    private SubjectRowReader(InputStream in, LineParser parser) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.parser = parser;
+    }
+
+    /**
+     * Read subjects from newline-delimited JSON.
+     *
+     * @param in input stream
+     * @param objectMapper mapper to parse the subjects with
+     * @return subject reader
+     */
+    public static SubjectRowReader ndjson(InputStream in, ObjectMapper objectMapper) {
+        ObjectReader subjectReader = objectMapper.readerFor(SubjectDTO.class);
+        return new SubjectRowReader(in, line -> subjectReader.readValue(line));
+    }
+
+    /**
+     * Read subjects from CSV with a header line.
+     *
+     * @param in input stream
+     * @return subject reader
+     */
+    public static SubjectRowReader csv(InputStream in) {
+        return new SubjectRowReader(in, new CsvLineParser());
+    }
+
+    /**
+     * Read the next subject.
+     *
+     * @return the subject, or {@code null} if the end of the stream was reached
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the row is malformed. The next row can still be read.
+     */
+    public SubjectDTO next() throws IOException {
+        String line = reader.readLine();
+        while (line != null && (line.trim().isEmpty() || !parser.isRow(line))) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+
+        rowNumber++;
+        try {
+            return parser.parse(line);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed row: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    /**
+     * Number of the last row returned by {@link #next()}, starting at 1.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        /** Whether the line is a row, rather than a header. */
+        default boolean isRow(String line) throws IOException {
+            return true;
+        }
+
+        SubjectDTO parse(String line) throws IOException;
+    }
+
+    /** Parses CSV rows, using the first line as header. */
+    private static class CsvLineParser implements LineParser {
+
+        private String[] header;
+
+        @Override
+        public boolean isRow(String line) throws IOException {
+            if (header == null) {
+                header = CSV_READER.readValue(line);
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = header[i].trim();
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public SubjectDTO parse(String line) throws IOException {
+            String[] values = CSV_READER.readValue(line);
+            if (values.length > header.length) {
+                throw new IllegalArgumentException("Row has " + values.length
+                        + " columns but the header has " + header.length);
+            }
+            SubjectDTO subject = new SubjectDTO();
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i].trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                switch (header[i]) {
+                    case "login":
+                        subject.setLogin(value);
+                        break;
+                    case "externalId":
+                        subject.setExternalId(value);
+                        break;
+                    case "externalLink":
+                        subject.setExternalLink(value);
+                        break;
+                    default:
+                        subject.getAttributes().put(header[i], value);
+                        break;
+                }
+            }
+            return subject;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import static org.radarcns.management.security.SecurityUtils.getJWT;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 
@@ -33,6 +35,8 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/management/audits")
 public class AuditResource {
 
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -77,6 +81,35 @@ public class AuditResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /audits/search : search a page of AuditEvents by principal, event type and date.
+     *
+     * <p>All filters are optional. A missing fromDate or toDate leaves that side of the time
+     * period open.</p>
+     *
+     * @param principal the principal of the AuditEvents to get
+     * @param type the type of the AuditEvents to get
+     * @param fromDate the first day of the time period of AuditEvents to get
+     * @param toDate the last day of the time period of AuditEvents to get
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<AuditEvent>> search(
+            @RequestParam(value = "principal", required = false) String principal,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "fromDate", required = false) LocalDate fromDate,
+            @RequestParam(value = "toDate", required = false) LocalDate toDate,
+            @ApiParam Pageable pageable) throws NotAuthorizedException {
+        checkPermission(getJWT(servletRequest), AUDIT_READ);
+        LocalDateTime from = fromDate == null ? EPOCH : fromDate.atStartOfDay();
+        LocalDateTime to = toDate == null ? LocalDateTime.now() : toDate.atTime(LocalTime.MAX);
+        Page<AuditEvent> page = auditEventService.search(principal, type, from, to, pageable);
+        HttpHeaders headers = PaginationUtil
+                .generatePaginationHttpHeaders(page, "/management/audits/search");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /audits/:id : get an AuditEvent by id.
      *
@@ -6,16 +6,18 @@ import static org.radarcns.management.security.SecurityUtils.getJWT;
 
 import com.codahale.metrics.annotation.Timed;
 import java.util.Arrays;
-import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.auth.exception.NotAuthorizedException;
+import org.radarcns.management.service.ResponseCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST controller for managing Authority.
@@ -27,20 +29,30 @@ public class AuthorityResource {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     private final Logger log = LoggerFactory.getLogger(AuthorityResource.class);
 
     /**
      * GET  /authorities : get all the authorities.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of authorities in body
+     * @param webRequest the request, to check whether the client has the authorities
+     * @return the ResponseEntity with status 200 (OK) and the list of authorities in body, or
+     *     status 304 (Not Modified) if the client has the authorities
      */
     @GetMapping("/authorities")
     @Timed
-    public List<String> getAllAuthorities() throws NotAuthorizedException {
+    public ResponseEntity<byte[]> getAllAuthorities(WebRequest webRequest)
+            throws NotAuthorizedException {
         log.debug("REST request to get all Authorities");
         checkPermission(getJWT(servletRequest), AUTHORITY_READ);
-        return Arrays.asList(AuthoritiesConstants.PROJECT_ADMIN, AuthoritiesConstants.PROJECT_OWNER,
-                AuthoritiesConstants.PROJECT_AFFILIATE, AuthoritiesConstants.PROJECT_ANALYST);
+        return responseCacheService.get(ResponseCacheService.STATIC, "authorities",
+                () -> ResponseEntity.ok(Arrays.asList(AuthoritiesConstants.PROJECT_ADMIN,
+                        AuthoritiesConstants.PROJECT_OWNER,
+                        AuthoritiesConstants.PROJECT_AFFILIATE,
+                        AuthoritiesConstants.PROJECT_ANALYST)))
+                .toResponseEntity(webRequest);
     }
 
 }
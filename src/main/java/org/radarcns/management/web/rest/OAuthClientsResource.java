@@ -21,19 +21,18 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
-import org.radarcns.management.domain.Subject;
 import org.radarcns.management.domain.User;
-import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.UserService;
 import org.radarcns.management.service.dto.ClientDetailsDTO;
 import org.radarcns.management.service.dto.ClientPairInfoDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.mapper.ClientDetailsMapper;
-import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.CustomConflictException;
 import org.radarcns.management.web.rest.errors.CustomNotFoundException;
 import org.radarcns.management.web.rest.errors.CustomParameterizedException;
@@ -87,10 +86,7 @@ public class OAuthClientsResource {
     private ClientDetailsMapper clientDetailsMapper;
 
     @Autowired
-    private SubjectRepository subjectRepository;
-
-    @Autowired
-    private SubjectMapper subjectMapper;
+    private SubjectService subjectService;
 
     @Autowired
     private UserService userService;
@@ -245,8 +241,7 @@ public class OAuthClientsResource {
         }
 
         // lookup the subject
-        Subject subject = getSubject(login);
-        SubjectDTO subjectDto = subjectMapper.subjectToSubjectDTO(subject);
+        SubjectDTO subjectDto = getSubject(login);
 
         // Users who can update a subject can also generate a refresh token for that subject
         checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE,
@@ -257,12 +252,11 @@ public class OAuthClientsResource {
         ClientDetails details = getOAuthClient(clientId);
 
         // add the user's authorities
-        User user = subject.getUser();
-        Set<GrantedAuthority> authorities = new HashSet<>();
-        user.getAuthorities().stream()
-                .forEach(a -> authorities.add(new SimpleGrantedAuthority(a.getName())));
+        Set<GrantedAuthority> authorities = subjectDto.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority(role.getAuthorityName()))
+                .collect(Collectors.toSet());
 
-        OAuth2AccessToken token = createToken(clientId, user.getLogin(), authorities,
+        OAuth2AccessToken token = createToken(clientId, subjectDto.getLogin(), authorities,
                 details.getScope(), details.getResourceIds());
 
         ClientPairInfoDTO cpi = new ClientPairInfoDTO(token.getRefreshToken().getValue());
@@ -319,8 +313,8 @@ public class OAuthClientsResource {
         }
     }
 
-    private Subject getSubject(String login) throws CustomNotFoundException {
-        Optional<Subject> subject = subjectRepository.findOneWithEagerBySubjectLogin(login);
+    private SubjectDTO getSubject(String login) throws CustomNotFoundException {
+        Optional<SubjectDTO> subject = subjectService.findOneByLogin(login);
 
         if (!subject.isPresent()) {
             log.error("Pair client request for unknown subject login: {}", login);
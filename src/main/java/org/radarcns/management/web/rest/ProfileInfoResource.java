@@ -5,11 +5,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.radarcns.management.config.DefaultProfileUtil;
+import org.radarcns.management.service.ResponseCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Resource to return information about the currently running Spring profiles.
@@ -24,10 +27,24 @@ public class ProfileInfoResource {
     @Autowired
     private JHipsterProperties jHipsterProperties;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    /**
+     * GET  /profile-info : get the active profiles. These do not change while the application is
+     * running, so they are served from the response cache.
+     *
+     * @param webRequest the request, to check whether the client has the profile information
+     * @return the ResponseEntity with status 200 (OK) and the profile information in body, or
+     *     status 304 (Not Modified) if the client has the profile information
+     */
     @GetMapping("/profile-info")
-    public ProfileInfoVM getActiveProfiles() {
-        String[] activeProfiles = DefaultProfileUtil.getActiveProfiles(env);
-        return new ProfileInfoVM(activeProfiles, getRibbonEnv(activeProfiles));
+    public ResponseEntity<byte[]> getActiveProfiles(WebRequest webRequest) {
+        return responseCacheService.get(ResponseCacheService.STATIC, "profile-info", () -> {
+            String[] activeProfiles = DefaultProfileUtil.getActiveProfiles(env);
+            return ResponseEntity.ok(new ProfileInfoVM(activeProfiles,
+                    getRibbonEnv(activeProfiles)));
+        }).toResponseEntity(webRequest);
     }
 
     private String getRibbonEnv(String[] activeProfiles) {
@@ -9,35 +9,75 @@ import static org.radarcns.auth.authorization.Permission.PROJECT_UPDATE;
 import static org.radarcns.auth.authorization.Permission.ROLE_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCE_READ;
 import static org.radarcns.auth.authorization.Permission.SUBJECT_READ;
+import static org.radarcns.auth.authorization.Permission.SUBJECT_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
 import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.APPLICATION_NDJSON;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.TEXT_CSV;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.acceptsGzip;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.jsonLineWriter;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.rowWriter;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
-import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.auth.token.RadarToken;
+import org.radarcns.management.service.ChangeFeedService;
+import org.radarcns.management.service.ChangeStreamService;
 import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.ProjectSnapshotService;
+import org.radarcns.management.service.ProjectStatisticsService;
 import org.radarcns.management.service.RoleService;
 import org.radarcns.management.service.SourceService;
+import org.radarcns.management.service.SubjectExportService;
+import org.radarcns.management.service.SubjectLifecycleService;
+import org.radarcns.management.service.SubjectSearchService;
+import org.radarcns.management.service.SubjectService;
+import org.radarcns.management.service.dto.EntityChangeDTO;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectChangesDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.ProjectSnapshotDTO;
+import org.radarcns.management.service.dto.ProjectStatisticsDTO;
 import org.radarcns.management.service.dto.RoleDTO;
-import org.radarcns.management.service.dto.SourceDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO.Operation;
+import org.radarcns.management.service.dto.SubjectBulkProgressDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
-import org.radarcns.management.service.mapper.SubjectMapper;
+import org.radarcns.management.service.dto.SubjectSnapshotDTO;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.radarcns.management.web.rest.util.HeaderUtil;
 import org.radarcns.management.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
@@ -45,6 +85,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -57,6 +99,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * REST controller for managing Project.
@@ -69,6 +113,22 @@ public class ProjectResource {
 
     private static final String ENTITY_NAME = "project";
 
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Maximum duration of a change stream, if the token expires later. */
+    private static final long MAX_CHANGE_STREAM_MILLIS = 60 * 60 * 1000L;
+
+    private static final CsvSchema SUBJECT_EXPORT_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("login")
+            .addColumn("externalId")
+            .addColumn("externalLink")
+            .addColumn("status")
+            .addColumn("sources")
+            .addColumn("attributes")
+            .setUseHeader(true)
+            .build();
+
     @Autowired
     private ProjectService projectService;
 
@@ -79,13 +139,34 @@ public class ProjectResource {
     private RoleService roleService;
 
     @Autowired
-    private SubjectRepository subjectRepository;
+    private SubjectService subjectService;
 
     @Autowired
-    private SubjectMapper subjectMapper;
+    private SourceService sourceService;
 
     @Autowired
-    private SourceService sourceService;
+    private SubjectExportService subjectExportService;
+
+    @Autowired
+    private SubjectSearchService subjectSearchService;
+
+    @Autowired
+    private ProjectSnapshotService projectSnapshotService;
+
+    @Autowired
+    private SubjectLifecycleService subjectLifecycleService;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
      * POST  /projects : Create a new project.
@@ -226,8 +307,14 @@ public class ProjectResource {
     }
 
     /**
-     * GET  /projects/{projectName}/sources : get all the sources by project.
+     * GET  /projects/{projectName}/sources : get a page of the sources of a project.
+     *
+     * <p>Minimized sources are read without loading their source types and projects.</p>
      *
+     * @param pageable the page to get
+     * @param projectName the project to get the sources of
+     * @param assigned whether to get only assigned or only unassigned sources
+     * @param minimized whether to get minimal source details
      * @return the ResponseEntity with status 200 (OK) and the list of sources in body
      */
     @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/sources")
@@ -241,32 +328,22 @@ public class ProjectResource {
         ProjectDTO projectDto = projectService.findOneByName(projectName);
         checkPermissionOnProject(getJWT(servletRequest), SOURCE_READ, projectDto.getProjectName());
 
-        if (Objects.nonNull(assigned)) {
-            if (minimized) {
-                return ResponseEntity.ok(sourceService
-                        .findAllMinimalSourceDetailsByProjectAndAssigned(
-                                projectDto.getId(), assigned));
-            } else {
-                return ResponseEntity.ok(sourceService
-                        .findAllByProjectAndAssigned(projectDto.getId(), assigned));
-            }
+        Page<?> page;
+        if (minimized) {
+            page = Objects.nonNull(assigned)
+                    ? sourceService.findAllMinimalSourceDetailsByProjectAndAssigned(
+                            projectDto.getId(), assigned, pageable)
+                    : sourceService.findAllMinimalSourceDetailsByProject(projectDto.getId(),
+                            pageable);
         } else {
-            if (minimized) {
-                Page<MinimalSourceDetailsDTO> page = sourceService
-                        .findAllMinimalSourceDetailsByProject(projectDto.getId(), pageable);
-                HttpHeaders headers = PaginationUtil
-                        .generatePaginationHttpHeaders(page, HeaderUtil.buildPath("api",
-                                "projects", projectName, "sources"));
-                return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
-            } else {
-                Page<SourceDTO> page = sourceService
-                        .findAllByProjectId(projectDto.getId(), pageable);
-                HttpHeaders headers = PaginationUtil
-                        .generatePaginationHttpHeaders(page, HeaderUtil.buildPath("api",
-                                "projects", projectName, "sources"));
-                return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
-            }
+            page = Objects.nonNull(assigned)
+                    ? sourceService.findAllByProjectAndAssigned(projectDto.getId(), assigned,
+                            pageable)
+                    : sourceService.findAllByProjectId(projectDto.getId(), pageable);
         }
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page,
+                HeaderUtil.buildPath("api", "projects", projectName, "sources"));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
     /**
@@ -289,13 +366,11 @@ public class ProjectResource {
         boolean includeInactiveParticipants =
                 inactiveParticipantsParam != null ? inactiveParticipantsParam : false;
         if (includeInactiveParticipants) {
-            page = subjectRepository.findAllByProjectNameAndAuthoritiesIn(pageable, projectName,
-                    Arrays.asList(PARTICIPANT, INACTIVE_PARTICIPANT))
-                    .map(subjectMapper::subjectToSubjectDTO);
+            page = subjectService.findAllByProjectNameAndAuthoritiesIn(pageable, projectName,
+                    Arrays.asList(PARTICIPANT, INACTIVE_PARTICIPANT));
         } else {
-            page = subjectRepository.findAllByProjectNameAndAuthoritiesIn(pageable, projectName,
-                    Collections.singletonList(PARTICIPANT))
-                    .map(subjectMapper::subjectToSubjectDTO);
+            page = subjectService.findAllByProjectNameAndAuthoritiesIn(pageable, projectName,
+                    Collections.singletonList(PARTICIPANT));
         }
 
         HttpHeaders headers = PaginationUtil
@@ -303,4 +378,312 @@ public class ProjectResource {
                         "projects", projectName, "subjects"));
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
+
+    /**
+     * GET  /projects/{projectName}/subjects/search : search the subjects of a project.
+     *
+     * <p>Logins, external IDs and attribute values match if they start with the given value.
+     * An attribute value is only matched for the given attribute key. Subjects are ordered by
+     * ID.</p>
+     *
+     * @param pageable the page to get
+     * @param projectName the project to search the subjects of
+     * @param login prefix of the subject login
+     * @param externalId prefix of the subject external ID
+     * @param attributeKey key of an attribute that the subject has
+     * @param attributeValue prefix of the value of the attribute with {@code attributeKey}
+     * @return the ResponseEntity with status 200 (OK) and the matching subjects in body
+     * @throws NotAuthorizedException if the user may not read subjects in the project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/subjects/search")
+    @Timed
+    public ResponseEntity<List<SubjectDTO>> searchSubjects(@ApiParam Pageable pageable,
+            @PathVariable String projectName,
+            @RequestParam(value = "login", required = false) String login,
+            @RequestParam(value = "externalId", required = false) String externalId,
+            @RequestParam(value = "attributeKey", required = false) String attributeKey,
+            @RequestParam(value = "attributeValue", required = false) String attributeValue)
+            throws NotAuthorizedException {
+        log.debug("REST request to search subjects of project {}", projectName);
+        // this checks if the project exists
+        projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_READ, projectName);
+        Page<SubjectDTO> page = subjectSearchService.search(projectName, login, externalId,
+                attributeKey, attributeValue, pageable);
+        HttpHeaders headers = PaginationUtil
+                .generatePaginationHttpHeaders(page, HeaderUtil.buildPath("api",
+                        "projects", projectName, "subjects", "search"));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /projects/{projectName}/statistics : get the number of subjects and sources of a
+     * project, by status.
+     *
+     * <p>The numbers are kept up to date when subjects and sources change, and are reconciled
+     * with the actual numbers every hour.</p>
+     *
+     * @param projectName the project to get the statistics of
+     * @return the ResponseEntity with status 200 (OK) and the statistics in body
+     * @throws NotAuthorizedException if the user may not read the project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/statistics")
+    @Timed
+    public ResponseEntity<ProjectStatisticsDTO> getStatistics(@PathVariable String projectName)
+            throws NotAuthorizedException {
+        log.debug("REST request to get statistics of project {}", projectName);
+        ProjectDTO projectDto = projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), PROJECT_READ, projectName);
+        return ResponseEntity.ok(projectStatisticsService.getStatistics(projectDto));
+    }
+
+    /**
+     * GET  /projects/{projectName}/changes : get the subjects and sources of a project that
+     * changed since a given date or cursor.
+     *
+     * <p>Clients can poll this endpoint to keep a copy of the subjects and sources of a project
+     * up to date. The first request passes a date as {@code since}, and each following request
+     * passes the {@code cursor} of the previous response. If {@code hasMore} is set, more changes
+     * can be requested right away. Deleted subjects and sources, and subjects that were
+     * discontinued or moved to another project, are listed as removed. A change may be returned
+     * by two consecutive requests.</p>
+     *
+     * @param projectName the project to get the changes of
+     * @param since ISO 8601 date after which the changes were made, if no cursor is given
+     * @param cursor cursor of the previous response
+     * @param size maximum number of changed subjects, sources and removed entities, each
+     * @return the ResponseEntity with status 200 (OK) and the changes in body, or status 400 (Bad
+     *      Request) if neither or both a date and a cursor are given, the cursor is invalid, or
+     *      the size is out of range
+     * @throws NotAuthorizedException if the user may not read the subjects or sources of the
+     *      project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/changes")
+    @Timed
+    public ResponseEntity<ProjectChangesDTO> getChanges(@PathVariable String projectName,
+            @RequestParam(value = "since", required = false)
+            @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime since,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "" + ChangeFeedService.DEFAULT_PAGE_SIZE)
+                    int size) throws NotAuthorizedException {
+        log.debug("REST request to get changes of project {} since {} or {}", projectName,
+                since, cursor);
+        final ProjectDTO projectDto = projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_READ, projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SOURCE_READ, projectName);
+        if ((since == null) == (cursor == null)) {
+            throw new CustomParameterizedException("error.sinceOrCursorRequired");
+        }
+        if (size < 1 || size > ChangeFeedService.MAX_PAGE_SIZE) {
+            throw new CustomParameterizedException("error.invalidPageSize",
+                    Integer.toString(ChangeFeedService.MAX_PAGE_SIZE));
+        }
+        return ResponseEntity.ok(changeFeedService.findChanges(projectDto, since, cursor, size));
+    }
+
+    /**
+     * GET  /projects/{projectName}/changes/stream : stream the changes of the subjects and
+     * sources of a project as server-sent events.
+     *
+     * <p>Each change is sent as soon as its transaction commits, on any node of the cluster, as a
+     * {@value ChangeStreamService#EVENT_NAME} event with an {@link EntityChangeDTO} as JSON data.
+     * Changes of subjects are only sent if the token may read subjects in the project, and
+     * changes of sources only if it may read sources. The stream ends when the token expires, or
+     * if the client does not keep up with the changes. Clients should then catch up with the
+     * change feed and subscribe again.</p>
+     *
+     * @param projectName the project to stream the changes of
+     * @return the emitter of the changes
+     * @throws NotAuthorizedException if the user may neither read the subjects nor the sources
+     *      of the project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/changes/stream")
+    @Timed
+    public SseEmitter streamChanges(@PathVariable String projectName)
+            throws NotAuthorizedException {
+        log.debug("REST request to stream changes of project {}", projectName);
+        // this checks if the project exists
+        projectService.findOneByName(projectName);
+        RadarToken token = getJWT(servletRequest);
+        boolean subjects = token.hasPermissionOnProject(SUBJECT_READ, projectName);
+        boolean sources = token.hasPermissionOnProject(SOURCE_READ, projectName);
+        if (!subjects && !sources) {
+            checkPermissionOnProject(token, SUBJECT_READ, projectName);
+        }
+        long timeout = MAX_CHANGE_STREAM_MILLIS;
+        if (token.getExpiresAt() != null) {
+            timeout = Math.max(1L, Math.min(timeout,
+                    token.getExpiresAt().getTime() - System.currentTimeMillis()));
+        }
+        return changeStreamService.subscribe(projectName, subjects, sources, timeout);
+    }
+
+    /**
+     * GET  /projects/{projectName}/subjects/export : export all subjects of a project.
+     *
+     * <p>The subjects are streamed while they are read from the database, ordered by ID, with
+     * their sources and attributes. In newline-delimited JSON ({@code format=ndjson}, the default),
+     * each line is a subject. In CSV ({@code format=csv}), the sources are listed by source ID,
+     * separated by semicolons, and the attributes are a single column with a JSON object, so that
+     * keys and values may contain any character. An interrupted export
+     * can be resumed by passing the ID of the last received subject as {@code after}.</p>
+     *
+     * @param projectName the project to export the subjects of
+     * @param format the export format, {@code ndjson} or {@code csv}
+     * @param after only export subjects with a larger ID than this
+     * @param response the response to write the subjects to
+     * @throws IOException if the response cannot be written
+     * @throws NotAuthorizedException if the user may not read subjects in the project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/subjects/export")
+    @Timed
+    public void exportSubjects(@PathVariable String projectName,
+            @RequestParam(value = "format", required = false, defaultValue = "ndjson")
+                    String format,
+            @RequestParam(value = "after", required = false, defaultValue = "0") long after,
+            HttpServletResponse response) throws IOException, NotAuthorizedException {
+        log.debug("REST request to export subjects of project {}", projectName);
+        // this checks if the project exists
+        projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_READ, projectName);
+        boolean csv = "csv".equals(format);
+        if (!csv && !"ndjson".equals(format)) {
+            throw new CustomParameterizedException("error.unsupportedExportFormat", format);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(csv ? TEXT_CSV : APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = response.getWriter();
+
+        if (csv) {
+            try (SequenceWriter rows = new CsvMapper().writerFor(Object[].class)
+                    .with(SUBJECT_EXPORT_SCHEMA)
+                    .writeValues(writer)) {
+                ObjectWriter attributeWriter = objectMapper.writerFor(Map.class);
+                subjectExportService.export(projectName, after,
+                        rowWriter(subject -> rows.write(toCsvRow(subject, attributeWriter))));
+            }
+        } else {
+            subjectExportService.export(projectName, after,
+                    jsonLineWriter(writer, objectMapper.writerFor(SubjectDTO.class)));
+        }
+        writer.flush();
+    }
+
+    /**
+     * GET  /projects/{projectName}/snapshot : get a snapshot of the subjects of a project, with
+     * their status and the IDs of their assigned sources, for authorizing data locally.
+     *
+     * <p>The snapshot is newline-delimited JSON. The first line is a {@link ProjectSnapshotDTO}
+     * with the version of the snapshot and the source types of the project. Each following line
+     * is a {@link SubjectSnapshotDTO}. The response is compressed with gzip if the client accepts
+     * it. The version is sent as a weak ETag, so a client that passes it in
+     * {@code If-None-Match} gets status 304 (Not Modified) while the project is unchanged,
+     * without a snapshot being generated.</p>
+     *
+     * @param projectName the project to get the snapshot of
+     * @param webRequest the request, to check the ETag of
+     * @param request the request, to check the accepted encodings of
+     * @param response the response to write the snapshot to
+     * @throws IOException if the response cannot be written
+     * @throws NotAuthorizedException if the user may not read subjects in the project
+     */
+    @GetMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/snapshot")
+    @Timed
+    public void getSnapshot(@PathVariable String projectName, WebRequest webRequest,
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException, NotAuthorizedException {
+        log.debug("REST request to get snapshot of project {}", projectName);
+        // this checks if the project exists
+        ProjectDTO project = projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_READ, projectName);
+        ProjectSnapshotDTO header = projectSnapshotService.getHeader(project);
+        if (webRequest.checkNotModified("W/\"" + header.getVersion() + "\"")) {
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream out = response.getOutputStream();
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(objectMapper.writeValueAsString(header));
+            writer.write('\n');
+            projectSnapshotService.export(projectName,
+                    jsonLineWriter(writer, objectMapper.writerFor(SubjectSnapshotDTO.class)));
+        }
+    }
+
+    /**
+     * POST  /projects/{projectName}/subjects/lifecycle : discontinue, deactivate or move many
+     * subjects of a project.
+     *
+     * <p>The subjects are given by login, or selected with the same criteria as the subject
+     * search. Only participants of the project that are not discontinued are updated. Moved
+     * subjects lose their sources and become inactive participants of this project. The
+     * subjects are updated in chunks of {@value SubjectLifecycleService#CHUNK_SIZE}, and the
+     * progress is streamed as newline-delimited JSON after each chunk.</p>
+     *
+     * @param projectName the project of the subjects
+     * @param request the operation and the selection of subjects
+     * @param response the response to write the progress to
+     * @throws IOException if the response cannot be written
+     * @throws NotAuthorizedException if the user may not update subjects in the project, or in
+     *      the project to move them to
+     */
+    @PostMapping("/projects/{projectName:" + Constants.ENTITY_ID_REGEX + "}/subjects/lifecycle")
+    @Timed
+    public void updateSubjectLifecycle(@PathVariable String projectName,
+            @Valid @RequestBody SubjectBulkOperationDTO request, HttpServletResponse response)
+            throws IOException, NotAuthorizedException {
+        log.debug("REST request to apply {} to subjects of project {}", request, projectName);
+        final ProjectDTO project = projectService.findOneByName(projectName);
+        RadarToken token = getJWT(servletRequest);
+        checkPermissionOnProject(token, SUBJECT_UPDATE, projectName);
+        if (!request.hasSelection()) {
+            throw new CustomParameterizedException("error.subjectSelectionRequired");
+        }
+        ProjectDTO targetProject = null;
+        if (request.getOperation() == Operation.MOVE) {
+            if (request.getTargetProjectName() == null
+                    || request.getTargetProjectName().equals(projectName)) {
+                throw new CustomParameterizedException("error.targetProjectRequired");
+            }
+            targetProject = projectService.findOneByName(request.getTargetProjectName());
+            checkPermissionOnProject(token, SUBJECT_UPDATE, targetProject.getProjectName());
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter writer = response.getWriter();
+        Consumer<SubjectBulkProgressDTO> progressWriter = jsonLineWriter(writer,
+                objectMapper.writerFor(SubjectBulkProgressDTO.class));
+        subjectLifecycleService.apply(project, request, targetProject,
+                progressWriter.andThen(progress -> writer.flush()));
+    }
+
+    private static Object[] toCsvRow(SubjectDTO subject, ObjectWriter attributeWriter)
+            throws IOException {
+        return new Object[] {
+                subject.getId(),
+                subject.getLogin(),
+                subject.getExternalId(),
+                subject.getExternalLink(),
+                subject.getStatus(),
+                subject.getSources().stream()
+                        .sorted(Comparator.comparing(MinimalSourceDetailsDTO::getId))
+                        .map(source -> String.valueOf(source.getSourceId()))
+                        .collect(Collectors.joining(";")),
+                attributeWriter.writeValueAsString(subject.getAttributes())
+        };
+    }
 }
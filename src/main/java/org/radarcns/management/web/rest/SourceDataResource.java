@@ -13,12 +13,12 @@ import io.swagger.annotations.ApiParam;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
-import java.util.List;
 import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
+import org.radarcns.management.service.ResponseCacheService;
 import org.radarcns.management.service.SourceDataService;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.web.rest.errors.CustomConflictException;
@@ -40,6 +40,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST controller for managing SourceData.
@@ -55,6 +56,9 @@ public class SourceDataResource {
     @Autowired
     private SourceDataService sourceDataService;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -113,21 +117,28 @@ public class SourceDataResource {
     }
 
     /**
-     * GET  /source-data : get all the sourceData.
+     * GET  /source-data : get all the sourceData. The pages are served from the response cache
+     * until a source type or source data changes.
      *
      * @param pageable parameters
-     * @return the ResponseEntity with status 200 (OK) and the list of sourceData in body
+     * @param webRequest the request, to check whether the client has the current page
+     * @return the ResponseEntity with status 200 (OK) and the list of sourceData in body, or
+     *     status 304 (Not Modified) if the client has the current page
      */
     @GetMapping("/source-data")
     @Timed
-    public ResponseEntity<List<SourceDataDTO>> getAllSourceData(@ApiParam Pageable pageable)
-            throws NotAuthorizedException {
+    public ResponseEntity<byte[]> getAllSourceData(@ApiParam Pageable pageable,
+            WebRequest webRequest) throws NotAuthorizedException {
         log.debug("REST request to get all SourceData");
         checkPermission(getJWT(servletRequest), SOURCEDATA_READ);
-        Page<SourceDataDTO> page = sourceDataService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil
-                .generatePaginationHttpHeaders(page, "/api/source-data");
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        return responseCacheService.get(ResponseCacheService.SOURCE_DATA,
+                ResponseCacheService.pageKey(pageable), () -> {
+                    Page<SourceDataDTO> page = sourceDataService.findAll(pageable);
+                    HttpHeaders headers = PaginationUtil
+                            .generatePaginationHttpHeaders(page, "/api/source-data");
+                    return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+                })
+                .toResponseEntity(webRequest);
     }
 
     /**
@@ -5,24 +5,42 @@ import static org.radarcns.auth.authorization.Permission.SOURCE_DELETE;
 import static org.radarcns.auth.authorization.Permission.SOURCE_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCE_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
+import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
 import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.APPLICATION_NDJSON;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.jsonLineWriter;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
 import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.SourceOwnershipService;
+import org.radarcns.management.service.SourceProvisioningService;
 import org.radarcns.management.service.SourceService;
+import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceDTO;
+import org.radarcns.management.service.dto.SourceOwnershipDTO;
+import org.radarcns.management.service.dto.SourceProvisioningResultDTO;
+import org.radarcns.management.service.util.SourceRowReader;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.radarcns.management.web.rest.util.HeaderUtil;
 import org.radarcns.management.web.rest.util.PaginationUtil;
+import org.radarcns.management.web.rest.util.StreamingResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +56,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -51,9 +70,24 @@ public class SourceResource {
 
     private static final String ENTITY_NAME = "source";
 
+    /** Maximum number of sources to look up the ownership of in one request. */
+    public static final int MAX_OWNERSHIP_LOOKUPS = 1000;
+
     @Autowired
     private SourceService sourceService;
 
+    @Autowired
+    private SourceProvisioningService sourceProvisioningService;
+
+    @Autowired
+    private SourceOwnershipService sourceOwnershipService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private SourceRepository sourceRepository;
 
@@ -96,6 +130,52 @@ public class SourceResource {
         }
     }
 
+    /**
+     * POST  /sources/bulk : Provision many unassigned sources of one source type in a project.
+     *
+     * <p>The sources are read from a newline-delimited JSON
+     * ({@value StreamingResponseUtil#APPLICATION_NDJSON}) request body while they are provisioned,
+     * one source object per line. Only the source name, the expected source name and the
+     * attributes of a source are used. The result of each row is streamed back as
+     * newline-delimited JSON, in row order.</p>
+     *
+     * @param projectName the project to provision the sources in
+     * @param sourceTypeId ID of the source type of the sources, which must be a source type of
+     *                     the project
+     * @param request the request containing the sources
+     * @param response the response to write the results to
+     * @throws IOException if the request cannot be read or the response cannot be written
+     * @throws NotAuthorizedException if the user may not create sources in the project
+     */
+    @PostMapping(value = "/sources/bulk", consumes = APPLICATION_NDJSON)
+    @Timed
+    public void provisionSources(@RequestParam String projectName,
+            @RequestParam Long sourceTypeId, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, NotAuthorizedException {
+        log.debug("REST request to provision sources of type {} in project {}", sourceTypeId,
+                projectName);
+        // this checks if the project exists
+        ProjectDTO project = projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SOURCE_CREATE, projectName);
+        if (project.getSourceTypes().stream()
+                .noneMatch(sourceType -> sourceTypeId.equals(sourceType.getId()))) {
+            throw new CustomParameterizedException("error.sourceTypeNotInProject",
+                    sourceTypeId.toString(), projectName);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = response.getWriter();
+
+        try (SourceRowReader reader = new SourceRowReader(request.getInputStream(),
+                objectMapper)) {
+            sourceProvisioningService.provision(project, sourceTypeId, reader,
+                    jsonLineWriter(writer, objectMapper.writerFor(
+                            SourceProvisioningResultDTO.class)));
+        }
+    }
+
     /**
      * PUT  /sources : Updates an existing source.
      *
@@ -151,6 +231,43 @@ public class SourceResource {
         return ResponseUtil.wrapOrNotFound(sourceService.findOneByName(sourceName));
     }
 
+    /**
+     * GET  /sources/ownership/:sourceId : get the subject and project of the source with given
+     * source ID.
+     *
+     * @param sourceId the source ID of the source
+     * @return the ResponseEntity with status 200 (OK) and with body the ownership of the source,
+     *     or with status 404 (Not Found)
+     */
+    @GetMapping("/sources/ownership/{sourceId}")
+    @Timed
+    public ResponseEntity<SourceOwnershipDTO> getSourceOwnership(@PathVariable UUID sourceId)
+            throws NotAuthorizedException {
+        log.debug("REST request to get ownership of Source : {}", sourceId);
+        checkPermission(getJWT(servletRequest), SOURCE_READ);
+        return ResponseUtil.wrapOrNotFound(sourceOwnershipService.findOne(sourceId));
+    }
+
+    /**
+     * POST  /sources/ownership : get the subject and project of many sources.
+     *
+     * @param sourceIds the source IDs of the sources, at most {@value #MAX_OWNERSHIP_LOOKUPS}
+     * @return the ResponseEntity with status 200 (OK) and with body the ownership of the sources
+     *     that exist, in the order of the given source IDs
+     */
+    @PostMapping("/sources/ownership")
+    @Timed
+    public ResponseEntity<List<SourceOwnershipDTO>> getSourceOwnerships(
+            @RequestBody List<UUID> sourceIds) throws NotAuthorizedException {
+        log.debug("REST request to get ownership of {} Sources", sourceIds.size());
+        checkPermission(getJWT(servletRequest), SOURCE_READ);
+        if (sourceIds.size() > MAX_OWNERSHIP_LOOKUPS) {
+            throw new CustomParameterizedException("error.tooManySourceIds",
+                    Integer.toString(MAX_OWNERSHIP_LOOKUPS));
+        }
+        return ResponseEntity.ok(sourceOwnershipService.findAll(sourceIds));
+    }
+
     /**
      * DELETE  /sources/:sourceName : delete the "id" source.
      *
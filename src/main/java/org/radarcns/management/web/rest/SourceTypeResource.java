@@ -23,6 +23,8 @@ import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.ResponseCacheService;
+import org.radarcns.management.service.SourceTypeCatalogService;
 import org.radarcns.management.service.SourceTypeService;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
@@ -38,6 +40,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -47,6 +50,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST controller for managing SourceType.
@@ -65,6 +69,12 @@ public class SourceTypeResource {
     @Autowired
     private SourceTypeRepository sourceTypeRepository;
 
+    @Autowired
+    private SourceTypeCatalogService sourceTypeCatalogService;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -136,20 +146,27 @@ public class SourceTypeResource {
     }
 
     /**
-     * GET  /source-types : get all the sourceTypes.
+     * GET  /source-types : get all the sourceTypes. The pages are served from the response cache
+     * until a source type or source data changes.
      *
      * @param pageable parameters
-     * @return the ResponseEntity with status 200 (OK) and the list of sourceTypes in body
+     * @param webRequest the request, to check whether the client has the current page
+     * @return the ResponseEntity with status 200 (OK) and the list of sourceTypes in body, or
+     *     status 304 (Not Modified) if the client has the current page
      */
     @GetMapping("/source-types")
     @Timed
-    public ResponseEntity<List<SourceTypeDTO>> getAllSourceTypes(@ApiParam Pageable pageable)
-            throws NotAuthorizedException {
+    public ResponseEntity<byte[]> getAllSourceTypes(@ApiParam Pageable pageable,
+            WebRequest webRequest) throws NotAuthorizedException {
         checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
-        Page<SourceTypeDTO> page = sourceTypeService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil
-                .generatePaginationHttpHeaders(page, "/api/source-types");
-        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        return responseCacheService.get(ResponseCacheService.SOURCE_TYPES,
+                ResponseCacheService.pageKey(pageable), () -> {
+                    Page<SourceTypeDTO> page = sourceTypeService.findAll(pageable);
+                    HttpHeaders headers = PaginationUtil
+                            .generatePaginationHttpHeaders(page, "/api/source-types");
+                    return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+                })
+                .toResponseEntity(webRequest);
     }
 
     /**
@@ -160,10 +177,12 @@ public class SourceTypeResource {
      */
     @GetMapping("/source-types/{producer:" + Constants.ENTITY_ID_REGEX + "}")
     @Timed
-    public ResponseEntity<List<SourceTypeDTO>> getSourceTypes(@PathVariable String producer)
+    public ResponseEntity<byte[]> getSourceTypes(@PathVariable String producer)
             throws NotAuthorizedException {
         checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
-        return ResponseEntity.ok(sourceTypeService.findByProducer(producer));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(sourceTypeCatalogService.getCatalog().findJsonByProducer(producer));
     }
 
     /**
@@ -177,10 +196,13 @@ public class SourceTypeResource {
     @GetMapping("/source-types/{producer:" + Constants.ENTITY_ID_REGEX + "}/{model:"
             + Constants.ENTITY_ID_REGEX + "}")
     @Timed
-    public ResponseEntity<List<SourceTypeDTO>> getSourceTypes(@PathVariable String producer,
+    public ResponseEntity<byte[]> getSourceTypes(@PathVariable String producer,
             @PathVariable String model) throws NotAuthorizedException {
         checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
-        return ResponseEntity.ok(sourceTypeService.findByProducerAndModel(producer, model));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(sourceTypeCatalogService.getCatalog()
+                        .findJsonByProducerAndModel(producer, model));
     }
 
     /**
@@ -194,12 +216,12 @@ public class SourceTypeResource {
     @GetMapping("/source-types/{producer:" + Constants.ENTITY_ID_REGEX + "}/{model:"
             + Constants.ENTITY_ID_REGEX + "}/{version:" + Constants.ENTITY_ID_REGEX + "}")
     @Timed
-    public ResponseEntity<SourceTypeDTO> getSourceTypes(@PathVariable String producer,
+    public ResponseEntity<byte[]> getSourceTypes(@PathVariable String producer,
             @PathVariable String model, @PathVariable String version)
             throws NotAuthorizedException {
         checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
-        return ResponseUtil.wrapOrNotFound(Optional.ofNullable(
-                sourceTypeService.findByProducerAndModelAndVersion(producer, model, version)));
+        return ResponseUtil.wrapOrNotFound(sourceTypeCatalogService.getCatalog()
+                .findJson(producer, model, version), jsonHeaders());
     }
 
     /**
@@ -237,6 +259,12 @@ public class SourceTypeResource {
                 displayName(sourceTypeDto))).build();
     }
 
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return headers;
+    }
+
     private String displayName(SourceTypeDTO sourceType) {
         return String.join(" ", sourceType.getProducer(), sourceType.getModel(),
                 sourceType.getCatalogVersion());
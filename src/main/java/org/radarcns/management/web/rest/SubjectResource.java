@@ -10,51 +10,71 @@ import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnSubject;
 import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.APPLICATION_NDJSON;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.TEXT_CSV;
+import static org.radarcns.management.web.rest.util.StreamingResponseUtil.jsonLineWriter;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.radarcns.auth.config.Constants;
 import org.radarcns.auth.exception.NotAuthorizedException;
 import org.radarcns.management.domain.Role;
+import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Subject;
 import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.security.SecurityUtils;
+import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.SourceMetadataService;
 import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.SubjectEnrollmentService;
 import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
 import org.radarcns.management.service.mapper.SubjectMapper;
+import org.radarcns.management.service.util.SubjectRowReader;
 import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.radarcns.management.web.rest.util.HeaderUtil;
 import org.radarcns.management.web.rest.util.PaginationUtil;
+import org.radarcns.management.web.rest.util.StreamingResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -77,6 +97,15 @@ public class SubjectResource {
     @Autowired
     private SubjectService subjectService;
 
+    @Autowired
+    private SubjectEnrollmentService subjectEnrollmentService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private SubjectRepository subjectRepository;
 
@@ -89,6 +118,9 @@ public class SubjectResource {
     @Autowired
     private SourceTypeService sourceTypeService;
 
+    @Autowired
+    private SourceMetadataService sourceMetadataService;
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -213,6 +245,45 @@ public class SubjectResource {
     }
 
 
+    /**
+     * POST  /subjects/bulk : Enroll many subjects in a project.
+     *
+     * <p>The subjects are read from a CSV ({@value StreamingResponseUtil#TEXT_CSV}) or
+     * newline-delimited JSON ({@value StreamingResponseUtil#APPLICATION_NDJSON}) request body while
+     * they are enrolled. The result of each row is streamed back as newline-delimited JSON, in row
+     * order. See {@link SubjectRowReader} for
+     * the accepted formats.</p>
+     *
+     * @param projectName the project to enroll the subjects in
+     * @param request the request containing the subjects
+     * @param response the response to write the results to
+     * @throws IOException if the request cannot be read or the response cannot be written
+     * @throws NotAuthorizedException if the user may not create subjects in the project
+     */
+    @PostMapping(value = "/subjects/bulk", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    @Timed
+    public void enrollSubjects(@RequestParam String projectName, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, NotAuthorizedException {
+        log.debug("REST request to enroll subjects in project {}", projectName);
+        // this checks if the project exists
+        ProjectDTO project = projectService.findOneByName(projectName);
+        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_CREATE, projectName);
+
+        boolean csv = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV));
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = response.getWriter();
+
+        try (SubjectRowReader reader = csv ? SubjectRowReader.csv(request.getInputStream())
+                : SubjectRowReader.ndjson(request.getInputStream(), objectMapper)) {
+            subjectEnrollmentService.enroll(project, reader,
+                    jsonLineWriter(writer, objectMapper.writerFor(
+                            SubjectEnrollmentResultDTO.class)));
+        }
+    }
+
     /**
      * GET  /subjects : get all the subjects.
      *
@@ -247,14 +318,12 @@ public class SubjectResource {
             SubjectDTO subjectDto = subjectMapper.subjectToSubjectDTO(subject.get());
             return ResponseEntity.ok(Collections.singletonList(subjectDto));
         } else if (projectName == null && externalId != null) {
-            List<Subject> subjects = subjectRepository
-                    .findAllByExternalIdAndAuthoritiesIn(externalId, authoritiesToInclude);
-            return ResponseUtil
-                    .wrapOrNotFound(Optional.of(subjectMapper.subjectsToSubjectDTOs(subjects)));
+            return ResponseUtil.wrapOrNotFound(Optional.of(subjectService
+                    .findAllByExternalIdAndAuthoritiesIn(externalId, authoritiesToInclude)));
         } else if (projectName != null) {
-            Page<SubjectDTO> page = subjectRepository
+            Page<SubjectDTO> page = subjectService
                     .findAllByProjectNameAndAuthoritiesIn(pageable, projectName,
-                            authoritiesToInclude).map(subjectMapper::subjectToSubjectDTO);
+                            authoritiesToInclude);
 
             HttpHeaders headers = PaginationUtil
                     .generatePaginationHttpHeaders(page, "/api/subjects");
@@ -279,11 +348,11 @@ public class SubjectResource {
     public ResponseEntity<SubjectDTO> getSubject(@PathVariable String login)
             throws NotAuthorizedException {
         log.debug("REST request to get Subject : {}", login);
-        Optional<Subject> subject = subjectRepository.findOneWithEagerBySubjectLogin(login);
+        Optional<SubjectDTO> subject = subjectService.findOneByLogin(login);
         if (!subject.isPresent()) {
             return ResponseEntity.notFound().build();
         }
-        SubjectDTO subjectDto = subjectMapper.subjectToSubjectDTO(subject.get());
+        SubjectDTO subjectDto = subject.get();
         checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_READ, subjectDto.getProject()
                 .getProjectName(), subjectDto.getLogin());
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(subjectDto));
@@ -300,11 +369,11 @@ public class SubjectResource {
     public ResponseEntity<Void> deleteSubject(@PathVariable String login)
             throws NotAuthorizedException {
         log.debug("REST request to delete Subject : {}", login);
-        Optional<Subject> subject = subjectRepository.findOneWithEagerBySubjectLogin(login);
+        Optional<SubjectDTO> subject = subjectService.findOneByLogin(login);
         if (!subject.isPresent()) {
             return ResponseEntity.notFound().build();
         }
-        SubjectDTO subjectDto = subjectMapper.subjectToSubjectDTO(subject.get());
+        SubjectDTO subjectDto = subject.get();
         checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_DELETE, subjectDto.getProject()
                 .getProjectName(), subjectDto.getLogin());
         subjectService.deleteSubject(login);
@@ -408,8 +477,16 @@ public class SubjectResource {
                 .map(Objects::nonNull).reduce(false, (r1, r2) -> r1 || r2);
 
         // handle the source registration
-        MinimalSourceDetailsDTO sourceRegistered = subjectService
-                .assignOrUpdateSource(sub, sourceType.get(), role.getProject(), sourceDto);
+        MinimalSourceDetailsDTO sourceRegistered;
+        try {
+            sourceRegistered = subjectService.assignOrUpdateSource(sub, sourceType.get(),
+                    role.getProject(), sourceDto);
+        } catch (DataIntegrityViolationException ex) {
+            // a concurrent request registered a source first, so this returns or rejects it
+            log.debug("Retrying source registration for subject {}: {}", login, ex.getMessage());
+            sourceRegistered = subjectService.assignOrUpdateSource(sub, sourceType.get(),
+                    role.getProject(), sourceDto);
+        }
 
         // Return the correct response type, either created if a new source was created, or ok if
         // an existing source was provided. If an existing source was given but not found, the
@@ -436,15 +513,52 @@ public class SubjectResource {
     public ResponseEntity<List<MinimalSourceDetailsDTO>> getSubjectSources(
             @PathVariable String login) throws NotAuthorizedException {
         // check the subject id
-        Optional<Subject> subject = subjectRepository.findOneWithEagerBySubjectLogin(login);
+        Optional<SubjectDTO> subject = subjectService.findOneByLogin(login);
         if (!subject.isPresent()) {
             return ResponseEntity.notFound().build();
         }
 
-        SubjectDTO subjectDto = subjectMapper.subjectToSubjectDTO(subject.get());
+        SubjectDTO subjectDto = subject.get();
         checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_READ, subjectDto.getProject()
                 .getProjectName(), subjectDto.getLogin());
 
-        return ResponseEntity.ok().body(subjectService.getSources(subject.get()));
+        return ResponseEntity.ok().body(subjectService.getSources(login));
+    }
+
+    /**
+     * PATCH  /subjects/:login/sources/:sourceName/attributes : set or remove attributes of a
+     * source of a subject. The body is a JSON object of the attributes to set; attributes with a
+     * {@code null} value are removed and attributes that are not given are not changed. Only the
+     * attributes that change are written.
+     *
+     * @param login the subject login
+     * @param sourceName the source name
+     * @param attributes the attributes to set or remove
+     * @return the ResponseEntity with status 204 (No Content), or with status 404 (Not Found) if
+     *     the subject does not exist or has no source with given name
+     */
+    @PatchMapping("/subjects/{login:" + Constants.ENTITY_ID_REGEX + "}/sources/{sourceName:"
+            + Constants.ENTITY_ID_REGEX + "}/attributes")
+    @Timed
+    public ResponseEntity<Void> patchSubjectSourceAttributes(@PathVariable String login,
+            @PathVariable String sourceName, @RequestBody Map<String, String> attributes)
+            throws NotAuthorizedException {
+        log.debug("REST request to patch attributes of source {} of subject {}", sourceName,
+                login);
+        // check the permission on the subject before revealing whether it has the source
+        Optional<SubjectDTO> subject = sourceMetadataService.findSubject(login);
+        if (!subject.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        SubjectDTO subjectDto = subject.get();
+        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE, subjectDto.getProject()
+                .getProjectName(), subjectDto.getLogin());
+
+        Optional<Source> source = sourceMetadataService.findSubjectSource(login, sourceName);
+        if (!source.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        sourceMetadataService.patchAttributes(source.get().getId(), attributes);
+        return ResponseEntity.noContent().build();
     }
 }
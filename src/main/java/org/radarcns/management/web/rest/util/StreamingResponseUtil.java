@@ -0,0 +1,102 @@
+package org.radarcns.management.web.rest.util;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Utility class for REST endpoints that stream their request or response body as
+ * newline-delimited JSON or CSV, one row at a time, optionally compressed.
+ */
+public final class StreamingResponseUtil {
+
+    public static final String TEXT_CSV = "text/csv";
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private StreamingResponseUtil() {
+        // utility class
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header accepts gzip. A coding with quality value 0 is
+     * not accepted, and gzip is also accepted through a wildcard.
+     *
+     * @param acceptEncoding the header value, or {@code null} if there is none
+     * @return whether the response may be compressed with gzip
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+            boolean accepted = quality(parameters) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            } else if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    /** Quality value of a content coding, which is 1 if it is not given and 0 if invalid. */
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Consumer that writes each value as a line of JSON.
+     *
+     * @param writer writer of the response
+     * @param objectWriter JSON writer of the values
+     * @param <T> type of the values
+     * @return consumer that throws {@link UncheckedIOException} if the response cannot be written
+     */
+    public static <T> Consumer<T> jsonLineWriter(Writer writer, ObjectWriter objectWriter) {
+        return rowWriter(value -> {
+            writer.write(objectWriter.writeValueAsString(value));
+            writer.write('\n');
+        });
+    }
+
+    /**
+     * Consumer that writes each value as a row of the response. Since the rows are written from
+     * within the services that produce them, an {@link IOException} is rethrown unchecked.
+     *
+     * @param writer function that writes a single row
+     * @param <T> type of the values
+     * @return consumer that throws {@link UncheckedIOException} if the response cannot be written
+     */
+    public static <T> Consumer<T> rowWriter(RowWriter<T> writer) {
+        return value -> {
+            try {
+                writer.write(value);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+    }
+
+    /** Function that writes a single row of a response. */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        void write(T value) throws IOException;
+    }
+}
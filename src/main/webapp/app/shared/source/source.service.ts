@@ -75,6 +75,8 @@ export class SourceService {
         const params: URLSearchParams = new URLSearchParams();
         if (req) {
             params.set('assigned', req.assigned);
+            params.set('page', req.page);
+            params.set('size', req.size);
         }
         params.set('minimized', 'true');
         const options = {
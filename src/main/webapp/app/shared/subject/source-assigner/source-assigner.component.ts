@@ -17,6 +17,8 @@ import {SourceService} from "../../source/index";
 import {SubjectPopupService} from "../subject-popup.service";
 import {Principal} from "../../auth/principal.service";
 
+const AVAILABLE_SOURCES_PAGE_SIZE = 100;
+
 
 @Component({
     selector: 'source-assigner',
@@ -29,6 +31,10 @@ export class SubjectSourceAssignerDialogComponent implements OnInit {
     authorities: any[];
     assignableSources: MinimalSource[];
     assignedSources: MinimalSource[];
+    availableSourcesPage: number;
+    loadedSources: number;
+    hasMoreSources: boolean;
+    isLoadingSources: boolean;
     isSaving: boolean;
     currentAccount: any;
 
@@ -48,20 +54,46 @@ export class SubjectSourceAssignerDialogComponent implements OnInit {
     ngOnInit() {
         this.isSaving = false;
         if (this.subject.id !== null) {
-            this.sourceService.findAvailable(
-                {
-                    projectName: this.subject.project.projectName,
-                    assigned: false
-                }).subscribe(
-                (res: Response) => {
-                    this.assignableSources = res.json();
-                }, (res: Response) => this.onError(res.json()));
+            // unassigned sources are loaded one page at a time, on request
+            this.assignableSources = [];
+            this.loadedSources = 0;
+            this.hasMoreSources = false;
+            this.loadAvailableSources(0);
         }
         if(this.subject.id !==null ) {
             this.assignedSources = this.subject.sources;
         }
 
     }
+
+    loadMoreSources() {
+        this.loadAvailableSources(this.availableSourcesPage + 1);
+    }
+
+    private loadAvailableSources(page: number) {
+        this.isLoadingSources = true;
+        this.sourceService.findAvailable(
+            {
+                projectName: this.subject.project.projectName,
+                assigned: false,
+                page: page,
+                size: AVAILABLE_SOURCES_PAGE_SIZE
+            }).subscribe(
+            (res: Response) => {
+                const sources: MinimalSource[] = res.json();
+                this.availableSourcesPage = page;
+                this.loadedSources += sources.length;
+                this.assignableSources = this.assignableSources.concat(
+                        sources.filter((source) => !this.hasSource(source)));
+                const totalItems = +res.headers.get('X-Total-Count');
+                this.hasMoreSources = sources.length > 0 && this.loadedSources < totalItems;
+                this.isLoadingSources = false;
+            }, (res: Response) => {
+                this.isLoadingSources = false;
+                this.onError(res.json());
+            });
+    }
+
     clear() {
         this.activeModal.dismiss('cancel');
     }
@@ -0,0 +1,70 @@
+package org.radarcns.management.aop.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MethodTimingAspectUnitTest {
+
+    private static final String TIMER_NAME = "methods.java.lang.Object.toString";
+
+    private MetricRegistry metricRegistry;
+
+    private ProceedingJoinPoint joinPoint;
+
+    @Before
+    public void setUp() throws Throwable {
+        metricRegistry = new MetricRegistry();
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(signature.getDeclaringTypeName()).thenReturn("java.lang.Object");
+        when(signature.getName()).thenReturn("toString");
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenReturn("result");
+    }
+
+    @Test
+    public void allCallsAreTimedWithFullSampleRate() throws Throwable {
+        MethodTimingAspect aspect = new MethodTimingAspect(metricRegistry, 1.0);
+        for (int i = 0; i < 10; i++) {
+            assertThat(aspect.timeSampled(joinPoint)).isEqualTo("result");
+        }
+        verify(joinPoint, times(10)).proceed();
+        assertThat(metricRegistry.timer(TIMER_NAME).getCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void noCallsAreTimedWithZeroSampleRate() throws Throwable {
+        MethodTimingAspect aspect = new MethodTimingAspect(metricRegistry, 0.0);
+        for (int i = 0; i < 10; i++) {
+            assertThat(aspect.timeSampled(joinPoint)).isEqualTo("result");
+        }
+        verify(joinPoint, times(10)).proceed();
+        assertThat(metricRegistry.getTimers()).isEmpty();
+    }
+
+    @Test
+    public void failingCallsAreTimed() throws Throwable {
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("failed"));
+        MethodTimingAspect aspect = new MethodTimingAspect(metricRegistry, 1.0);
+        assertThatThrownBy(() -> aspect.timeSampled(joinPoint))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("failed");
+        assertThat(metricRegistry.timer(TIMER_NAME).getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleRateMustBeAFraction() {
+        new MethodTimingAspect(metricRegistry, 1.5);
+    }
+}
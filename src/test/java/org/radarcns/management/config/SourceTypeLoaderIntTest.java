@@ -0,0 +1,145 @@
+package org.radarcns.management.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.SourceTypeImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for importing the catalog with a local stand-in of the catalog server.
+ *
+ * @see SourceTypeLoader
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class SourceTypeLoaderIntTest {
+
+    private static final String CATALOG = "{\"passive-source-types\": [{"
+            + "\"vendor\": \"TEST-VENDOR\", \"model\": \"TEST-MODEL\", \"version\": \"%s\", "
+            + "\"scope\": \"PASSIVE\", \"data\": [{\"type\": \"ACCELEROMETER\"}]}]}";
+
+    @Autowired
+    private SourceTypeImportService sourceTypeImportService;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    private HttpServer server;
+
+    private final List<String> ifNoneMatch = new ArrayList<>();
+
+    private final List<Integer> statuses = new ArrayList<>();
+
+    private volatile String version = "v1";
+
+    private SourceTypeLoader sourceTypeLoader;
+
+    private ManagementPortalProperties properties;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/source-types", this::handle);
+        server.start();
+
+        properties = new ManagementPortalProperties();
+        properties.getCatalogueServer().setEnableAutoImport(true);
+        properties.getCatalogueServer().setServerUrl("http://localhost:"
+                + server.getAddress().getPort() + "/source-types");
+
+        sourceTypeLoader = new SourceTypeLoader();
+        ReflectionTestUtils.setField(sourceTypeLoader, "sourceTypeImportService",
+                sourceTypeImportService);
+        ReflectionTestUtils.setField(sourceTypeLoader, "managementPortalProperties", properties);
+        ReflectionTestUtils.setField(sourceTypeLoader, "metricRegistry", metricRegistry);
+        ReflectionTestUtils.setField(sourceTypeLoader, "hazelcastInstance", hazelcastInstance);
+        ReflectionTestUtils.setField(sourceTypeLoader, "taskExecutor", new SyncTaskExecutor());
+        hazelcastInstance.getMap(SourceTypeLoader.STATE_MAP_NAME).clear();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        hazelcastInstance.getMap(SourceTypeLoader.STATE_MAP_NAME).clear();
+    }
+
+    @Test
+    public void importCatalogOnlyIfChanged() {
+        sourceTypeLoader.run();
+        assertThat(statuses).containsExactly(200);
+        assertThat(ifNoneMatch).containsExactly((String) null);
+        assertThat(findImported("v1")).isPresent();
+
+        // The unchanged catalog is not transferred again
+        sourceTypeLoader.importCatalog();
+        assertThat(statuses).containsExactly(200, 304);
+        assertThat(ifNoneMatch).containsExactly(null, "\"v1\"");
+
+        // The changed catalog is imported
+        version = "v2";
+        sourceTypeLoader.importCatalog();
+        assertThat(statuses).containsExactly(200, 304, 200);
+        assertThat(findImported("v2")).isPresent();
+
+        // Scheduled imports are disabled, and are skipped if the catalog was imported recently
+        sourceTypeLoader.syncCatalog();
+        properties.getCatalogueServer().setEnableSync(true);
+        sourceTypeLoader.syncCatalog();
+        assertThat(statuses).hasSize(3);
+    }
+
+    private Optional<SourceType> findImported(String catalogVersion) {
+        return sourceTypeRepository.findOneWithEagerRelationshipsByProducerAndModelAndVersion(
+                "TEST-VENDOR", "TEST-MODEL", catalogVersion);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String etag = "\"" + version + "\"";
+        String requestEtag = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatch.add(requestEtag);
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (etag.equals(requestEtag)) {
+            statuses.add(304);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        statuses.add(200);
+        byte[] body = String.format(CATALOG, version).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
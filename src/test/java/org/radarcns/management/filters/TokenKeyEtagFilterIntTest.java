@@ -0,0 +1,74 @@
+package org.radarcns.management.filters;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.servlet.Filter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Test the ETag and cache control headers of the public key endpoint, with the filters that are
+ * registered in front of it.
+ *
+ * @see TokenKeyEtagFilter
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class TokenKeyEtagFilterIntTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    @Qualifier("tokenKeyEtagFilterRegistration")
+    private FilterRegistrationBean tokenKeyEtagFilterRegistration;
+
+    @Autowired
+    @Qualifier("springSecurityFilterChain")
+    private Filter springSecurityFilterChain;
+
+    private MockMvc restTokenKeyMockMvc;
+
+    @Before
+    public void setUp() {
+        restTokenKeyMockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(tokenKeyEtagFilterRegistration.getFilter(), "/oauth/token_key")
+                .addFilter(springSecurityFilterChain)
+                .build();
+    }
+
+    @Test
+    public void getTokenKeyNotModified() throws Exception {
+        String etag = restTokenKeyMockMvc.perform(get("/oauth/token_key"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").isNotEmpty())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().string("ETag", startsWith("\"")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        restTokenKeyMockMvc.perform(get("/oauth/token_key").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().string(""));
+
+        restTokenKeyMockMvc.perform(get("/oauth/token_key").header("If-None-Match", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+    }
+}
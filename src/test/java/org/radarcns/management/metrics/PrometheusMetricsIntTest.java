@@ -0,0 +1,44 @@
+package org.radarcns.management.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.prometheus.client.CollectorRegistry;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Test that the Prometheus registry exposes all metric sources when it is enabled.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class,
+        properties = "jhipster.metrics.prometheus.enabled=true")
+public class PrometheusMetricsIntTest {
+
+    @Autowired
+    private CollectorRegistry prometheusCollectorRegistry;
+
+    @Test
+    public void exposesAllMetricSources() {
+        TokenMetrics.tokenIssued("password");
+        TokenMetrics.tokenIssued("unknown");
+
+        Set<String> names = Collections.list(prometheusCollectorRegistry.metricFamilySamples())
+                .stream()
+                .map(family -> family.name)
+                .collect(Collectors.toSet());
+
+        assertThat(names).contains("jvm_memory_heap_used", "hazelcast_map_entries",
+                "hazelcast_map_hit_ratio", "http_server_requests_seconds",
+                "oauth_tokens_issued_total", "oauth_token_validations_total");
+        assertThat(prometheusCollectorRegistry.getSampleValue("oauth_tokens_issued_total",
+                new String[] {"grant_type"}, new String[] {TokenMetrics.OTHER_GRANT_TYPE}))
+                .isGreaterThanOrEqualTo(1.0);
+    }
+}
@@ -0,0 +1,177 @@
+package org.radarcns.management.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.auth.token.RadarToken;
+import org.radarcns.management.metrics.RequestStatistics.Phase;
+import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RequestStatisticsFilterUnitTest {
+
+    private static final String BODY = "{\"login\":\"subject\"}";
+
+    private MetricRegistry metricRegistry;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        request = new MockHttpServletRequest("GET", "/api/subjects");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void databaseTimingByDefault() throws Exception {
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, new RequestHandler(AuthoritiesConstants.SYS_ADMIN));
+
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .isEqualTo("db;dur=2.000;desc=\"2 statements\"");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+        assertThat(metricRegistry.histogram("http.requests.db.statements").getCount())
+                .isEqualTo(1);
+        assertThat(metricRegistry.timer("http.requests.phase.mapping").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("http.requests.phase.serialization").getCount())
+                .isEqualTo(1);
+        assertThat(metricRegistry.meter("http.requests.db.excessive").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void breakdownForSysAdmin() throws Exception {
+        request.addHeader(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, new RequestHandler(AuthoritiesConstants.SYS_ADMIN));
+
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .startsWith("auth;dur=1.000, db;dur=2.000;desc=\"2 statements\", mapping;dur=")
+                .contains(", serialization;dur=", ", total;dur=");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    public void noBreakdownForOtherUsers() throws Exception {
+        request.addHeader(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, new RequestHandler(AuthoritiesConstants.PARTICIPANT));
+
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .isEqualTo("db;dur=2.000;desc=\"2 statements\"");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    public void noBufferingForOtherUsers() throws Exception {
+        request.addHeader(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        RequestHandler handler = new RequestHandler(AuthoritiesConstants.PARTICIPANT);
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, handler);
+
+        assertThat(handler.committed).isTrue();
+    }
+
+    @Test
+    public void noBufferingForStreamedResponses() throws Exception {
+        request.addHeader(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        RequestHandler handler = new RequestHandler(AuthoritiesConstants.SYS_ADMIN,
+                "application/x-ndjson");
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, handler);
+
+        assertThat(handler.committed).isTrue();
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .isEqualTo("db;dur=2.000;desc=\"2 statements\"");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    public void noBufferingForAsyncResponses() throws Exception {
+        request.setAsyncSupported(true);
+        request.startAsync();
+        request.addHeader(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        RequestHandler handler = new RequestHandler(AuthoritiesConstants.SYS_ADMIN);
+        new RequestStatisticsFilter(metricRegistry, 10, false)
+                .doFilter(request, response, handler);
+
+        assertThat(handler.committed).isTrue();
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .isEqualTo("db;dur=2.000;desc=\"2 statements\"");
+    }
+
+    @Test
+    public void breakdownWhenEnabled() throws Exception {
+        new RequestStatisticsFilter(metricRegistry, 10, true)
+                .doFilter(request, response, new RequestHandler(AuthoritiesConstants.PARTICIPANT));
+
+        assertThat(response.getHeader(RequestStatisticsFilter.SERVER_TIMING_HEADER))
+                .startsWith("auth;dur=1.000, db;dur=2.000;desc=\"2 statements\", mapping;dur=");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    public void excessiveStatementsAreCounted() throws Exception {
+        new RequestStatisticsFilter(metricRegistry, 1, false)
+                .doFilter(request, response, new RequestHandler(AuthoritiesConstants.PARTICIPANT));
+
+        assertThat(metricRegistry.meter("http.requests.db.excessive").getCount()).isEqualTo(1);
+    }
+
+    /** Simulates authentication, database statements, mapping and serialization. */
+    private static class RequestHandler implements FilterChain {
+
+        private final List<String> authorities;
+
+        private final String contentType;
+
+        private boolean committed;
+
+        RequestHandler(String authority) {
+            this(authority, "application/json");
+        }
+
+        RequestHandler(String authority, String contentType) {
+            this.authorities = Collections.singletonList(authority);
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response)
+                throws IOException, ServletException {
+            RequestStatistics statistics = RequestStatistics.current();
+            assertThat(statistics).isNotNull();
+            statistics.record(Phase.AUTH, 1_000_000L);
+            RadarToken token = mock(RadarToken.class);
+            when(token.getAuthorities()).thenReturn(authorities);
+            request.setAttribute(JwtAuthenticationFilter.TOKEN_ATTRIBUTE, token);
+
+            statistics.recordStatement(1_500_000L);
+            long start = statistics.enterPhase(Phase.MAPPING);
+            long nested = statistics.enterPhase(Phase.MAPPING);
+            statistics.recordStatement(500_000L);
+            statistics.exitPhase(Phase.MAPPING, nested);
+            statistics.exitPhase(Phase.MAPPING, start);
+
+            response.setContentType(contentType);
+            response.getWriter().write(BODY);
+            response.flushBuffer();
+            committed = response.isCommitted();
+        }
+    }
+}
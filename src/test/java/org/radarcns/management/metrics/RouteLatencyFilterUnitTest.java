@@ -0,0 +1,84 @@
+package org.radarcns.management.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.prometheus.client.CollectorRegistry;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+public class RouteLatencyFilterUnitTest {
+
+    private static final String[] LABELS = {"method", "route", "status"};
+
+    private CollectorRegistry registry;
+
+    private RouteLatencyFilter filter;
+
+    @Before
+    public void setUp() {
+        registry = new CollectorRegistry();
+        filter = new RouteLatencyFilter(registry, 2);
+    }
+
+    @Test
+    public void labelsByRoutePattern() throws Exception {
+        handle("GET", "/api/subjects/{login}", 200);
+        handle("GET", "/api/subjects/{login}", 200);
+        handle("GET", "/api/subjects/{login}", 404);
+
+        assertThat(count("GET", "/api/subjects/{login}", "200")).isEqualTo(2.0);
+        assertThat(count("GET", "/api/subjects/{login}", "404")).isEqualTo(1.0);
+    }
+
+    @Test
+    public void unmatchedRequests() throws Exception {
+        handle("POST", null, 401);
+
+        assertThat(count("POST", RouteLatencyFilter.UNMATCHED_ROUTE, "401")).isEqualTo(1.0);
+    }
+
+    @Test
+    public void routesAreBounded() throws Exception {
+        handle("GET", "/api/projects", 200);
+        handle("GET", "/api/subjects", 200);
+        handle("GET", "/api/sources", 200);
+        handle("GET", "/api/projects", 200);
+
+        assertThat(count("GET", "/api/projects", "200")).isEqualTo(2.0);
+        assertThat(count("GET", "/api/sources", "200")).isNull();
+        assertThat(count("GET", RouteLatencyFilter.OTHER_ROUTE, "200")).isEqualTo(1.0);
+    }
+
+    @Test
+    public void failedRequestsAreServerErrors() {
+        FilterChain chain = (request, response) -> {
+            throw new ServletException("failure");
+        };
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/api/users"),
+                new MockHttpServletResponse(), chain)).isInstanceOf(ServletException.class);
+
+        assertThat(count("GET", RouteLatencyFilter.UNMATCHED_ROUTE, "500")).isEqualTo(1.0);
+    }
+
+    private void handle(String method, String pattern, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/resource");
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            if (pattern != null) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+            }
+            ((HttpServletResponse) res).setStatus(status);
+        });
+    }
+
+    private Double count(String method, String route, String status) {
+        return registry.getSampleValue("http_server_requests_seconds_count", LABELS,
+                new String[] {method, route, status});
+    }
+}
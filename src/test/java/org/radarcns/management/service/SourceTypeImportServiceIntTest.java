@@ -0,0 +1,104 @@
+package org.radarcns.management.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.SourceData;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.SourceTypeImportService.ImportResult;
+import org.radarcns.management.service.catalog.CatalogSourceType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for importing source types of the catalog server.
+ *
+ * @see SourceTypeImportService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class SourceTypeImportServiceIntTest {
+
+    private static final String PRODUCER = "TEST-VENDOR";
+    private static final String MODEL = "TEST-MODEL";
+    private static final String VERSION = "v1.0";
+
+    @Autowired
+    private SourceTypeImportService sourceTypeImportService;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    public void importNewAndChangedSourceTypes() throws Exception {
+        int databaseSizeBeforeImport = sourceTypeRepository.findAll().size();
+
+        ImportResult result = sourceTypeImportService.importSourceTypes(catalog(
+                "A test device", "{\"type\": \"ACCELEROMETER\", \"unit\": \"G\"}"));
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(sourceTypeRepository.findAll()).hasSize(databaseSizeBeforeImport + 1);
+        SourceType sourceType = findImported();
+        assertThat(sourceType.getDescription()).isEqualTo("A test device");
+        assertThat(sourceType.getSourceData()).extracting(SourceData::getSourceDataName)
+                .containsExactly("TEST-VENDOR_TEST-MODEL_v1.0_ACCELEROMETER");
+
+        // An unchanged catalog does not change anything
+        result = sourceTypeImportService.importSourceTypes(catalog(
+                "A test device", "{\"type\": \"ACCELEROMETER\", \"unit\": \"G\"}"));
+        assertThat(result.getCreated()).isEqualTo(0);
+        assertThat(result.getUpdated()).isEqualTo(0);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+
+        // Changes of the catalog are imported, but settings of the administrator are kept
+        findImported().getSourceData().iterator().next().setEnabled(false);
+        result = sourceTypeImportService.importSourceTypes(catalog(
+                "An updated test device",
+                "{\"type\": \"ACCELEROMETER\", \"unit\": \"M_PER_S2\"}",
+                "{\"type\": \"BATTERY_LEVEL\", \"unit\": \"PERCENTAGE\"}"));
+        assertThat(result.getCreated()).isEqualTo(0);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        em.flush();
+        em.clear();
+
+        assertThat(sourceTypeRepository.findAll()).hasSize(databaseSizeBeforeImport + 1);
+        sourceType = findImported();
+        assertThat(sourceType.getDescription()).isEqualTo("An updated test device");
+        Map<String, SourceData> sourceData = sourceType.getSourceData().stream()
+                .collect(Collectors.toMap(SourceData::getSourceDataType, Function.identity()));
+        assertThat(sourceData).containsOnlyKeys("ACCELEROMETER", "BATTERY_LEVEL");
+        assertThat(sourceData.get("ACCELEROMETER").getUnit()).isEqualTo("M_PER_S2");
+        assertThat(sourceData.get("ACCELEROMETER").isEnabled()).isFalse();
+        assertThat(sourceData.get("BATTERY_LEVEL").isEnabled()).isTrue();
+    }
+
+    private SourceType findImported() {
+        return sourceTypeRepository.findOneWithEagerRelationshipsByProducerAndModelAndVersion(
+                PRODUCER, MODEL, VERSION).get();
+    }
+
+    private List<CatalogSourceType> catalog(String doc, String... data) throws Exception {
+        String json = "{\"vendor\": \"" + PRODUCER + "\", \"model\": \"" + MODEL + "\", "
+                + "\"version\": \"" + VERSION + "\", \"scope\": \"PASSIVE\", "
+                + "\"doc\": \"" + doc + "\", \"data\": [" + String.join(", ", data) + "]}";
+        return Collections.singletonList(objectMapper.readValue(json, CatalogSourceType.class));
+    }
+}
@@ -11,11 +11,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.radarcns.management.ManagementPortalTestApp;
 import org.radarcns.auth.config.Constants;
+import org.radarcns.management.domain.ProjectStatistics;
 import org.radarcns.management.domain.User;
+import org.radarcns.management.repository.ProjectStatisticsRepository;
 import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.dto.UserDTO;
 import org.radarcns.management.service.mapper.UserMapper;
 import org.radarcns.management.service.util.RandomUtil;
+import org.radarcns.management.web.rest.SubjectResourceIntTest;
 import org.radarcns.management.web.rest.UserResourceIntTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -43,6 +47,15 @@ public class UserServiceIntTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private ProjectStatisticsRepository projectStatisticsRepository;
+
     @Autowired
     private EntityManager em;
 
@@ -129,6 +142,44 @@ public class UserServiceIntTest {
         userRepository.delete(user);
     }
 
+    @Test
+    public void assertThatActivationIsCountedInProjectStatistics() {
+        final ProjectStatistics initial = projectStatisticsService.reconcile(1L);
+        final long activated = initial.getActivatedSubjects();
+        final long deactivated = initial.getDeactivatedSubjects();
+        final SubjectDTO subject = subjectService.createSubject(
+                SubjectResourceIntTest.createEntityDTO(em));
+        em.flush();
+        em.clear();
+
+        UserDTO deactivatedUser = userMapper.userToUserDTO(userRepository
+                .findOneByLogin(subject.getLogin()).get());
+        deactivatedUser.setActivated(false);
+        userService.updateUser(deactivatedUser);
+        em.flush();
+        em.clear();
+        ProjectStatistics statistics = projectStatisticsRepository.findOne(1L);
+        assertThat(statistics.getActivatedSubjects()).isEqualTo(activated);
+        assertThat(statistics.getDeactivatedSubjects()).isEqualTo(deactivated + 1);
+        em.clear();
+
+        User user = userRepository.findOneByLogin(subject.getLogin()).get();
+        user.setActivationKey(RandomUtil.generateActivationKey());
+        userRepository.saveAndFlush(user);
+        assertThat(userService.activateRegistration(user.getActivationKey())).isPresent();
+        em.flush();
+        em.clear();
+        statistics = projectStatisticsRepository.findOne(1L);
+        assertThat(statistics.getActivatedSubjects()).isEqualTo(activated + 1);
+        assertThat(statistics.getDeactivatedSubjects()).isEqualTo(deactivated);
+
+        // The counters match the actual numbers
+        em.clear();
+        ProjectStatistics reconciled = projectStatisticsService.reconcile(1L);
+        assertThat(reconciled.getActivatedSubjects()).isEqualTo(activated + 1);
+        assertThat(reconciled.getDeactivatedSubjects()).isEqualTo(deactivated);
+    }
+
     @Test
     public void testFindNotActivatedUsersByCreationDateBefore() {
         userService.removeNotActivatedUsers();
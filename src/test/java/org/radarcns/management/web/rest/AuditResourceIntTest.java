@@ -1,5 +1,6 @@
 package org.radarcns.management.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -7,8 +8,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
@@ -23,16 +28,21 @@ import org.radarcns.management.security.JwtAuthenticationFilter;
 import org.radarcns.management.service.AuditEventService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.format.support.FormattingConversionService;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 /**
  * Test class for the AuditResource REST controller.
@@ -68,6 +78,9 @@ public class AuditResourceIntTest {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private PersistentAuditEvent auditEvent;
 
     private MockMvc restAuditMockMvc;
@@ -162,6 +175,122 @@ public class AuditResourceIntTest {
                 .andExpect(header().string("X-Total-Count", "0"));
     }
 
+    @Test
+    public void searchAuditsByPrincipalAndType() throws Exception {
+        // Initialize the database with the sample audit and audits that should not match
+        auditEventRepository.save(auditEvent);
+        auditEventRepository.save(createAuditEvent("OTHER_PRINCIPAL", SAMPLE_TYPE,
+                SAMPLE_TIMESTAMP));
+        auditEventRepository.save(createAuditEvent(SAMPLE_PRINCIPAL, "OTHER_TYPE",
+                SAMPLE_TIMESTAMP));
+
+        restAuditMockMvc.perform(get("/management/audits/search?principal=" + SAMPLE_PRINCIPAL
+                + "&type=" + SAMPLE_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)))
+                .andExpect(jsonPath("$.[*].type").value(hasItem(SAMPLE_TYPE)));
+
+        restAuditMockMvc.perform(get("/management/audits/search?type=" + SAMPLE_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"));
+
+        restAuditMockMvc.perform(get("/management/audits/search?principal=" + SAMPLE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"));
+    }
+
+    @Test
+    public void searchAuditsByDateIsPaged() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 5; i++) {
+            auditEventRepository.save(createAuditEvent(SAMPLE_PRINCIPAL, SAMPLE_TYPE,
+                    SAMPLE_TIMESTAMP.plusHours(i)));
+        }
+        String fromDate = SAMPLE_TIMESTAMP.format(FORMATTER);
+        String toDate = SAMPLE_TIMESTAMP.plusDays(1).format(FORMATTER);
+
+        restAuditMockMvc.perform(get("/management/audits/search?principal=" + SAMPLE_PRINCIPAL
+                + "&fromDate=" + fromDate + "&toDate=" + toDate + "&page=0&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "5"))
+                .andExpect(jsonPath("$.length()").value(2));
+
+        // Query a period before the sample audits
+        restAuditMockMvc.perform(get("/management/audits/search?principal=" + SAMPLE_PRINCIPAL
+                + "&toDate=" + SAMPLE_TIMESTAMP.minusDays(1).format(FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "0"));
+    }
+
+    @Test
+    public void searchQueriesUseIndexes() {
+        // Seed a dataset large enough that a full table scan would be noticeable
+        List<PersistentAuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(createAuditEvent("principal-" + (i % 50), "TYPE_" + (i / 50 % 5),
+                    SAMPLE_TIMESTAMP.plusMinutes(i)));
+        }
+        auditEventRepository.save(events);
+        auditEventRepository.flush();
+        // Let the query planner pick up the selectivity of the seeded data
+        jdbcTemplate.execute("ANALYZE");
+
+        LocalDateTime from = SAMPLE_TIMESTAMP.minusHours(1);
+        LocalDateTime to = SAMPLE_TIMESTAMP.plusDays(1);
+        Pageable page = new PageRequest(0, 20, Direction.DESC, "auditEventDate");
+        // H2 picks between the composite indexes by its own cost model, so only check that
+        // none of the statements generated for a search falls back to a table scan
+        assertUsesIndex(() -> auditEventRepository
+                .findAllByPrincipalAndAuditEventTypeAndAuditEventDateBetween(
+                        "principal-1", "TYPE_1", from, to, page),
+                "principal-1", "TYPE_1", from, to);
+        assertUsesIndex(() -> auditEventRepository
+                .findAllByPrincipalAndAuditEventDateBetween("principal-1", from, to, page),
+                "principal-1", from, to);
+        assertUsesIndex(() -> auditEventRepository
+                .findAllByAuditEventTypeAndAuditEventDateBetween("TYPE_1", from, to, page),
+                "TYPE_1", from, to);
+        assertUsesIndex(() -> auditEventRepository
+                .findAllByAuditEventDateBetween(from, to, page),
+                from, to);
+    }
+
+    /**
+     * Explain the statements that Hibernate generates for a search. The search parameters are
+     * bound in order, and any remaining parameters, like the page size, are bound to 20.
+     */
+    private void assertUsesIndex(Runnable search, Object... parameters) {
+        List<String> statements = CapturingStatementInspector.capture(search);
+        assertThat(statements).isNotEmpty();
+        for (String statement : statements) {
+            Object[] values = new Object[StringUtils.countOccurrencesOf(statement, "?")];
+            for (int i = 0; i < values.length; i++) {
+                if (i >= parameters.length) {
+                    values[i] = 20;
+                } else if (parameters[i] instanceof LocalDateTime) {
+                    values[i] = Timestamp.valueOf((LocalDateTime) parameters[i]);
+                } else {
+                    values[i] = parameters[i];
+                }
+            }
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement, String.class,
+                    values).toLowerCase(Locale.ROOT);
+            assertThat(plan).as(statement).doesNotContain("tablescan");
+            assertThat(plan).as(statement).contains("/* public.idx_persistent_audit_event");
+        }
+    }
+
+    private static PersistentAuditEvent createAuditEvent(String principal, String type,
+            LocalDateTime timestamp) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal(principal);
+        event.setAuditEventType(type);
+        event.setAuditEventDate(timestamp);
+        return event;
+    }
+
     @Test
     public void getNonExistingAudit() throws Exception {
         // Get the audit
@@ -0,0 +1,44 @@
+package org.radarcns.management.web.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector that records the SQL that Hibernate generates on the current
+ * thread, so tests can inspect the exact statements that a repository executes. It is
+ * registered in the test configuration and does nothing unless {@link #capture(Runnable)} is
+ * running.
+ */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = CAPTURED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Run an action and return the SQL statements that Hibernate prepared for it.
+     *
+     * @param action action that executes statements on the current thread
+     * @return the prepared statements, in order
+     */
+    public static List<String> capture(Runnable action) {
+        List<String> statements = new ArrayList<>();
+        CAPTURED.set(statements);
+        try {
+            action.run();
+            return statements;
+        } finally {
+            CAPTURED.remove();
+        }
+    }
+}
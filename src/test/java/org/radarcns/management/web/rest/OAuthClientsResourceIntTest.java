@@ -21,12 +21,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalApp;
-import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.UserService;
 import org.radarcns.management.service.dto.ClientDetailsDTO;
 import org.radarcns.management.service.mapper.ClientDetailsMapper;
-import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -63,10 +62,7 @@ public class OAuthClientsResourceIntTest {
     private ClientDetailsMapper clientDetailsMapper;
 
     @Autowired
-    private SubjectRepository subjectRepository;
-
-    @Autowired
-    private SubjectMapper subjectMapper;
+    private SubjectService subjectService;
 
     @Autowired
     private UserService userService;
@@ -100,10 +96,8 @@ public class OAuthClientsResourceIntTest {
                 authorizationServerEndpointsConfiguration);
         ReflectionTestUtils.setField(oauthClientsResource, "clientDetailsMapper",
                 clientDetailsMapper);
-        ReflectionTestUtils.setField(oauthClientsResource, "subjectRepository",
-                subjectRepository);
-        ReflectionTestUtils.setField(oauthClientsResource, "subjectMapper",
-                subjectMapper);
+        ReflectionTestUtils.setField(oauthClientsResource, "subjectService",
+                subjectService);
         ReflectionTestUtils.setField(oauthClientsResource, "userService",
                 userService);
         ReflectionTestUtils.setField(oauthClientsResource, "servletRequest",
@@ -1,8 +1,11 @@
 package org.radarcns.management.web.rest;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import io.github.jhipster.config.JHipsterProperties;
@@ -12,6 +15,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.service.ResponseCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
@@ -35,6 +40,9 @@ public class ProfileInfoResourceIntTest {
     @Mock
     private JHipsterProperties jHipsterProperties;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     private MockMvc restProfileMockMvc;
 
     @Before
@@ -52,6 +60,9 @@ public class ProfileInfoResourceIntTest {
         ProfileInfoResource profileInfoResource = new ProfileInfoResource();
         ReflectionTestUtils.setField(profileInfoResource, "env", environment);
         ReflectionTestUtils.setField(profileInfoResource, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(profileInfoResource, "responseCacheService",
+                responseCacheService);
+        responseCacheService.invalidate(ResponseCacheService.STATIC);
         this.restProfileMockMvc = MockMvcBuilders
                 .standaloneSetup(profileInfoResource)
                 .build();
@@ -64,6 +75,18 @@ public class ProfileInfoResourceIntTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE));
     }
 
+    @Test
+    public void getProfileInfoNotModified() throws Exception {
+        String etag = restProfileMockMvc.perform(get("/api/profile-info"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activeProfiles").value(hasItem("test")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        restProfileMockMvc.perform(get("/api/profile-info").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
     @Test
     public void getProfileInfoWithoutRibbon() throws Exception {
         JHipsterProperties.Ribbon ribbon = new JHipsterProperties.Ribbon();
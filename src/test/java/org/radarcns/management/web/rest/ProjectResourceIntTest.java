@@ -1,21 +1,52 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.INACTIVE_PARTICIPANT;
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
 import static org.radarcns.management.web.rest.TestUtil.sameInstant;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -24,26 +55,61 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.PersistentAuditEvent;
 import org.radarcns.management.domain.Project;
+import org.radarcns.management.domain.ProjectStatistics;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.Subject;
 import org.radarcns.management.domain.enumeration.ProjectStatus;
+import org.radarcns.management.domain.enumeration.TombstoneType;
+import org.radarcns.management.repository.PersistenceAuditEventRepository;
 import org.radarcns.management.repository.ProjectRepository;
+import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.TombstoneRepository;
+import org.radarcns.management.repository.UserRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.ChangeFeedService;
+import org.radarcns.management.service.ChangeStreamService;
 import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.ProjectSnapshotService;
+import org.radarcns.management.service.ProjectStatisticsService;
+import org.radarcns.management.service.SourceService;
+import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.SubjectExportService;
+import org.radarcns.management.service.SubjectLifecycleService;
+import org.radarcns.management.service.SubjectProjectionService;
+import org.radarcns.management.service.SubjectSearchService;
+import org.radarcns.management.service.SubjectService;
+import org.radarcns.management.service.dto.MinimalProjectDetailsDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.ProjectSnapshotDTO;
+import org.radarcns.management.service.dto.SourceDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO;
+import org.radarcns.management.service.dto.SubjectBulkOperationDTO.Operation;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+import org.radarcns.management.service.dto.SubjectSnapshotDTO;
+import org.radarcns.management.service.dto.SubjectSnapshotDTO.SnapshotSource;
 import org.radarcns.management.service.mapper.ProjectMapper;
+import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Test class for the ProjectResource REST controller.
@@ -86,12 +152,69 @@ public class ProjectResourceIntTest {
     @Autowired
     private ProjectRepository projectRepository;
 
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private SourceRepository sourceRepository;
+
     @Autowired
     private ProjectMapper projectMapper;
 
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private SubjectExportService subjectExportService;
+
+    @Autowired
+    private SubjectSearchService subjectSearchService;
+
+    @Autowired
+    private SubjectProjectionService subjectProjectionService;
+
+    @Autowired
+    private SubjectMapper subjectMapper;
+
+    @Autowired
+    private SubjectLifecycleService subjectLifecycleService;
+
+    @Autowired
+    private ProjectSnapshotService projectSnapshotService;
+
+    @Autowired
+    private ProjectStatisticsService projectStatisticsService;
+
+    @Autowired
+    private SourceService sourceService;
+
+    @Autowired
+    private SourceTypeService sourceTypeService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -117,6 +240,21 @@ public class ProjectResourceIntTest {
         ProjectResource projectResource = new ProjectResource();
         ReflectionTestUtils.setField(projectResource, "projectService", projectService);
         ReflectionTestUtils.setField(projectResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(projectResource, "subjectExportService",
+                subjectExportService);
+        ReflectionTestUtils.setField(projectResource, "subjectSearchService",
+                subjectSearchService);
+        ReflectionTestUtils.setField(projectResource, "subjectLifecycleService",
+                subjectLifecycleService);
+        ReflectionTestUtils.setField(projectResource, "projectSnapshotService",
+                projectSnapshotService);
+        ReflectionTestUtils.setField(projectResource, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(projectResource, "changeFeedService", changeFeedService);
+        ReflectionTestUtils.setField(projectResource, "projectStatisticsService",
+                projectStatisticsService);
+        ReflectionTestUtils.setField(projectResource, "changeStreamService",
+                changeStreamService);
+        ReflectionTestUtils.setField(projectResource, "sourceService", sourceService);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -124,7 +262,8 @@ public class ProjectResourceIntTest {
         this.restProjectMockMvc = MockMvcBuilders.standaloneSetup(projectResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
-            .setMessageConverters(jacksonMessageConverter)
+            .setMessageConverters(jacksonMessageConverter, new StringHttpMessageConverter())
+            .addFilter(TestUtil.requestStatisticsFilter())
             .addFilter(filter)
             .defaultRequest(get("/").with(OAuthHelper.bearerToken())).build();
     }
@@ -389,4 +528,638 @@ public class ProjectResourceIntTest {
     public void equalsVerifier() throws Exception {
         TestUtil.equalsVerifier(Project.class);
     }
+
+    @Test
+    @Transactional
+    public void searchSubjects() throws Exception {
+        // Initialize the database
+        SubjectDTO london = SubjectResourceIntTest.createEntityDTO(em);
+        london.setExternalId("search-a_1");
+        london.getAttributes().put("site", "london");
+        london = subjectService.createSubject(london);
+        SubjectDTO other = SubjectResourceIntTest.createEntityDTO(em);
+        other.setExternalId("search-ab2");
+        other.getAttributes().put("site", "lund");
+        other = subjectService.createSubject(other);
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?externalId={externalId}", "radar", "search-"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$[*].id").value(contains(
+                        london.getId().intValue(), other.getId().intValue())));
+
+        // wildcards in the search are matched literally
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?externalId={externalId}", "radar", "search-a_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(london.getId().intValue())))
+                .andExpect(jsonPath("$[0].attributes.site").value("london"));
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?attributeKey=site&attributeValue=lu", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(other.getId().intValue())));
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?login={login}&attributeKey=site&page=0&size=1", "radar", london.getLogin()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$[0].login").value(london.getLogin()));
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?externalId=search-&page=1&size=1", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(jsonPath("$[*].id").value(contains(other.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void searchSubjectsByAttributeValueWithoutKey() throws Exception {
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects/search"
+                + "?attributeValue=london", "radar"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void exportSubjectsAsNdjson() throws Exception {
+        // Initialize the database
+        SubjectDTO withAttributes = SubjectResourceIntTest.createEntityDTO(em);
+        withAttributes.getAttributes().put("site", "london");
+        withAttributes = subjectService.createSubject(withAttributes);
+        List<Long> created = new ArrayList<>();
+        created.add(withAttributes.getId());
+        for (int i = 0; i < 3; i++) {
+            created.add(subjectService.createSubject(SubjectResourceIntTest.createEntityDTO(em))
+                    .getId());
+        }
+
+        String export = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/subjects/export", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        List<SubjectDTO> subjects = readSubjects(export);
+        List<Long> ids = subjects.stream().map(SubjectDTO::getId).collect(Collectors.toList());
+        assertThat(ids).isSorted().doesNotHaveDuplicates().containsAll(created);
+        SubjectDTO exported = subjects.get(ids.indexOf(withAttributes.getId()));
+        assertThat(exported.getAttributes()).containsEntry("site", "london");
+        assertThat(exported.getExternalId()).isEqualTo(withAttributes.getExternalId());
+        assertThat(exported.getLogin()).isEqualTo(withAttributes.getLogin());
+
+        // Resume after the second created subject
+        String resumed = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/subjects/export?after={after}", "radar",
+                created.get(1)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(readSubjects(resumed).stream().map(SubjectDTO::getId))
+                .containsExactlyElementsOf(created.subList(2, 4));
+    }
+
+    @Test
+    @Transactional
+    public void exportSubjectsAsCsv() throws Exception {
+        // Initialize the database
+        SubjectDTO subject = SubjectResourceIntTest.createEntityDTO(em);
+        subject.getAttributes().put("site", "london; uk=gb");
+        subject = subjectService.createSubject(subject);
+
+        String export = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/subjects/export?format=csv", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = export.split("\n");
+        assertThat(lines[0]).isEqualTo(
+                "id,login,externalId,externalLink,status,sources,attributes");
+        assertThat(lines[lines.length - 1]).startsWith(subject.getId() + ",")
+                .contains(subject.getLogin());
+        // the attributes are a single JSON column, so separators in values are preserved
+        String[] row = new CsvMapper().readerFor(String[].class)
+                .readValue(lines[lines.length - 1]);
+        assertThat(row).hasSize(7);
+        assertThat(row[6]).isEqualTo("{\"site\":\"london; uk=gb\"}");
+    }
+
+    @Test
+    @Transactional
+    public void getSnapshot() throws Exception {
+        // Initialize the database
+        final SubjectDTO subject = subjectService.createSubject(
+                SubjectResourceIntTest.createEntityDTO(em));
+
+        MvcResult result = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/snapshot", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        ProjectSnapshotDTO snapshot = objectMapper.readValue(lines[0], ProjectSnapshotDTO.class);
+        assertThat(snapshot.getProjectName()).isEqualTo("radar");
+        assertThat(snapshot.getSourceTypes()).isNotEmpty();
+        assertThat(etag).isEqualTo("W/\"" + snapshot.getVersion() + "\"");
+
+        List<SubjectSnapshotDTO> subjects = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            subjects.add(objectMapper.readValue(lines[i], SubjectSnapshotDTO.class));
+        }
+        assertThat(subjects).extracting(SubjectSnapshotDTO::getLogin)
+                .doesNotHaveDuplicates()
+                .contains("sub-1", subject.getLogin());
+        SubjectSnapshotDTO demoSubject = subjects.stream()
+                .filter(s -> s.getLogin().equals("sub-1"))
+                .findFirst().get();
+        assertThat(demoSubject.getStatus()).isEqualTo(SubjectStatus.ACTIVATED);
+        assertThat(demoSubject.getSources()).extracting(SnapshotSource::getSourceId)
+                .containsExactly(UUID.fromString("03d28e5c-e005-46d4-a9b3-279c27fbbc83"));
+
+        // The snapshot is unchanged
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/snapshot", "radar")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Adding a subject changes the snapshot
+        subjectService.createSubject(SubjectResourceIntTest.createEntityDTO(em));
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/snapshot", "radar")
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+
+        // A subject that moved to another project is not included
+        projectRepository.saveAndFlush(project);
+        SubjectDTO moved = subjectService.findOneByLogin(subject.getLogin()).get();
+        moved.setProject(projectMapper.projectToProjectDTO(project));
+        subjectService.updateSubject(moved);
+        em.flush();
+        assertThat(restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/snapshot", "radar"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString())
+                .doesNotContain("\"" + subject.getLogin() + "\"");
+    }
+
+    @Test
+    @Transactional
+    public void getCompressedSnapshot() throws Exception {
+        MvcResult result = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/snapshot", "radar")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(
+                        result.getResponse().getContentAsByteArray())),
+                StandardCharsets.UTF_8))) {
+            ProjectSnapshotDTO snapshot = objectMapper.readValue(reader.readLine(),
+                    ProjectSnapshotDTO.class);
+            assertThat(snapshot.getProjectName()).isEqualTo("radar");
+            assertThat(result.getResponse().getHeader("ETag"))
+                    .isEqualTo("W/\"" + snapshot.getVersion() + "\"");
+            assertThat(reader.readLine()).contains("\"login\"");
+        }
+
+        // gzip is not used if the client refuses it
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/snapshot", "radar")
+                .header("Accept-Encoding", "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/snapshot", "radar")
+                .header("Accept-Encoding", "*;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    @Transactional
+    public void exportSubjectsInUnknownFormat() throws Exception {
+        restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/subjects/export?format=xml", "radar"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getChangesSince() throws Exception {
+        final ZonedDateTime since = ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(1);
+        // Initialize the database
+        final SubjectDTO updated = subjectService.createSubject(SubjectResourceIntTest
+                .createEntityDTO(em));
+        SubjectDTO discontinued = subjectService.createSubject(SubjectResourceIntTest
+                .createEntityDTO(em));
+        SubjectDTO deleted = subjectService.createSubject(SubjectResourceIntTest
+                .createEntityDTO(em));
+        subjectService.discontinueSubject(discontinued);
+        subjectService.deleteSubject(deleted.getLogin());
+        em.flush();
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/changes", "radar")
+                .param("since", since.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").exists())
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.subjects[*].id").value(contains(
+                        updated.getId().intValue())))
+                .andExpect(jsonPath("$.subjects[0].project.projectName").value("radar"))
+                .andExpect(jsonPath("$.removed[?(@.reason == 'DISCONTINUED')].id").value(
+                        contains(discontinued.getId().intValue())))
+                .andExpect(jsonPath("$.removed[?(@.reason == 'DELETED')].name").value(
+                        contains(deleted.getLogin())));
+
+        // Nothing changed since now
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/changes", "radar")
+                .param("since", ZonedDateTime.now(ZoneOffset.UTC)
+                        .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subjects", hasSize(0)))
+                .andExpect(jsonPath("$.sources", hasSize(0)))
+                .andExpect(jsonPath("$.removed", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void getChangesInPages() throws Exception {
+        final ZonedDateTime since = ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(1);
+        // Initialize the database
+        projectRepository.saveAndFlush(project);
+        List<Long> updated = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            updated.add(subjectService.createSubject(SubjectResourceIntTest.createEntityDTO(em))
+                    .getId());
+        }
+        SubjectDTO moved = subjectService.createSubject(SubjectResourceIntTest
+                .createEntityDTO(em));
+        em.flush();
+        moved.setProject(projectMapper.projectToProjectDTO(project));
+        subjectService.updateSubject(moved);
+        em.flush();
+
+        Set<Long> subjectIds = new HashSet<>();
+        Set<Long> movedIds = new HashSet<>();
+        JsonNode changes = getChanges("since",
+                since.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        for (int i = 0; i < 10; i++) {
+            assertThat(changes.get("subjects").size()).isLessThanOrEqualTo(1);
+            changes.get("subjects").forEach(subject -> subjectIds.add(subject.get("id")
+                    .asLong()));
+            changes.get("removed").forEach(removed -> {
+                if ("MOVED".equals(removed.get("reason").asText())) {
+                    movedIds.add(removed.get("id").asLong());
+                }
+            });
+            if (!changes.get("hasMore").asBoolean()) {
+                break;
+            }
+            changes = getChanges("cursor", changes.get("cursor").asText());
+        }
+        assertThat(changes.get("hasMore").asBoolean()).isFalse();
+        assertThat(subjectIds).containsAll(updated).doesNotContain(moved.getId());
+        assertThat(movedIds).containsExactly(moved.getId());
+
+        // either a date or a cursor is required
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/changes", "radar"))
+                .andExpect(status().isBadRequest());
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/changes", "radar")
+                .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/changes", "radar")
+                .param("since", since.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                .param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode getChanges(String parameter, String value) throws Exception {
+        MvcResult result = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/changes", "radar")
+                .param(parameter, value)
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    @Test
+    @Transactional
+    public void getStatistics() throws Exception {
+        Long projectId = projectService.findOneByName("radar").getId();
+        final ProjectStatistics initial = projectStatisticsService.reconcile(projectId);
+        final long activated = initial.getActivatedSubjects();
+        final long discontinued = initial.getDiscontinuedSubjects();
+        final long unassigned = initial.getUnassignedSources();
+        em.flush();
+        em.clear();
+
+        // Initialize the database
+        subjectService.createSubject(SubjectResourceIntTest.createEntityDTO(em));
+        subjectService.discontinueSubject(subjectService.createSubject(
+                SubjectResourceIntTest.createEntityDTO(em)));
+        sourceService.save(createSourceDto("statistics-source"));
+        em.flush();
+        em.clear();
+
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/statistics", "radar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.projectName").value("radar"))
+                .andExpect(jsonPath("$.activatedSubjects").value((int) activated + 1))
+                .andExpect(jsonPath("$.discontinuedSubjects").value((int) discontinued + 1))
+                .andExpect(jsonPath("$.unassignedSources").value((int) unassigned + 1))
+                .andExpect(jsonPath("$.reconciledDate").exists());
+
+        // The counters match the actual numbers
+        em.clear();
+        ProjectStatistics reconciled = projectStatisticsService.reconcile(projectId);
+        assertThat(reconciled.getActivatedSubjects()).isEqualTo(activated + 1);
+        assertThat(reconciled.getDiscontinuedSubjects()).isEqualTo(discontinued + 1);
+        assertThat(reconciled.getUnassignedSources()).isEqualTo(unassigned + 1);
+    }
+
+    @Test
+    @Transactional
+    public void discontinueAndDeactivateSubjects() throws Exception {
+        // Initialize the database
+        List<Long> closing = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SubjectDTO subject = SubjectResourceIntTest.createEntityDTO(em);
+            subject.getAttributes().put("site", "closing");
+            closing.add(subjectService.createSubject(subject).getId());
+        }
+        SubjectDTO other = SubjectResourceIntTest.createEntityDTO(em);
+        other.getAttributes().put("site", "other");
+        other = subjectService.createSubject(other);
+        Source source = sourceRepository.findOne(sourceService.save(
+                createSourceDto("lifecycle-source")).getId());
+        source.setAssigned(true);
+        subjectRepository.findOne(closing.get(0)).getSources().add(source);
+        em.flush();
+
+        SubjectBulkOperationDTO discontinue = new SubjectBulkOperationDTO();
+        discontinue.setOperation(Operation.DISCONTINUE);
+        discontinue.setAttributeKey("site");
+        discontinue.setAttributeValue("closing");
+        String progress = restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(discontinue)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(progress).contains("\"total\":3", "\"processed\":3", "\"updated\":3",
+                "\"failed\":0");
+
+        em.clear();
+        for (Long id : closing) {
+            Subject subject = subjectRepository.findOne(id);
+            assertThat(subject.isRemoved()).isTrue();
+            assertThat(subject.getUser().getActivated()).isFalse();
+            assertThat(subject.getSources()).isEmpty();
+        }
+        assertThat(sourceRepository.findOne(source.getId()).isAssigned()).isFalse();
+        assertThat(subjectRepository.findOne(other.getId()).isRemoved()).isFalse();
+
+        // Discontinued subjects are not updated again
+        restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(discontinue)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"updated\":0")));
+
+        SubjectBulkOperationDTO deactivate = new SubjectBulkOperationDTO();
+        deactivate.setOperation(Operation.DEACTIVATE);
+        deactivate.setLogins(Collections.singletonList(other.getLogin()));
+        restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(deactivate)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"updated\":1")));
+        em.clear();
+        Subject deactivated = subjectRepository.findOne(other.getId());
+        assertThat(deactivated.isRemoved()).isFalse();
+        assertThat(deactivated.getUser().getActivated()).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void moveSubjects() throws Exception {
+        // Initialize the database
+        projectRepository.saveAndFlush(project);
+        SubjectDTO moved = subjectService.createSubject(SubjectResourceIntTest
+                .createEntityDTO(em));
+        em.flush();
+
+        SubjectBulkOperationDTO move = new SubjectBulkOperationDTO();
+        move.setOperation(Operation.MOVE);
+        move.setLogins(Collections.singletonList(moved.getLogin()));
+        restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(move)))
+                .andExpect(status().isBadRequest());
+
+        move.setTargetProjectName(project.getProjectName());
+        restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(move)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"updated\":1")));
+
+        em.clear();
+        Subject subject = subjectRepository.findOne(moved.getId());
+        assertThat(subject.getUser().getActivated()).isTrue();
+        assertThat(subject.getUser().getRoles())
+                .extracting(role -> role.getProject().getProjectName(),
+                        role -> role.getAuthority().getName())
+                .containsExactlyInAnyOrder(
+                        tuple("radar", INACTIVE_PARTICIPANT),
+                        tuple(project.getProjectName(), PARTICIPANT));
+        // the project of the subject is the one it participates in
+        assertThat(subjectMapper.subjectToSubjectDTO(subject).getProject().getProjectName())
+                .isEqualTo(project.getProjectName());
+        assertThat(subjectProjectionService.findAllByIdIn(Collections.singletonList(
+                moved.getId())))
+                .extracting(dto -> dto.getProject().getProjectName())
+                .containsExactly(project.getProjectName());
+
+        // without a participant role, the project of the inactive participant role is used
+        subject.getUser().getRoles()
+                .removeIf(role -> PARTICIPANT.equals(role.getAuthority().getName()));
+        em.flush();
+        em.clear();
+        assertThat(subjectMapper.subjectToSubjectDTO(subjectRepository.findOne(moved.getId()))
+                .getProject().getProjectName())
+                .isEqualTo("radar");
+        assertThat(subjectProjectionService.findAllByIdIn(Collections.singletonList(
+                moved.getId())))
+                .extracting(dto -> dto.getProject().getProjectName())
+                .containsExactly("radar");
+    }
+
+    @Test
+    @Transactional
+    public void updateSubjectLifecycleWithoutSelection() throws Exception {
+        SubjectBulkOperationDTO discontinue = new SubjectBulkOperationDTO();
+        discontinue.setOperation(Operation.DISCONTINUE);
+        restProjectMockMvc.perform(post(
+                "/api/projects/{projectName}/subjects/lifecycle", "radar")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(discontinue)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamChanges() throws Exception {
+        final long lastAuditEventId = persistenceAuditEventRepository.findAll().stream()
+                .mapToLong(PersistentAuditEvent::getId)
+                .max()
+                .orElse(0L);
+        MvcResult result = restProjectMockMvc.perform(get(
+                "/api/projects/{projectName}/changes/stream", "radar"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Changes are only streamed once they are committed
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SubjectDTO subject = transactionTemplate.execute(status -> subjectService.createSubject(
+                SubjectResourceIntTest.createEntityDTO(em)));
+        try {
+            assertThat(awaitContent(result, "\"name\":\"" + subject.getLogin() + "\""))
+                    .contains("event:" + ChangeStreamService.EVENT_NAME)
+                    .contains("\"entityType\":\"SUBJECT\"")
+                    .contains("\"action\":\"CREATED\"")
+                    .contains("\"projectName\":\"radar\"");
+
+            // Changes of the user of a subject are streamed as changes of the subject
+            transactionTemplate.execute(status -> {
+                userRepository.findOneByLogin(subject.getLogin())
+                        .ifPresent(user -> user.setFirstName("streamed"));
+                return null;
+            });
+            assertThat(awaitContent(result, "\"action\":\"UPDATED\""))
+                    .contains("\"action\":\"UPDATED\",\"id\":" + subject.getId()
+                            + ",\"name\":\"" + subject.getLogin() + "\"");
+        } finally {
+            result.getRequest().getAsyncContext().complete();
+            deleteCommittedSubject(transactionTemplate, subject, lastAuditEventId);
+        }
+    }
+
+    /** Delete a committed subject, with its tombstone and the audit events after given ID. */
+    private void deleteCommittedSubject(TransactionTemplate transactionTemplate,
+            SubjectDTO subject, long lastAuditEventId) {
+        transactionTemplate.execute(status -> {
+            subjectService.deleteSubject(subject.getLogin());
+            return null;
+        });
+        transactionTemplate.execute(status -> {
+            tombstoneRepository.delete(tombstoneRepository.findAll().stream()
+                    .filter(tombstone -> tombstone.getEntityType() == TombstoneType.SUBJECT
+                            && tombstone.getEntityId().equals(subject.getId()))
+                    .collect(Collectors.toList()));
+            persistenceAuditEventRepository.delete(persistenceAuditEventRepository.findAll()
+                    .stream()
+                    .filter(event -> event.getId() > lastAuditEventId)
+                    .collect(Collectors.toList()));
+            return null;
+        });
+    }
+
+    /** Content of a streamed response, once it contains given text or after ten seconds. */
+    private static String awaitContent(MvcResult result, String text) throws Exception {
+        String content = result.getResponse().getContentAsString();
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (!content.contains(text) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    @Test
+    @Transactional
+    public void getSourcesForProject() throws Exception {
+        SourceDTO sourceDto = createSourceDto("listing-source");
+        sourceDto.setAttributes(Collections.singletonMap("firmware", "1.0"));
+        sourceService.save(sourceDto);
+        em.flush();
+        em.clear();
+        final List<Source> sources = sourceRepository.findAll().stream()
+                .filter(source -> source.getProject() != null
+                        && source.getProject().getProjectName().equals("radar"))
+                .collect(Collectors.toList());
+        final long unassigned = sources.stream().filter(source -> !source.isAssigned()).count();
+        final String lastName = sources.stream()
+                .map(Source::getSourceName)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .get();
+        em.clear();
+
+        // Minimized sources are read without their source types and projects
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/sources", "radar")
+                .param("assigned", "false")
+                .param("minimized", "true")
+                .param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", String.valueOf(unassigned)))
+                .andExpect(jsonPath("$.[*].assigned").value(everyItem(is(false))))
+                .andExpect(jsonPath("$.[?(@.sourceName == 'listing-source')].attributes.firmware")
+                        .value(hasItem("1.0")))
+                .andExpect(jsonPath("$.[?(@.sourceName == 'listing-source')].sourceTypeProducer")
+                        .value(hasItem(sourceDto.getSourceType().getProducer())))
+                .andExpect(TestUtil.maxStatements(6));
+
+        // Minimized sources are sorted as requested, and only by known properties
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/sources", "radar")
+                .param("minimized", "true")
+                .param("sort", "sourceName,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].sourceName").value(lastName));
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/sources", "radar")
+                .param("minimized", "true")
+                .param("sort", "attributes"))
+                .andExpect(status().isBadRequest());
+
+        // All listings are paged
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/sources", "radar")
+                .param("assigned", "false")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", String.valueOf(unassigned)))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].sourceType.producer").isNotEmpty());
+    }
+
+    /** Unassigned source in the radar project. */
+    private SourceDTO createSourceDto(String sourceName) {
+        SourceDTO source = new SourceDTO();
+        source.setSourceName(sourceName);
+        source.setAssigned(false);
+        source.setSourceType(sourceTypeService.findAll().get(0));
+        MinimalProjectDetailsDTO project = new MinimalProjectDetailsDTO();
+        project.setId(projectService.findOneByName("radar").getId());
+        project.setProjectName("radar");
+        source.setProject(project);
+        return source;
+    }
+
+    private List<SubjectDTO> readSubjects(String ndjson) {
+        return Arrays.stream(ndjson.split("\n"))
+                .filter(line -> !line.isEmpty())
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, SubjectDTO.class);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
 }
@@ -2,11 +2,13 @@ package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -23,6 +25,7 @@ import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.domain.enumeration.ProcessingState;
 import org.radarcns.management.repository.SourceDataRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.ResponseCacheService;
 import org.radarcns.management.service.SourceDataService;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.service.mapper.SourceDataMapper;
@@ -31,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -38,7 +42,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Test class for the SourceDataResource REST controller.
@@ -83,6 +89,12 @@ public class SourceDataResourceIntTest {
     @Autowired
     private SourceDataService sourceDataService;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -108,6 +120,8 @@ public class SourceDataResourceIntTest {
         SourceDataResource sourceDataResource = new SourceDataResource();
         ReflectionTestUtils.setField(sourceDataResource, "sourceDataService", sourceDataService);
         ReflectionTestUtils.setField(sourceDataResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(sourceDataResource, "responseCacheService",
+                responseCacheService);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -115,7 +129,9 @@ public class SourceDataResourceIntTest {
         this.restSourceDataMockMvc = MockMvcBuilders.standaloneSetup(sourceDataResource)
                 .setCustomArgumentResolvers(pageableArgumentResolver)
                 .setControllerAdvice(exceptionTranslator)
-                .setMessageConverters(jacksonMessageConverter)
+                .setMessageConverters(new ByteArrayHttpMessageConverter(),
+                        jacksonMessageConverter)
+                .addFilter(TestUtil.requestStatisticsFilter())
                 .addFilter(filter)
                 .defaultRequest(get("/").with(OAuthHelper.bearerToken())).build();
     }
@@ -234,6 +250,47 @@ public class SourceDataResourceIntTest {
                 .andExpect(jsonPath("$.[*].frequency").value(hasItem(DEFAULT_FREQUENCY)));
     }
 
+    @Test
+    public void getAllSourceDataFromCache() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final Long id = transactionTemplate.execute(status ->
+                sourceDataRepository.saveAndFlush(sourceData).getId());
+        try {
+            String etag = restSourceDataMockMvc.perform(get("/api/source-data?sort=id,desc"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "no-cache, private"))
+                    .andExpect(jsonPath("$.[*].id").value(hasItem(id.intValue())))
+                    .andReturn().getResponse().getHeader("ETag");
+            assertThat(etag).matches("\"[0-9a-f]+\"");
+
+            // An unchanged page is served from the cache
+            restSourceDataMockMvc.perform(get("/api/source-data?sort=id,desc")
+                    .header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().bytes(new byte[0]))
+                    .andExpect(TestUtil.maxStatements(0));
+
+            // Changing source data invalidates the cache once it is committed
+            transactionTemplate.execute(status -> sourceDataRepository.findOne(id)
+                    .unit(UPDATED_UNIT));
+            restSourceDataMockMvc.perform(get("/api/source-data?sort=id,desc")
+                    .header("If-None-Match", etag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", not(etag)))
+                    .andExpect(jsonPath("$.[*].unit").value(hasItem(UPDATED_UNIT)));
+        } finally {
+            deleteCommitted(transactionTemplate, id);
+        }
+    }
+
+    /** Delete committed source data. */
+    private void deleteCommitted(TransactionTemplate transactionTemplate, Long id) {
+        transactionTemplate.execute(status -> {
+            sourceDataRepository.delete(id);
+            return null;
+        });
+    }
+
     @Test
     @Transactional
     public void getAllSourceDataWithPagination() throws Exception {
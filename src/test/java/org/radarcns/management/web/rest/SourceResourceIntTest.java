@@ -12,6 +12,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import javax.persistence.EntityManager;
@@ -22,11 +24,19 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Project;
 import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.Subject;
 import org.radarcns.management.repository.SourceRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.SourceOwnershipService;
+import org.radarcns.management.service.SourceProvisioningService;
 import org.radarcns.management.service.SourceService;
 import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.dto.EntityChangeDTO;
+import org.radarcns.management.service.dto.EntityChangeDTO.Action;
+import org.radarcns.management.service.dto.EntityChangeDTO.EntityType;
 import org.radarcns.management.service.dto.SourceDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.mapper.SourceMapper;
@@ -42,6 +52,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
@@ -76,6 +87,18 @@ public class SourceResourceIntTest {
     @Autowired
     private SourceTypeService sourceTypeService;
 
+    @Autowired
+    private SourceProvisioningService sourceProvisioningService;
+
+    @Autowired
+    private SourceOwnershipService sourceOwnershipService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private SourceTypeMapper sourceTypeMapper;
 
@@ -105,6 +128,12 @@ public class SourceResourceIntTest {
         ReflectionTestUtils.setField(sourceResource, "servletRequest", servletRequest);
         ReflectionTestUtils.setField(sourceResource, "sourceService", sourceService);
         ReflectionTestUtils.setField(sourceResource, "sourceRepository", sourceRepository);
+        ReflectionTestUtils.setField(sourceResource, "sourceProvisioningService",
+                sourceProvisioningService);
+        ReflectionTestUtils.setField(sourceResource, "sourceOwnershipService",
+                sourceOwnershipService);
+        ReflectionTestUtils.setField(sourceResource, "projectService", projectService);
+        ReflectionTestUtils.setField(sourceResource, "objectMapper", objectMapper);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -112,6 +141,7 @@ public class SourceResourceIntTest {
                 .setCustomArgumentResolvers(pageableArgumentResolver)
                 .setControllerAdvice(exceptionTranslator)
                 .setMessageConverters(jacksonMessageConverter)
+                .addFilter(TestUtil.requestStatisticsFilter())
                 .addFilter(filter)
                 .defaultRequest(get("/").with(OAuthHelper.bearerToken()))
                 .alwaysDo(MockMvcResultHandlers.print()).build();
@@ -178,6 +208,176 @@ public class SourceResourceIntTest {
         assertThat(sourceList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    public void provisionSources() throws Exception {
+        // Initialize the database
+        sourceRepository.saveAndFlush(source);
+        final int databaseSizeBeforeCreate = sourceRepository.findAll().size();
+        SourceTypeDTO sourceType = projectService.findOneByName("radar").getSourceTypes()
+                .iterator().next();
+
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            ndjson.append("{\"sourceName\":\"bulk-source-").append(i)
+                    .append("\",\"attributes\":{\"batch\":\"A\"}}\n");
+        }
+        ndjson.append("{}\n")
+                .append("{malformed\n")
+                .append("{\"sourceName\":\"").append(DEFAULT_SOURCE_NAME).append("\"}\n")
+                .append("{\"sourceName\":\"bulk-source-0\"}\n")
+                .append("{\"sourceName\":\"bulk/source\"}\n");
+
+        MvcResult result = restDeviceMockMvc.perform(post("/api/sources/bulk")
+                .param("projectName", "radar")
+                .param("sourceTypeId", sourceType.getId().toString())
+                .contentType("application/x-ndjson")
+                .content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(TestUtil.maxStatements(30))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(65);
+        for (int i = 0; i < 60; i++) {
+            assertThat(lines[i]).contains("\"row\":" + (i + 1) + ",",
+                    "\"status\":\"CREATED\"", "\"sourceName\":\"bulk-source-" + i + "\"");
+        }
+        assertThat(lines[60]).contains("\"row\":61,", "\"status\":\"CREATED\"",
+                "\"sourceName\":\"" + sourceType.getModel() + "-");
+        for (int i = 61; i < 65; i++) {
+            assertThat(lines[i]).contains("\"row\":" + (i + 1) + ",", "\"status\":\"FAILED\"");
+        }
+
+        // Validate the sources in the database
+        assertThat(sourceRepository.findAll()).hasSize(databaseSizeBeforeCreate + 61);
+        Source created = sourceRepository.findOneBySourceName("bulk-source-3").get();
+        assertThat(created.isAssigned()).isFalse();
+        assertThat(created.getSourceId()).isNotNull();
+        assertThat(created.getProject().getProjectName()).isEqualTo("radar");
+        assertThat(created.getSourceType().getId()).isEqualTo(sourceType.getId());
+        assertThat(created.getAttributes()).containsEntry("batch", "A");
+    }
+
+    @Test
+    @Transactional
+    public void provisionSourcesOfOtherSourceType() throws Exception {
+        restDeviceMockMvc.perform(post("/api/sources/bulk")
+                .param("projectName", "radar")
+                .param("sourceTypeId", "-1")
+                .contentType("application/x-ndjson")
+                .content("{\"sourceName\":\"bulk-source\"}\n"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(sourceRepository.findOneBySourceName("bulk-source")).isEmpty();
+    }
+
+    @Test
+    @Transactional
+    public void getSourceOwnership() throws Exception {
+        // source-1 of sub-1 in the demo data
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}",
+                "03d28e5c-e005-46d4-a9b3-279c27fbbc83"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sourceName").value("source-1"))
+                .andExpect(jsonPath("$.subjectLogin").value("sub-1"))
+                .andExpect(jsonPath("$.projectName").value("radar"))
+                .andExpect(jsonPath("$.assigned").value(true));
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getSourceOwnershipsFollowsChanges() throws Exception {
+        // Initialize the database
+        source.setProject(em.find(Project.class, 1L));
+        sourceRepository.saveAndFlush(source);
+        String sourceIds = "[\"" + source.getSourceId() + "\",\"" + UUID.randomUUID()
+                + "\",\"03d28e5c-e005-46d4-a9b3-279c27fbbc83\"]";
+
+        restDeviceMockMvc.perform(post("/api/sources/ownership")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(sourceIds))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].sourceName").value(DEFAULT_SOURCE_NAME))
+                .andExpect(jsonPath("$[0].projectName").value("radar"))
+                .andExpect(jsonPath("$[0].assigned").value(false))
+                .andExpect(jsonPath("$[0].subjectLogin").doesNotExist())
+                .andExpect(jsonPath("$[1].sourceName").value("source-1"));
+
+        // Update the source and notify the index
+        source.setAssigned(true);
+        sourceRepository.saveAndFlush(source);
+        EntityChangeDTO change = new EntityChangeDTO();
+        change.setEntityType(EntityType.SOURCE);
+        change.setAction(Action.UPDATED);
+        change.setId(source.getId());
+        sourceOwnershipService.update(change);
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", source.getSourceId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assigned").value(true))
+                .andExpect(TestUtil.maxStatements(0));
+
+        // Remove the source and notify the index
+        sourceRepository.delete(source);
+        sourceRepository.flush();
+        change.setAction(Action.REMOVED);
+        sourceOwnershipService.update(change);
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", source.getSourceId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getSourceOwnershipsFollowsSubjectChanges() throws Exception {
+        // Initialize the database
+        source.setProject(em.find(Project.class, 1L));
+        source.setAssigned(true);
+        sourceRepository.saveAndFlush(source);
+        Subject subject = em.createQuery("select subject from Subject subject "
+                + "where subject.user.login = 'sub-1'", Subject.class).getSingleResult();
+        subject.getSources().add(source);
+        em.flush();
+        EntityChangeDTO change = new EntityChangeDTO();
+        change.setEntityType(EntityType.SUBJECT);
+        change.setAction(Action.UPDATED);
+        change.setId(subject.getId());
+        change.setName("sub-1");
+        sourceOwnershipService.update(change);
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", source.getSourceId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subjectLogin").value("sub-1"))
+                .andExpect(TestUtil.maxStatements(0));
+
+        // Remove the source from the subject without loading it, as bulk operations do
+        em.createNativeQuery("delete from subject_sources where sources_id = :id")
+                .setParameter("id", source.getId())
+                .executeUpdate();
+        sourceOwnershipService.update(change);
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", source.getSourceId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subjectLogin").doesNotExist());
+
+        // A lookup that read the source before the subject change does not index it afterwards
+        Long readGeneration = ReflectionTestUtils.invokeMethod(sourceOwnershipService,
+                "currentGeneration");
+        sourceOwnershipService.update(change);
+        ReflectionTestUtils.invokeMethod(sourceOwnershipService, "putAll",
+                Collections.singletonList(new Object[] {source.getId(), source.getSourceId(),
+                        source.getSourceName(), "sub-1", "radar", true}), readGeneration);
+
+        restDeviceMockMvc.perform(get("/api/sources/ownership/{sourceId}", source.getSourceId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subjectLogin").doesNotExist());
+    }
+
     @Test
     @Transactional
     public void checkSourcePhysicalIdIsGenerated() throws Exception {
@@ -1,7 +1,9 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -26,7 +28,10 @@ import org.radarcns.management.domain.enumeration.SourceTypeScope;
 import org.radarcns.management.repository.SourceDataRepository;
 import org.radarcns.management.repository.SourceTypeRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.ResponseCacheService;
+import org.radarcns.management.service.SourceTypeCatalogService;
 import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.catalog.SourceTypeCatalog;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.mapper.SourceDataMapper;
@@ -37,6 +42,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -44,7 +50,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Test class for the SourceTypeResource REST controller.
@@ -77,6 +85,12 @@ public class SourceTypeResourceIntTest {
     @Autowired
     private SourceTypeService sourceTypeService;
 
+    @Autowired
+    private SourceTypeCatalogService sourceTypeCatalogService;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     @Autowired
     private SourceDataMapper sourceDataMapper;
 
@@ -92,6 +106,9 @@ public class SourceTypeResourceIntTest {
     @Autowired
     private ExceptionTranslator exceptionTranslator;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private EntityManager em;
 
@@ -109,6 +126,10 @@ public class SourceTypeResourceIntTest {
         ReflectionTestUtils.setField(sourceTypeResource, "sourceTypeService" , sourceTypeService);
         ReflectionTestUtils.setField(sourceTypeResource, "sourceTypeRepository" , 
                 sourceTypeRepository);
+        ReflectionTestUtils.setField(sourceTypeResource, "sourceTypeCatalogService",
+                sourceTypeCatalogService);
+        ReflectionTestUtils.setField(sourceTypeResource, "responseCacheService",
+                responseCacheService);
         ReflectionTestUtils.setField(sourceTypeResource, "servletRequest", servletRequest);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
@@ -117,7 +138,7 @@ public class SourceTypeResourceIntTest {
         this.restSourceTypeMockMvc = MockMvcBuilders.standaloneSetup(sourceTypeResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
-            .setMessageConverters(jacksonMessageConverter)
+            .setMessageConverters(new ByteArrayHttpMessageConverter(), jacksonMessageConverter)
             .addFilter(filter)
             .defaultRequest(get("/").with(OAuthHelper.bearerToken())).build();
     }
@@ -308,6 +329,78 @@ public class SourceTypeResourceIntTest {
                         DEFAULT_SOURCE_TYPE_SCOPE.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getSourceTypesByProducerAndModel() throws Exception {
+        // Initialize the database
+        SourceData sourceData = SourceDataResourceIntTest.createEntity(em).sourceType(sourceType);
+        sourceType.setSourceData(Collections.singleton(sourceData));
+        sourceTypeRepository.save(sourceType);
+        sourceDataRepository.saveAndFlush(sourceData);
+
+        restSourceTypeMockMvc.perform(get("/api/source-types/{producer}", DEFAULT_PRODUCER))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(sourceType.getId().intValue()))
+                .andExpect(jsonPath("$[0].sourceData", hasSize(1)));
+
+        restSourceTypeMockMvc.perform(get("/api/source-types/{producer}/{model}",
+                DEFAULT_PRODUCER, DEFAULT_MODEL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].model").value(DEFAULT_MODEL));
+
+        restSourceTypeMockMvc.perform(get("/api/source-types/{producer}/{model}",
+                DEFAULT_PRODUCER, UPDATED_MODEL))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    public void getSourceTypesFromCatalog() throws Exception {
+        SourceTypeCatalog catalog = sourceTypeCatalogService.getCatalog();
+        assertThat(sourceTypeCatalogService.getCatalog()).isSameAs(catalog);
+
+        // Readers get copies, so they cannot change the catalog
+        SourceTypeDTO copy = catalog.findAll().get(0);
+        copy.setName("changed");
+        assertThat(catalog.findAll().get(0).getName()).isNotEqualTo("changed");
+        assertThatThrownBy(() -> copy.getSourceData().add(new SourceDataDTO()))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        // The catalog is only renewed once a change is committed
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SourceTypeDTO sourceTypeDto = transactionTemplate.execute(status -> sourceTypeService
+                .save(sourceTypeMapper.sourceTypeToSourceTypeDTO(sourceType)));
+        try {
+            SourceTypeCatalog updated = sourceTypeCatalogService.getCatalog();
+            assertThat(updated).isNotSameAs(catalog);
+            assertThat(updated.size()).isEqualTo(catalog.size() + 1);
+            assertThat(updated.findOne(DEFAULT_PRODUCER, DEFAULT_MODEL, DEFAULT_DEVICE_VERSION)
+                    .map(SourceTypeDTO::getId)).contains(sourceTypeDto.getId());
+            assertThat(catalog.findOne(DEFAULT_PRODUCER, DEFAULT_MODEL, DEFAULT_DEVICE_VERSION))
+                    .isEmpty();
+
+            restSourceTypeMockMvc.perform(get("/api/source-types/{producer}/{model}/{version}",
+                    DEFAULT_PRODUCER, DEFAULT_MODEL, DEFAULT_DEVICE_VERSION))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(sourceTypeDto.getId().intValue()));
+        } finally {
+            deleteCommitted(transactionTemplate, sourceTypeDto.getId());
+        }
+        assertThat(sourceTypeCatalogService.getCatalog().findOne(DEFAULT_PRODUCER, DEFAULT_MODEL,
+                DEFAULT_DEVICE_VERSION)).isEmpty();
+    }
+
+    /** Delete a committed source type. */
+    private void deleteCommitted(TransactionTemplate transactionTemplate, Long id) {
+        transactionTemplate.execute(status -> {
+            sourceTypeService.delete(id);
+            return null;
+        });
+    }
+
     @Test
     @Transactional
     public void getNonExistingSourceType() throws Exception {
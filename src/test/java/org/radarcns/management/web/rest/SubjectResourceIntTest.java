@@ -1,32 +1,58 @@
 package org.radarcns.management.web.rest;
 
+import static org.radarcns.auth.authorization.AuthoritiesConstants.PARTICIPANT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Project;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Subject;
+import org.radarcns.management.metrics.RequestStatisticsFilter;
 import org.radarcns.management.repository.ProjectRepository;
+import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.repository.SourceTypeRepository;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.SourceMetadataService;
 import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.SubjectEnrollmentService;
 import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
@@ -36,6 +62,8 @@ import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -44,6 +72,8 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -84,6 +114,18 @@ public class SubjectResourceIntTest {
     @Autowired
     private SourceTypeService sourceTypeService;
 
+    @Autowired
+    private SubjectEnrollmentService subjectEnrollmentService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private SourceMetadataService sourceMetadataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -99,6 +141,12 @@ public class SubjectResourceIntTest {
     @Autowired
     private ProjectRepository projectRepository;
 
+    @Autowired
+    private SourceRepository sourceRepository;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -114,6 +162,12 @@ public class SubjectResourceIntTest {
         ReflectionTestUtils.setField(subjectResource, "projectRepository" , projectRepository);
         ReflectionTestUtils.setField(subjectResource, "sourceTypeService", sourceTypeService);
         ReflectionTestUtils.setField(subjectResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(subjectResource, "subjectEnrollmentService",
+                subjectEnrollmentService);
+        ReflectionTestUtils.setField(subjectResource, "projectService", projectService);
+        ReflectionTestUtils.setField(subjectResource, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(subjectResource, "sourceMetadataService",
+                sourceMetadataService);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -122,6 +176,7 @@ public class SubjectResourceIntTest {
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
             .setMessageConverters(jacksonMessageConverter)
+            .addFilter(TestUtil.requestStatisticsFilter())
             .addFilter(filter)
             // add the oauth token by default to all requests for this mockMvc
             .defaultRequest(get("/").with(OAuthHelper.bearerToken())).build();
@@ -187,6 +242,80 @@ public class SubjectResourceIntTest {
         assertThat(subjectList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    @Transactional
+    public void enrollSubjectsFromCsv() throws Exception {
+        // Initialize the database
+        SubjectDTO existing = subjectService.createSubject(createEntityDTO(em));
+        final int databaseSizeBeforeCreate = subjectRepository.findAll().size();
+
+        StringBuilder csv = new StringBuilder("externalId,externalLink,site\n");
+        for (int i = 0; i < 30; i++) {
+            csv.append("bulk-").append(i).append(",http://example.com/").append(i)
+                    .append(",London\n");
+        }
+        csv.append('\n')
+                .append(existing.getExternalId()).append(",,London\n")
+                .append("bulk-0,,London\n");
+
+        MvcResult result = restSubjectMockMvc.perform(post("/api/subjects/bulk")
+                .param("projectName", "radar")
+                .contentType("text/csv")
+                .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(TestUtil.maxStatements(30))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(32);
+        for (int i = 0; i < 30; i++) {
+            assertThat(lines[i]).contains("\"row\":" + (i + 1) + ",",
+                    "\"status\":\"CREATED\"", "\"externalId\":\"bulk-" + i + "\"");
+        }
+        assertThat(lines[30]).contains("\"row\":31,", "\"status\":\"FAILED\"");
+        assertThat(lines[31]).contains("\"row\":32,", "\"status\":\"FAILED\"");
+
+        // Validate the subjects in the database
+        assertThat(subjectRepository.findAll()).hasSize(databaseSizeBeforeCreate + 30);
+        Subject subject = subjectRepository.findOneByProjectNameAndExternalId("radar", "bulk-3")
+                .get();
+        assertThat(subject.getExternalLink()).isEqualTo("http://example.com/3");
+        assertThat(subject.getAttributes()).containsEntry("site", "London");
+        assertThat(subject.getUser().getActivated()).isTrue();
+        assertThat(subject.getUser().getPassword()).isNotEmpty();
+        assertThat(subject.getUser().getRoles()).extracting(r -> r.getAuthority().getName())
+                .containsExactly(PARTICIPANT);
+    }
+
+    @Test
+    @Transactional
+    public void enrollSubjectsFromNdjson() throws Exception {
+        final int databaseSizeBeforeCreate = subjectRepository.findAll().size();
+        String ndjson = "{\"login\":\"bulk-login-1\",\"externalId\":\"bulk-ndjson-1\"}\n"
+                + "{malformed\n"
+                + "{\"login\":\"bulk-login-2\",\"attributes\":{\"site\":\"Paris\"}}\n"
+                + "{\"login\":\"bulk-login-1\"}\n"
+                + "{\"login\":\"bulk/login\"}\n"
+                + "{\"login\":\"BULK-LOGIN-2\"}\n"
+                + "{\"login\":\"bulk-login-3\"}\n";
+
+        restSubjectMockMvc.perform(post("/api/subjects/bulk")
+                .param("projectName", "radar")
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        containsString("{\"row\":1,\"status\":\"CREATED\""),
+                        containsString("{\"row\":2,\"status\":\"FAILED\""),
+                        containsString("{\"row\":3,\"status\":\"CREATED\""),
+                        containsString("{\"row\":4,\"status\":\"FAILED\""),
+                        containsString("{\"row\":5,\"status\":\"FAILED\""),
+                        containsString("{\"row\":6,\"status\":\"FAILED\""),
+                        containsString("{\"row\":7,\"status\":\"CREATED\""))));
+
+        assertThat(subjectRepository.findAll()).hasSize(databaseSizeBeforeCreate + 3);
+    }
+
     @Test
     @Transactional
     public void getAllSubjects() throws Exception {
@@ -200,7 +329,64 @@ public class SubjectResourceIntTest {
             .andExpect(jsonPath("$.[*].id").value(hasItem(subjectDto.getId().intValue())))
             .andExpect(jsonPath("$.[*].externalLink").value(hasItem(DEFAULT_EXTERNAL_LINK)))
             .andExpect(jsonPath("$.[*].externalId").value(hasItem(DEFAULT_ENTERNAL_ID)))
-            .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())));
+            .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())))
+            .andExpect(TestUtil.maxStatements(21));
+    }
+
+    @Test
+    @Transactional
+    public void getSubjectPageLoadsNoEntities() throws Exception {
+        // Initialize the database with more subjects than fit on a page
+        for (int i = 0; i < 12; i++) {
+            SubjectDTO subjectDto = createEntityDTO(em);
+            subjectDto.getAttributes().put("site", "london");
+            subjectService.createSubject(subjectDto);
+        }
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        // Get the first page of subjects of the project
+        restSubjectMockMvc.perform(get("/api/subjects?projectName=radar&page=1&size=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[*].project.projectName", everyItem(is("radar"))))
+                .andExpect(jsonPath("$[*].project.sourceTypes", everyItem(empty())))
+                .andExpect(jsonPath("$[*].roles[*].authorityName", hasItem(PARTICIPANT)))
+                .andExpect(jsonPath("$[4].attributes.site").value("london"))
+                .andExpect(header().string("X-Total-Count",
+                        String.valueOf(subjectRepository.findIdsByProjectNameAndAuthoritiesIn(
+                                new PageRequest(0, 1), "radar",
+                                Collections.singletonList(PARTICIPANT)).getTotalElements())))
+                .andExpect(TestUtil.maxStatements(8));
+
+        // The subjects are read as projections, without loading any entities
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void getSubjectPagesDoNotOverlap() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 4; i++) {
+            subjectService.createSubject(createEntityDTO(em));
+        }
+
+        Page<SubjectDTO> first = subjectService.findAllByProjectNameAndAuthoritiesIn(
+                new PageRequest(0, 2), "radar", Collections.singletonList(PARTICIPANT));
+        Page<SubjectDTO> second = subjectService.findAllByProjectNameAndAuthoritiesIn(
+                new PageRequest(1, 2), "radar", Collections.singletonList(PARTICIPANT));
+
+        List<Long> firstIds = first.getContent().stream().map(SubjectDTO::getId)
+                .collect(Collectors.toList());
+        List<Long> secondIds = second.getContent().stream().map(SubjectDTO::getId)
+                .collect(Collectors.toList());
+        assertThat(firstIds).hasSize(2).isSorted();
+        assertThat(secondIds).hasSize(2).isSorted().doesNotContainAnyElementsOf(firstIds);
+        assertThat(firstIds.get(1)).isLessThan(secondIds.get(0));
     }
 
     @Test
@@ -216,7 +402,30 @@ public class SubjectResourceIntTest {
             .andExpect(jsonPath("$.id").value(subjectDto.getId().intValue()))
             .andExpect(jsonPath("$.externalLink").value(DEFAULT_EXTERNAL_LINK))
             .andExpect(jsonPath("$.externalId").value(DEFAULT_ENTERNAL_ID))
-            .andExpect(jsonPath("$.status").value(DEFAULT_STATUS.toString()));
+            .andExpect(jsonPath("$.status").value(DEFAULT_STATUS.toString()))
+            .andExpect(header().string(RequestStatisticsFilter.SERVER_TIMING_HEADER,
+                    startsWith("db;dur=")))
+            .andExpect(TestUtil.maxStatements(12));
+    }
+
+    @Test
+    @Transactional
+    public void getSubjectWithServerTimingBreakdown() throws Exception {
+        // Initialize the database
+        SubjectDTO subjectDto = subjectService.createSubject(createEntityDTO(em));
+
+        // Get the subject, requesting the timing of all request phases
+        MockHttpServletRequestBuilder request = get("/api/subjects/{login}",
+                subjectDto.getLogin())
+                .header(RequestStatisticsFilter.SERVER_TIMING_REQUEST_HEADER, "true");
+        restSubjectMockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(subjectDto.getId().intValue()))
+                .andExpect(header().string(RequestStatisticsFilter.SERVER_TIMING_HEADER,
+                        allOf(startsWith("auth;dur="), containsString(", db;dur="),
+                                containsString(", mapping;dur="),
+                                containsString(", serialization;dur="),
+                                containsString(", total;dur="))));
     }
 
     @Test
@@ -360,20 +569,35 @@ public class SubjectResourceIntTest {
         // Create a source description
         MinimalSourceDetailsDTO sourceRegistrationDto = createSourceWithDeviceId();
 
+        MvcResult registered = restSubjectMockMvc.perform(post("/api/subjects/{login}/sources",
+                subjectLogin)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sourceId").isNotEmpty())
+                .andReturn();
+        String sourceId = JsonPath.read(registered.getResponse().getContentAsString(),
+                "$.sourceId");
+
+        // Retrying the registration returns the registered source
+        assertThat(sourceRegistrationDto.getSourceId()).isNull();
         restSubjectMockMvc.perform(post("/api/subjects/{login}/sources", subjectLogin)
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.sourceId").isNotEmpty());
+            .andExpect(jsonPath("$.sourceId").value(sourceId));
 
-        // A source can not be assigned twice to a subject, so this call must fail
-        assertThat(sourceRegistrationDto.getSourceId()).isNull();
+        // A second source of the same type can not be assigned to a subject, so this call must
+        // fail
+        sourceRegistrationDto.getAttributes().put("some", "other value");
         restSubjectMockMvc.perform(post("/api/subjects/{login}/sources", subjectLogin)
             .contentType(TestUtil.APPLICATION_JSON_UTF8)
             .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
             .andExpect(status().is4xxClientError());
+        assertThat(subjectRepository.findSourcesBySubjectLogin(subjectLogin)).hasSize(1);
     }
 
+
     @Test
     @Transactional
     public void dynamicSourceRegistrationWithoutId() throws Exception {
@@ -397,18 +621,95 @@ public class SubjectResourceIntTest {
         // Create a source description
         MinimalSourceDetailsDTO sourceRegistrationDto = createSourceWithoutDeviceId();
 
-        restSubjectMockMvc.perform(post("/api/subjects/{login}/sources", subjectLogin)
+        String registered = restSubjectMockMvc.perform(post("/api/subjects/{login}/sources",
+                subjectLogin)
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.sourceId").isNotEmpty());
+                .andExpect(jsonPath("$.sourceId").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String sourceId = JsonPath.read(registered, "$.sourceId");
 
-        // A source can not be assigned twice to a subject, so this call must fail
+        // Retrying the registration returns the registered source
         assertThat(sourceRegistrationDto.getSourceId()).isNull();
+        restSubjectMockMvc.perform(post("/api/subjects/{login}/sources", subjectLogin)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sourceId").value(sourceId));
+
+        // A second source of the same type can not be assigned to a subject, so this call must
+        // fail
+        sourceRegistrationDto.getAttributes().put("some", "other value");
         restSubjectMockMvc.perform(post("/api/subjects/{login}/sources", subjectLogin)
                 .contentType(TestUtil.APPLICATION_JSON_UTF8)
                 .content(TestUtil.convertObjectToJsonBytes(sourceRegistrationDto)))
                 .andExpect(status().is4xxClientError());
+        assertThat(subjectRepository.findSourcesBySubjectLogin(subjectLogin)).hasSize(1);
+    }
+
+    @Test
+    @Transactional
+    public void dynamicSourceRegistrationIsUniquePerSourceType() throws Exception {
+        SubjectDTO subjectDto = subjectService.createSubject(createEntityDTO(em));
+        Subject subject = subjectRepository.findOneWithEagerBySubjectLogin(subjectDto.getLogin())
+                .get();
+        SourceType sourceType = sourceTypeRepository.findOne(
+                createSourceWithDeviceId().getSourceTypeId());
+        Project project = subject.getUser().getRoles().iterator().next().getProject();
+        subjectService.assignOrUpdateSource(subject, sourceType, project,
+                createSourceWithDeviceId());
+
+        // The database rejects a second registered source of the same type for the subject
+        Source other = sourceRepository.saveAndFlush(new Source()
+                .project(project)
+                .assigned(true)
+                .sourceType(sourceType));
+        assertThatThrownBy(() -> em.createNativeQuery("insert into subject_sources "
+                + "(subjects_id, sources_id, registered_source_type_id) values (?, ?, ?)")
+                .setParameter(1, subject.getId())
+                .setParameter(2, other.getId())
+                .setParameter(3, sourceType.getId())
+                .executeUpdate())
+                .isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    @Transactional
+    public void patchSubjectSourceAttributes() throws Exception {
+        restSubjectMockMvc.perform(patch("/api/subjects/{login}/sources/{sourceName}/attributes",
+                "sub-1", "source-1")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("{\"firmware\": \"1.0\", \"battery\": \"full\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(TestUtil.maxStatements(10));
+
+        // Only the given attributes change, and attributes with a null value are removed
+        restSubjectMockMvc.perform(patch("/api/subjects/{login}/sources/{sourceName}/attributes",
+                "sub-1", "source-1")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("{\"firmware\": \"1.1\", \"battery\": null}"))
+                .andExpect(status().isNoContent());
+        em.clear();
+        Source source = sourceRepository.findOneBySourceName("source-1").get();
+        assertThat(source.getAttributes()).containsEntry("firmware", "1.1")
+                .doesNotContainKey("battery");
+
+        // Unchanged attributes are not written again
+        assertThat(sourceMetadataService.patchAttributes(source.getId(),
+                Collections.singletonMap("firmware", "1.1"))).isFalse();
+
+        restSubjectMockMvc.perform(patch("/api/subjects/{login}/sources/{sourceName}/attributes",
+                "sub-1", "unknown-source")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("{\"firmware\": \"1.0\"}"))
+                .andExpect(status().isNotFound());
+
+        restSubjectMockMvc.perform(patch("/api/subjects/{login}/sources/{sourceName}/attributes",
+                "unknown-subject", "source-1")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("{\"firmware\": \"1.0\"}"))
+                .andExpect(status().isNotFound());
     }
 
     private MinimalSourceDetailsDTO createSourceWithDeviceId() {
@@ -2,6 +2,7 @@ package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -11,7 +12,10 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
+import org.radarcns.management.metrics.RequestStatistics;
+import org.radarcns.management.metrics.RequestStatisticsFilter;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultMatcher;
 
 /**
  * Utility class for testing REST controllers.
@@ -116,4 +120,31 @@ public class TestUtil {
         // HashCodes are equals because the objects are not persisted yet
         assertThat(domainObject1.hashCode()).isEqualTo(domainObject2.hashCode());
     }
+
+    /**
+     * Matches requests that executed at most the given number of database statements. The MockMvc
+     * instance must include a {@link RequestStatisticsFilter}, see
+     * {@link #requestStatisticsFilter()}.
+     *
+     * @param max maximum number of statements
+     * @return result matcher
+     */
+    public static ResultMatcher maxStatements(int max) {
+        return result -> {
+            RequestStatistics statistics = (RequestStatistics) result.getRequest()
+                    .getAttribute(RequestStatistics.REQUEST_ATTRIBUTE);
+            assertThat(statistics).as("request statistics").isNotNull();
+            assertThat(statistics.getStatementCount())
+                    .as("database statements executed by %s %s",
+                            result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                    .isLessThanOrEqualTo(max);
+        };
+    }
+
+    /**
+     * Create a filter that collects request statistics, for use with {@link #maxStatements(int)}.
+     */
+    public static RequestStatisticsFilter requestStatisticsFilter() {
+        return new RequestStatisticsFilter(new MetricRegistry(), Integer.MAX_VALUE, false);
+    }
 }
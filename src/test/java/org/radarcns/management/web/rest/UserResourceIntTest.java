@@ -1,13 +1,18 @@
 package org.radarcns.management.web.rest;
 
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Project;
+import org.radarcns.management.domain.Role;
 import org.radarcns.management.domain.User;
+import org.radarcns.management.repository.RoleRepository;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.repository.UserRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
@@ -30,6 +35,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashSet;
@@ -98,6 +104,12 @@ public class UserResourceIntTest {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     private HttpServletRequest servletRequest;
 
@@ -270,6 +282,39 @@ public class UserResourceIntTest {
                 .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    public void getAllUsersLoadsRolesInBatches() throws Exception {
+        // Initialize the database
+        Role participant = roleRepository.findOneByProjectNameAndAuthorityName("radar",
+                AuthoritiesConstants.PARTICIPANT).get();
+        for (int i = 0; i < 60; i++) {
+            User participantUser = createEntity(em);
+            participantUser.setLogin("batch-user-" + i);
+            participantUser.setEmail("batch-user-" + i + "@localhost");
+            participantUser.getRoles().add(participant);
+            em.persist(participantUser);
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        restUserMockMvc.perform(get("/api/users?size=100&sort=id,desc")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].login").value(hasItem("batch-user-0")));
+
+        // roles do not pull in the source types and metadata of their projects, and are
+        // fetched for many users at a time
+        assertThat(statistics.getCollectionStatistics(Project.class.getName() + ".sourceTypes")
+                .getLoadCount()).isZero();
+        assertThat(statistics.getCollectionStatistics(Project.class.getName() + ".attributes")
+                .getLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(15);
+    }
+
     @Test
     @Transactional
     public void getUser() throws Exception {